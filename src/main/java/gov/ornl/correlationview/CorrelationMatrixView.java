@@ -333,9 +333,9 @@ public class CorrelationMatrixView extends Region implements DataTableListener {
 
                     double correlation = 0;
                     if (isShowingQueryCorrelations() && dataTable.getActiveQuery().hasColumnSelections()) {
-                        correlation = ((DoubleColumnSummaryStats)dataTable.getActiveQuery().getColumnQuerySummaryStats(yColumn)).getCorrelationCoefficientList().get(dataTable.getColumnIndex(xColumn));
+                        correlation = ((DoubleColumnSummaryStats)dataTable.getActiveQuery().getColumnQuerySummaryStats(yColumn)).getCorrelationCoefficient(xColumn);
                     } else {
-                        correlation = yColumn.getStatistics().getCorrelationCoefficientList().get(dataTable.getColumnIndex(xColumn));
+                        correlation = yColumn.getStatistics().getCorrelationCoefficient(xColumn);
                     }
 
                     CorrelationMatrixCell cell = new CorrelationMatrixCell(xColumn, yColumn, correlation);
@@ -598,6 +598,13 @@ public class CorrelationMatrixView extends Region implements DataTableListener {
         resizeView();
     }
 
+    @Override
+    public void dataTableActiveQueryChanged(DataTable dataModel, Query previousActiveQuery) {
+        clearView();
+        initView();
+        resizeView();
+    }
+
     @Override
     public void dataTableAllColumnSelectionsForColumnRemoved(DataTable dataModel, Column column) {
         clearView();
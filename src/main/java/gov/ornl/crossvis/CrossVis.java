@@ -38,6 +38,7 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
@@ -118,7 +119,18 @@ public class CrossVis extends Application implements DataTableListener {
         dataTableUpdatesEnabled.addListener(observable -> setDataTableItems());
 
         dataTable = new DataTable();
+        // keep brushing responsive by evaluating selection changes off the JavaFX application thread
+        dataTable.setAsynchronousQueries(true);
+        // store the values of files loaded later in memory mapped files if a column storage directory was chosen
+        String columnStorageDirectoryPath = preferences.get(CrossVisPreferenceKeys.COLUMN_STORAGE_DIRECTORY, "");
+        if (!columnStorageDirectoryPath.isEmpty()) {
+            File columnStorageDirectory = new File(columnStorageDirectoryPath);
+            if (columnStorageDirectory.isDirectory() && columnStorageDirectory.canWrite()) {
+                dataTable.setColumnStorageDirectory(columnStorageDirectory);
+            }
+        }
         dataTable.addDataTableListener(this);
+        dataTable.queryPreviewProperty().addListener(observable -> updatePercentSelected());
     }
 
     private void createColumnTableViews() {
@@ -844,8 +856,12 @@ public class CrossVis extends Application implements DataTableListener {
         saveScreenShotMI.setAccelerator(new KeyCodeCombination(KeyCode.S, KeyCombination.META_DOWN));
         saveScreenShotMI.setOnAction(event -> { saveScreenShot(); });
 
-        fileMenu.getItems().addAll(openNetCDFMI, openCSVMI, new SeparatorMenuItem(), exportSelectedDataMenuItem,
-                exportUnselectedDataMenuItem, new SeparatorMenuItem(), saveScreenShotMI);
+        CheckMenuItem useColumnStorageDirectoryMI = new CheckMenuItem("Store Column Values in Files...");
+        useColumnStorageDirectoryMI.setSelected(dataTable.getColumnStorageDirectory() != null);
+        useColumnStorageDirectoryMI.setOnAction(event -> { setColumnStorageDirectory(useColumnStorageDirectoryMI); });
+
+        fileMenu.getItems().addAll(openNetCDFMI, openCSVMI, useColumnStorageDirectoryMI, new SeparatorMenuItem(),
+                exportSelectedDataMenuItem, exportUnselectedDataMenuItem, new SeparatorMenuItem(), saveScreenShotMI);
 
         // View Menu
         CheckMenuItem showScatterplotsMI = new CheckMenuItem("Show Scatterplots");
@@ -1348,7 +1364,14 @@ public class CrossVis extends Application implements DataTableListener {
     }
 
     private void updatePercentSelected() {
-        if (dataTable != null && !dataTable.isEmpty()) {
+        if (dataTable != null && !dataTable.isEmpty() && dataTable.getQueryPreview() != null) {
+            // estimate from the sampled rows while a selection is dragged
+            QueryPreview queryPreview = dataTable.getQueryPreview();
+            percentSelectedProgress.setProgress(queryPreview.getQueriedFraction());
+            statusBar.setText(" ~" + queryPreview.getEstimatedQueriedTupleCount() + " of " + dataTable.getTupleCount() +
+                    " tuples selected (" + decimalFormat.format(queryPreview.getQueriedFraction()) + ", estimated from " +
+                    queryPreview.getSampleSize() + " sampled tuples)");
+        } else if (dataTable != null && !dataTable.isEmpty()) {
             double percentSelected = (double)dataTable.getActiveQuery().getQueriedTupleCount() / dataTable.getTupleCount();
             percentSelectedProgress.setProgress(percentSelected);
             log.info("percentSelected is " + percentSelected);
@@ -1372,6 +1395,43 @@ public class CrossVis extends Application implements DataTableListener {
         }
     }
 
+    // chooses the directory where the numeric and temporal column values of files opened later are stored in memory
+    // mapped files (so data larger than the heap can be loaded), or keeps the values on the heap if the menu item
+    // was deselected
+    private void setColumnStorageDirectory(CheckMenuItem useColumnStorageDirectoryMI) {
+        if (!useColumnStorageDirectoryMI.isSelected()) {
+            dataTable.setColumnStorageDirectory(null);
+            preferences.remove(CrossVisPreferenceKeys.COLUMN_STORAGE_DIRECTORY);
+            return;
+        }
+
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        String columnStorageDirectoryPath = preferences.get(CrossVisPreferenceKeys.COLUMN_STORAGE_DIRECTORY,
+                System.getProperty("java.io.tmpdir"));
+        File columnStorageDirectory = new File(columnStorageDirectoryPath);
+        if (columnStorageDirectory.exists() && columnStorageDirectory.canRead()) {
+            directoryChooser.setInitialDirectory(columnStorageDirectory);
+        }
+        directoryChooser.setTitle("Choose Directory for Column Value Files");
+
+        File directory = directoryChooser.showDialog(crossVisStage);
+        if (directory == null) {
+            useColumnStorageDirectoryMI.setSelected(dataTable.getColumnStorageDirectory() != null);
+            return;
+        }
+        if (!directory.canWrite()) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Column Storage Directory Error");
+            alert.setHeaderText(null);
+            alert.setContentText("The directory '" + directory.getName() + "' is not writable.");
+            alert.showAndWait();
+            useColumnStorageDirectoryMI.setSelected(dataTable.getColumnStorageDirectory() != null);
+            return;
+        }
+        dataTable.setColumnStorageDirectory(directory);
+        preferences.put(CrossVisPreferenceKeys.COLUMN_STORAGE_DIRECTORY, directory.getAbsolutePath());
+    }
+
     private void openCSVFile() {
         FileChooser fileChooser = new FileChooser();
         String lastCSVDirectoryPath = preferences.get(CrossVisPreferenceKeys.LAST_CSV_READ_DIRECTORY, "");
@@ -1566,6 +1626,11 @@ public class CrossVis extends Application implements DataTableListener {
         categoricalQueryTableView.setItems(dataTable.getActiveQuery().columnSelectionsProperty().filtered(selection -> selection instanceof CategoricalColumnSelection));
     }
 
+    @Override
+    public void dataTableActiveQueryChanged(DataTable dataTable, Query previousActiveQuery) {
+        dataTableAllColumnSelectionsRemoved(dataTable);
+    }
+
     @Override
     public void dataTableAllColumnSelectionsForColumnRemoved(DataTable dataTable, Column column) {
         removeAllQueriesMI.setDisable(!dataTable.getActiveQuery().hasColumnSelections());
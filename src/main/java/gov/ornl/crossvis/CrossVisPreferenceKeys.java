@@ -10,6 +10,8 @@ public class CrossVisPreferenceKeys {
 
     public final static String LAST_SNAPSHOT_DIRECTORY = APPNAME + "LAST_SNAPSHOT_DIRECTORY";
 
+    public final static String COLUMN_STORAGE_DIRECTORY = APPNAME + "COLUMN_STORAGE_DIRECTORY";
+
     public final static String DEFAULT_CSV_IMPORT_DATETIME_PARSE_PATTERN = APPNAME + "DEFAULT_CSV_IMPORT_DATETIME_PARSE_PATTERN";
     public final static String LAST_CSV_IMPORT_DATETIME_PARSE_PATTERN = APPNAME + "LAST_CSV_IMPORT_DATETIME_PARSE_PATTERN";
 }
@@ -13,27 +13,35 @@ public class BivariateColumn extends Column {
         this.column2 = column2;
     }
 
-    public boolean setFocusContext(Tuple tuple, int elementIdx) {
-        getFocusTuples().add(tuple);
-        return true;
-    }
-
     public void swapColumns() {
         Column column = column1;
         column1 = column2;
         column2 = column;
-        int columnIndex = dataModel.getColumnIndex(this);
-        for (Tuple tuple : dataModel.getTuples()) {
-            swapTupleElementValues((Object[])tuple.getElement(columnIndex));
-        }
     }
 
-    private void swapTupleElementValues(Object values[]) {
-        Object tempValue = values[0];
-        values[0] = values[1];
-        values[1] = tempValue;
+    // bivariate values are not stored; they are read from the two source columns
+    @Override
+    public Object getValueAt(int row) {
+        return new Object[] {column1.getValueAt(row), column2.getValueAt(row)};
+    }
+
+    @Override
+    public int getValueCount() {
+        return column1.getValueCount();
     }
 
+    @Override
+    protected void addValue(Object value) { }
+
+    @Override
+    protected void ensureCapacity(int capacity) { }
+
+    @Override
+    protected void trimToSize() { }
+
+    @Override
+    protected boolean retainRows(int[] rows) { return false; }
+
     public Column getColumn1() { return column1; }
 
     public Column getColumn2() { return column2; }
@@ -14,6 +14,11 @@ public class BivariateColumnSummaryStats extends ColumnSummaryStats {
         // nothing to do because this is a merge of two existing columns
     }
 
+    @Override
+    void setStatistics(ColumnSummaryStats statistics) {
+        // nothing to do because this is a merge of two existing columns
+    }
+
     @Override
     public void calculateHistogram() {
         // nothing to do because this is linked to other columns
@@ -3,99 +3,268 @@ package gov.ornl.datatable;
 import java.util.*;
 
 public class CategoricalColumn extends Column {
+    private static final int INITIAL_CAPACITY = 1024;
 
+    // category dictionary (category ids are the indices in the categories list)
     private ArrayList<String> categories = new ArrayList<>();
+    private HashMap<String, Integer> categoryIDMap = new HashMap<>();
+
+    // primitive storage for the column values as category ids (the first valueCount entries are valid)
+    private int categoryIDs[] = new int[0];
+
     private CategoricalColumnSummaryStats summaryStats;
 
     public CategoricalColumn(String name, List<String> categories) {
         super(name);
-        if (categories != null && (categories.size() > 0)) {
-            this.categories.addAll(categories);
+        if (categories != null) {
+            for (String category : categories) {
+                addCategory(category);
+            }
         }
     }
 
-    public boolean setFocusContext(Tuple tuple, int elementIdx) {
-        getFocusTuples().add(tuple);
-        return true;
-    }
-
     public ArrayList<String> getCategories() {
         return categories;
     }
 
     public int getCategoryID(String category) {
-        return categories.indexOf(category);
+        Integer id = categoryIDMap.get(category);
+        return id == null ? -1 : id;
     }
 
     public String getCategory(int id) {
-        if (id > 0 && id < categories.size()) {
+        if (id >= 0 && id < categories.size()) {
             return categories.get(id);
         }
         return null;
     }
 
     public void addCategory(String category) {
-        if (!categories.contains(category)) {
+        if (!categoryIDMap.containsKey(category)) {
+            categoryIDMap.put(category, categories.size());
+            categories.add(category);
+        }
+    }
+
+    public String getValue(int row) {
+        return categories.get(categoryIDs[row]);
+    }
+
+    public int getCategoryID(int row) {
+        return categoryIDs[row];
+    }
+
+    @Override
+    public Object getValueAt(int row) {
+        return getValue(row);
+    }
+
+    public void addValue(String category) {
+        Integer id = categoryIDMap.get(category);
+        if (id == null) {
+            id = categories.size();
+            categoryIDMap.put(category, id);
             categories.add(category);
         }
+
+        if (valueCount == categoryIDs.length) {
+            ensureCapacity(Math.max(INITIAL_CAPACITY, categoryIDs.length * 2));
+        }
+        categoryIDs[valueCount++] = id;
+    }
+
+    @Override
+    protected void addValue(Object value) {
+        addValue((String)value);
+    }
+
+    // missing values are stored as the empty category (as blank tokens read from CSV files are)
+    @Override
+    protected void addMissingValue() {
+        addValue("");
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > categoryIDs.length) {
+            categoryIDs = Arrays.copyOf(categoryIDs, capacity);
+        }
+    }
+
+    @Override
+    protected void trimToSize() {
+        if (categoryIDs.length != valueCount) {
+            categoryIDs = Arrays.copyOf(categoryIDs, valueCount);
+        }
+    }
+
+    // keeps the values for the given rows and drops the categories that no longer appear (the remaining
+    // categories keep their order); the histogram of the column statistics is set from the category counts of
+    // the retained rows
+    @Override
+    protected boolean retainRows(int[] rows) {
+        int categoryCounts[] = new int[categories.size()];
+        for (int row : rows) {
+            categoryCounts[categoryIDs[row]]++;
+        }
+
+        int newIDs[] = new int[categories.size()];
+        ArrayList<String> newCategories = new ArrayList<>();
+        for (int id = 0; id < categoryCounts.length; id++) {
+            newIDs[id] = newCategories.size();
+            if (categoryCounts[id] > 0) {
+                categoryCounts[newCategories.size()] = categoryCounts[id];
+                newCategories.add(categories.get(id));
+            }
+        }
+
+        // rows are ascending so each id moves to a position at or before its current one
+        for (int i = 0; i < rows.length; i++) {
+            categoryIDs[i] = newIDs[categoryIDs[rows[i]]];
+        }
+        valueCount = rows.length;
+
+        if (newCategories.size() != categories.size()) {
+            categories.clear();
+            categoryIDMap.clear();
+            for (String category : newCategories) {
+                addCategory(category);
+            }
+        }
+
+        if (summaryStats == null) {
+            return false;
+        }
+        summaryStats.setHistogram(new CategoricalHistogram(getName(), categories,
+                Arrays.copyOf(categoryCounts, categories.size()), rows.length));
+        summaryStats.clearValues();
+        return true;
     }
 
     @Override
     public void calculateStatistics() {
+        setStatistics(prepareStatistics());
+    }
+
+    @Override
+    ColumnSummaryStats prepareStatistics() {
+        CategoricalColumnSummaryStats statistics = new CategoricalColumnSummaryStats(this, null);
+        statistics.setValues(getCategoryIDs());
+        return statistics;
+    }
+
+    @Override
+    void setStatistics(ColumnSummaryStats statistics) {
         if (summaryStats == null) {
-            summaryStats = new CategoricalColumnSummaryStats(this, null);
+            summaryStats = (CategoricalColumnSummaryStats)statistics;
+        } else {
+            summaryStats.setStatistics(statistics);
         }
-        summaryStats.setValues(getValues());
     }
 
-    public String[] getValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
+    // returns the column value storage directly as category ids (callers must not modify the array)
+    // returns a copy of the category id of each row (use getCategoryIDArray() to read them without copying)
+    public int[] getCategoryIDs() {
+        return Arrays.copyOf(categoryIDs, valueCount);
+    }
+
+    // returns the category id storage directly (it may be longer than the value count); callers must not modify
+    // the array
+    int[] getCategoryIDArray() {
+        return categoryIDs;
+    }
 
-        String values[] = new String[getDataTable().getTupleCount()];
-        for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-            values[i] = (String) getDataTable().getTuple(i).getElement(columnIndex);
+    // returns a bitmask of the ids of the given categories (categories not in the column are ignored)
+    public BitSet getCategoryIDs(Collection<String> categories) {
+        BitSet categoryIDMask = new BitSet(this.categories.size());
+        for (String category : categories) {
+            int id = getCategoryID(category);
+            if (id != -1) {
+                categoryIDMask.set(id);
+            }
+        }
+        return categoryIDMask;
+    }
+
+    public String[] getValues() {
+        String values[] = new String[valueCount];
+        for (int i = 0; i < valueCount; i++) {
+            values[i] = categories.get(categoryIDs[i]);
         }
 
         return values;
     }
 
     public List<String> getValuesAsList() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-        ArrayList<String> valuesList = new ArrayList<>();
-        for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-            valuesList.add((String) getDataTable().getTuple(i).getElement(columnIndex));
-        }
-        return valuesList;
+        return Arrays.asList(getValues());
     }
 
     public String[] getQueriedValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
+        return getQueriedValues(getDataTable().getActiveQuery());
+    }
 
-        Set<Tuple> queriedTuples = getDataTable().getActiveQuery().getQueriedTuples();
-        String values[] = new String[queriedTuples.size()];
+    public String[] getQueriedValues(Query query) {
+        BitSet queriedRows = query.getQueriedRows();
+        String values[] = new String[query.getQueriedTupleCount()];
 
         int counter = 0;
-        for (Tuple tuple : queriedTuples) {
-            values[counter++] = (String)tuple.getElement(columnIndex);
+        for (int row = queriedRows.nextSetBit(0); row >= 0; row = queriedRows.nextSetBit(row + 1)) {
+            values[counter++] = getValue(row);
         }
 
         return values;
     }
 
     public String[] getNonqueriedValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
+        return getNonqueriedValues(getDataTable().getActiveQuery());
+    }
 
-        Set<Tuple> nonqueriedTuples = getDataTable().getActiveQuery().getNonQueriedTuples();
-        String values[] = new String[nonqueriedTuples.size()];
+    public String[] getNonqueriedValues(Query query) {
+        BitSet queriedRows = query.getQueriedRows();
+        String values[] = new String[query.getNonQueriedTupleCount()];
 
         int counter = 0;
-        for (Tuple tuple : nonqueriedTuples) {
-            values[counter++] = (String)tuple.getElement(columnIndex);
+        int rowCount = query.getRowCount();
+        for (int row = queriedRows.nextClearBit(0); row < rowCount; row = queriedRows.nextClearBit(row + 1)) {
+            values[counter++] = getValue(row);
         }
 
         return values;
     }
 
+    public int[] getQueriedCategoryIDs() {
+        return getQueriedCategoryIDs(getDataTable().getActiveQuery());
+    }
+
+    public int[] getQueriedCategoryIDs(Query query) {
+        BitSet queriedRows = query.getQueriedRows();
+        int ids[] = new int[query.getQueriedTupleCount()];
+
+        int counter = 0;
+        for (int row = queriedRows.nextSetBit(0); row >= 0; row = queriedRows.nextSetBit(row + 1)) {
+            ids[counter++] = categoryIDs[row];
+        }
+
+        return ids;
+    }
+
+    public int[] getNonqueriedCategoryIDs() {
+        return getNonqueriedCategoryIDs(getDataTable().getActiveQuery());
+    }
+
+    public int[] getNonqueriedCategoryIDs(Query query) {
+        BitSet queriedRows = query.getQueriedRows();
+        int ids[] = new int[query.getNonQueriedTupleCount()];
+
+        int counter = 0;
+        int rowCount = query.getRowCount();
+        for (int row = queriedRows.nextClearBit(0); row < rowCount; row = queriedRows.nextClearBit(row + 1)) {
+            ids[counter++] = categoryIDs[row];
+        }
+
+        return ids;
+    }
+
     @Override
     public CategoricalColumnSummaryStats getStatistics() {
         return summaryStats;
@@ -3,15 +3,22 @@ package gov.ornl.datatable;
 import javafx.beans.property.SetProperty;
 import javafx.beans.property.SimpleSetProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.SetChangeListener;
 
+import java.util.BitSet;
 import java.util.Set;
 
 public class CategoricalColumnSelection extends ColumnSelection {
     private SetProperty<String> selectedCategories;
 
+    // bitmask of the ids of the selected categories (built lazily and discarded when the selection changes)
+    private BitSet selectedCategoryIDs;
+    private int selectedCategoryIDsCategoryCount;
+
     public CategoricalColumnSelection(CategoricalColumn column, Set<String> categories) {
         super(column);
         selectedCategories = new SimpleSetProperty<>(FXCollections.observableSet(categories));
+        selectedCategories.addListener((SetChangeListener<String>) change -> selectedCategoryIDs = null);
     }
 
     public SetProperty<String> selectedCategoriesProperty() {
@@ -26,6 +33,17 @@ public class CategoricalColumnSelection extends ColumnSelection {
         return selectedCategories.get();
     }
 
+    // returns the selected categories as a bitmask of category ids of the column (callers must not modify it)
+    public BitSet getSelectedCategoryIDs() {
+        // categories added to the column after the IDs were looked up may be selected too
+        int categoryCount = ((CategoricalColumn)getColumn()).getCategories().size();
+        if (selectedCategoryIDs == null || categoryCount != selectedCategoryIDsCategoryCount) {
+            selectedCategoryIDs = ((CategoricalColumn)getColumn()).getCategoryIDs(getSelectedCategories());
+            selectedCategoryIDsCategoryCount = categoryCount;
+        }
+        return selectedCategoryIDs;
+    }
+
     public void removeCategory(String category) {
         selectedCategories.remove(category);
     }
@@ -10,7 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 public class CategoricalColumnSummaryStats extends ColumnSummaryStats {
-    private String[] values;
+    private int[] categoryIDs;
 
 //    private MapProperty<String, Integer> categoryCountMap;
     private ObjectProperty<CategoricalHistogram> histogram;
@@ -18,7 +18,7 @@ public class CategoricalColumnSummaryStats extends ColumnSummaryStats {
     public CategoricalColumnSummaryStats(Column column, Query query) {
         super(column, 0, query);
 
-        values = null;
+        categoryIDs = null;
 //        categoryCountMap = new SimpleMapProperty<String, Integer>(FXCollections.observableHashMap());
     }
 
@@ -34,13 +34,49 @@ public class CategoricalColumnSummaryStats extends ColumnSummaryStats {
 //        return categoryCountMapProperty().get();
 //    }
 
-    public void setValues(String[] values) {
-        this.values = values;
+    public void setValues(int[] categoryIDs) {
+        this.categoryIDs = categoryIDs;
         calculateStatistics();
     }
 
-    public String[] getValues() {
-        return values;
+    public int[] getValues() {
+        if (categoryIDs == null) {
+            // statistics set from aggregates gather the category ids when they are first needed
+            categoryIDs = query == null ? categoricalColumn().getCategoryIDs() :
+                    nonquery ? categoricalColumn().getNonqueriedCategoryIDs(query) :
+                    categoricalColumn().getQueriedCategoryIDs(query);
+        }
+        return categoryIDs;
+    }
+
+    // drops the category ids of statistics that were set from aggregates maintained for the query result or the
+    // retained rows of the column
+    void clearValues() {
+        categoryIDs = null;
+    }
+
+    // sets the statistics of the rows the query does not select to the category counts of all rows of the column
+    // minus those of the query statistics without gathering the category ids of the rows; returns false if the
+    // statistics of all rows are not current with the rows and categories of the query
+    boolean setNonqueryStatistics(CategoricalColumnSummaryStats columnStats, CategoricalColumnSummaryStats queryStats,
+                                  int rowCount) {
+        CategoricalHistogram columnHistogram = columnStats.getHistogram();
+        CategoricalHistogram queryHistogram = queryStats.getHistogram();
+        int numCategories = getColumnCategories().size();
+        if (columnHistogram == null || columnHistogram.getTotalCount() != rowCount ||
+                columnHistogram.getNumCategories() != numCategories ||
+                queryHistogram.getNumCategories() != numCategories) {
+            return false;
+        }
+
+        int categoryCounts[] = new int[numCategories];
+        for (int i = 0; i < numCategories; i++) {
+            categoryCounts[i] = columnHistogram.getCategoryCount(i) - queryHistogram.getCategoryCount(i);
+        }
+        categoryIDs = null;
+        setHistogram(new CategoricalHistogram(column.getName(), getColumnCategories(), categoryCounts,
+                rowCount - queryHistogram.getTotalCount()));
+        return true;
     }
 
     private CategoricalColumn categoricalColumn() {
@@ -60,6 +96,14 @@ public class CategoricalColumnSummaryStats extends ColumnSummaryStats {
 //        }
     }
 
+    @Override
+    void setStatistics(ColumnSummaryStats statistics) {
+        CategoricalColumnSummaryStats stats = (CategoricalColumnSummaryStats)statistics;
+        categoryIDs = stats.categoryIDs;
+        nonquery = stats.nonquery;
+        setHistogram(stats.getHistogram());
+    }
+
     public CategoricalHistogram getHistogram() { return histogramProperty().get(); }
 
     public void setHistogram(CategoricalHistogram histogram) { histogramProperty().set(histogram); }
@@ -73,6 +117,6 @@ public class CategoricalColumnSummaryStats extends ColumnSummaryStats {
 
     @Override
     public void calculateHistogram() {
-        setHistogram(new CategoricalHistogram(column.getName(), categoricalColumn().getCategories(), values));
+        setHistogram(new CategoricalHistogram(column.getName(), categoricalColumn().getCategories(), getValues()));
     }
 }
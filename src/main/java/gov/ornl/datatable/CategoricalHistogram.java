@@ -1,26 +1,49 @@
 package gov.ornl.datatable;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
 public class CategoricalHistogram extends Histogram {
-    private String values[];
+    // category ids of the values (indices into categories)
+    private int categoryIDs[];
     private List<String> categories;
-    private HashMap<String, Integer> categoryCounts = new HashMap<>();
+    private int categoryCounts[];
+    private int totalCount;
+    private HashMap<String, Integer> categoryIndexMap;
 
-    public CategoricalHistogram(String name, List<String> categories, String values[]) {
+    public CategoricalHistogram(String name, List<String> categories, int categoryIDs[]) {
         super(name);
-        this.categories = categories;
-        this.values = values;
+        // copy the categories as views reorder the histogram categories for display
+        this.categories = new ArrayList<>(categories);
+        this.categoryIDs = categoryIDs;
         calculateStatistics();
     }
 
+    // creates a histogram from category counts that were accumulated elsewhere (indexed by category id)
+    public CategoricalHistogram(String name, List<String> categories, int categoryCounts[], int totalCount) {
+        super(name);
+        this.categories = new ArrayList<>(categories);
+        this.categoryCounts = categoryCounts;
+        this.totalCount = totalCount;
+    }
+
     public List<String> getCategories() {
         return categories;
     }
 
     public int getCategoryCount(String category) {
-        return categoryCounts.get(category);
+        if (categoryIndexMap == null) {
+            categoryIndexMap = new HashMap<>(categoryCounts.length * 2);
+            for (int i = 0; i < categoryCounts.length; i++) {
+                categoryIndexMap.put(categories.get(i), i);
+            }
+        }
+        return categoryCounts[categoryIndexMap.get(category)];
+    }
+
+    public int getCategoryCount(int categoryID) {
+        return categoryCounts[categoryID];
     }
 
     public int getNumCategories() {
@@ -28,23 +51,19 @@ public class CategoricalHistogram extends Histogram {
     }
 
     public int getTotalCount() {
-        return values.length;
+        return totalCount;
     }
 
-    public void setValues (String values[]) {
-        this.values = values;
+    public void setValues (int categoryIDs[]) {
+        this.categoryIDs = categoryIDs;
         calculateStatistics();
     }
 
     public void calculateStatistics() {
-        categoryCounts.clear();
-        for (String category : categories) {
-            categoryCounts.put(category, 0);
-        }
-
-        for (String value : values) {
-            int count = categoryCounts.get(value);
-            categoryCounts.put(value, count+1);
+        categoryCounts = new int[categories.size()];
+        for (int id : categoryIDs) {
+            categoryCounts[id]++;
         }
+        totalCount = categoryIDs.length;
     }
 }
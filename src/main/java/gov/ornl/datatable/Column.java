@@ -5,30 +5,77 @@ import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 
 public abstract class Column {
     protected DataTable dataModel;
     private StringProperty name;
     private BooleanProperty enabled;
 
-    private HashSet<Tuple> focusTuples = new HashSet<>();
-    private HashSet<Tuple> lowerContextTuples = new HashSet<>();
-    private HashSet<Tuple> upperContextTuples = new HashSet<>();
+    // number of row values held in the column value storage
+    protected int valueCount = 0;
+
+    // focus states of rows with respect to the focus extents of the column
+    public static final byte FOCUS = 0;
+    public static final byte LOWER_CONTEXT = 1;
+    public static final byte UPPER_CONTEXT = 2;
+
+    // focus state of each row and the number of rows in focus
+    protected byte focusStates[] = new byte[0];
+    protected int focusRowCount = 0;
 
     public Column(String name) {
         setName(name);
         setEnabled(true);
     }
 
-    public abstract boolean setFocusContext(Tuple tuple, int elementIdx);
+    public byte getFocusState(int row) { return focusStates[row]; }
+
+    public boolean isRowInFocus(int row) { return focusStates[row] == FOCUS; }
+
+    public boolean isRowInLowerContext(int row) { return focusStates[row] == LOWER_CONTEXT; }
 
-    public Set<Tuple> getFocusTuples() { return focusTuples; }
+    public boolean isRowInUpperContext(int row) { return focusStates[row] == UPPER_CONTEXT; }
+
+    public int getFocusRowCount() { return focusRowCount; }
+
+    // computes the focus state of every row (all rows are in focus for columns without focus extents)
+    protected void calculateFocusStates() {
+        focusStates = new byte[getValueCount()];
+        focusRowCount = focusStates.length;
+    }
 
-    public Set<Tuple> getLowerContextTuples() { return lowerContextTuples; }
+    // computes the focus states of the rows appended from firstNewRow on (the states of the earlier rows must have
+    // been calculated); appended rows are in focus for columns without focus extents
+    protected void appendFocusStates(int firstNewRow) {
+        focusStates = Arrays.copyOf(focusStates, getValueCount());
+        focusRowCount += focusStates.length - firstNewRow;
+    }
 
-    public Set<Tuple> getUpperContextTuples() { return upperContextTuples; }
+    // updates the focus states after the focus extents of the column changed (the states must have been
+    // calculated for the current rows); nothing changes for columns without focus extents
+    protected void updateFocusStates() { }
+
+    // sets the focus state of a row and tells the data table if the row moved in or out of focus
+    protected void setFocusState(int row, byte focusState) {
+        byte previousFocusState = focusStates[row];
+        if (previousFocusState != focusState) {
+            focusStates[row] = focusState;
+            if (previousFocusState == FOCUS) {
+                focusRowCount--;
+                if (getEnabled() && dataModel != null) {
+                    dataModel.columnFocusStateChanged(row, false);
+                }
+            } else if (focusState == FOCUS) {
+                focusRowCount++;
+                if (getEnabled() && dataModel != null) {
+                    dataModel.columnFocusStateChanged(row, true);
+                }
+            }
+        }
+    }
 
     protected void setDataModel(DataTable dataModel) {
         this.dataModel = dataModel;
@@ -40,8 +87,60 @@ public abstract class Column {
 
     public abstract void calculateStatistics();
 
+    // calculates the statistics of the column values into new statistics that are not observed yet, so the
+    // statistics of several columns can be calculated in parallel (null if the column has no such statistics)
+    ColumnSummaryStats prepareStatistics() {
+        return null;
+    }
+
+    // sets the statistics of the column to statistics returned by prepareStatistics() on the thread that owns the
+    // data table (the statistics are calculated here if there are none)
+    void setStatistics(ColumnSummaryStats statistics) {
+        calculateStatistics();
+    }
+
     public abstract ColumnSummaryStats getStatistics();
 
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    // returns the (boxed) value stored for the given row
+    public abstract Object getValueAt(int row);
+
+    // appends a boxed value to the column value storage (used when loading tuple elements)
+    protected abstract void addValue(Object value);
+
+    // appends the value the column stores for rows that have no element for it (tuples added with fewer elements
+    // than the data table has enabled and disabled columns)
+    protected void addMissingValue() {
+        addValue((Object)null);
+    }
+
+    // grows the column value storage so it can hold at least capacity values without reallocating
+    protected abstract void ensureCapacity(int capacity);
+
+    // releases any unused capacity in the column value storage
+    protected abstract void trimToSize();
+
+    // keeps only the values for the given rows (sorted in ascending order) and discards all others; returns true
+    // if the column statistics were updated for the retained rows (they must otherwise be calculated again)
+    protected abstract boolean retainRows(int[] rows);
+
+    // updates the column statistics for the values appended from firstNewRow on; returns true if they were updated
+    // from the previous statistics (they must otherwise be calculated again)
+    protected boolean appendRows(int firstNewRow) {
+        return false;
+    }
+
+    // moves the column value storage to a memory mapped file in directory; columns without fixed width values
+    // keep their heap storage
+    protected void useMappedStorage(File directory) throws IOException { }
+
+    // closes the memory mapped storage of the column values when the column is removed from its data table (the
+    // column holds no values afterwards); columns with heap storage keep their values
+    protected void closeMappedStorage() { }
+
     public void setEnabled(boolean enabled) {
         enabledProperty().set(enabled);
     }
@@ -0,0 +1,392 @@
+package gov.ornl.datatable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The selections of a query on one column compiled into a type-specialized test over the primitive
+ * column storage.  Predicates evaluate blocks of rows 64 at a time into the words of a row bitset
+ * so the inner loops do not branch on column types, casts, or selection lookups.  The ranges of
+ * several selections on a double or temporal column are merged into sorted, non-overlapping
+ * intervals.  The fraction of rows a predicate passes is estimated from the column histogram so
+ * queries can test the most selective predicates first.
+ */
+abstract class ColumnPredicate {
+    protected Column column;
+
+    protected ColumnPredicate(Column column) {
+        this.column = column;
+    }
+
+    public Column getColumn() {
+        return column;
+    }
+
+    // returns true if the row passes the column selections
+    abstract boolean test(int row);
+
+    // returns the estimated fraction of rows that pass the column selections (1 if it cannot be estimated)
+    abstract double estimateSelectivity();
+
+    // returns a mask with bit i set if row firstRow + i passes the column selections (rowCount rows, at most 64)
+    abstract long testWord(int firstRow, int rowCount);
+
+    // clears the bits of the rows that do not pass the column selections in the words from startWord to
+    // endWord - 1 (words that are already zero are skipped)
+    void evaluate(long words[], int startWord, int endWord, int rowCount) {
+        for (int iword = startWord; iword < endWord; iword++) {
+            long word = words[iword];
+            if (word != 0L) {
+                int firstRow = iword << 6;
+                words[iword] = word & testWord(firstRow, Math.min(64, rowCount - firstRow));
+            }
+        }
+    }
+
+    // compiles the selections of a column (the list must not be empty)
+    static ColumnPredicate compile(Column column, List<ColumnSelection> columnSelections) {
+        if (column instanceof DoubleColumn) {
+            double intervals[][] = new double[columnSelections.size()][];
+            for (int i = 0; i < intervals.length; i++) {
+                DoubleColumnSelectionRange selectionRange = (DoubleColumnSelectionRange)columnSelections.get(i);
+                intervals[i] = new double[] {selectionRange.getMinValue(), selectionRange.getMaxValue()};
+            }
+            return new DoubleRangePredicate((DoubleColumn)column, mergeIntervals(intervals));
+        } else if (column instanceof TemporalColumn) {
+            Instant intervals[][] = new Instant[columnSelections.size()][];
+            for (int i = 0; i < intervals.length; i++) {
+                TemporalColumnSelectionRange selectionRange = (TemporalColumnSelectionRange)columnSelections.get(i);
+                intervals[i] = new Instant[] {selectionRange.getStartInstant(), selectionRange.getEndInstant()};
+            }
+            return new TemporalRangePredicate((TemporalColumn)column, mergeIntervals(intervals));
+        } else if (column instanceof CategoricalColumn) {
+            BitSet categoryIDMask = new BitSet();
+            for (ColumnSelection columnSelection : columnSelections) {
+                categoryIDMask.or(((CategoricalColumnSelection)columnSelection).getSelectedCategoryIDs());
+            }
+            return new CategoryPredicate((CategoricalColumn)column, categoryIDMask);
+        }
+        return new SelectionPredicate(column, columnSelections);
+    }
+
+    // sorts the predicates by their estimated selectivity (ascending, or descending if descending is true); the
+    // selectivity of each predicate is estimated once before the sort instead of in every comparison
+    static void sortBySelectivity(List<ColumnPredicate> predicates, boolean descending) {
+        SelectivityEstimate estimates[] = new SelectivityEstimate[predicates.size()];
+        for (int i = 0; i < estimates.length; i++) {
+            estimates[i] = new SelectivityEstimate(predicates.get(i));
+        }
+        Arrays.sort(estimates, descending ? (a, b) -> Double.compare(b.selectivity, a.selectivity) :
+                (a, b) -> Double.compare(a.selectivity, b.selectivity));
+        for (int i = 0; i < estimates.length; i++) {
+            predicates.set(i, estimates[i].predicate);
+        }
+    }
+
+    private static final class SelectivityEstimate {
+        private final ColumnPredicate predicate;
+        private final double selectivity;
+
+        SelectivityEstimate(ColumnPredicate predicate) {
+            this.predicate = predicate;
+            this.selectivity = predicate.estimateSelectivity();
+        }
+    }
+
+    // sorts closed intervals by their start and merges overlapping intervals (intervals with a start after
+    // their end are empty and dropped); returns the merged starts and ends in two arrays
+    static double[][] mergeIntervals(double intervals[][]) {
+        double sorted[][] = Arrays.stream(intervals).filter(interval -> interval[0] <= interval[1])
+                .sorted((a, b) -> Double.compare(a[0], b[0])).toArray(double[][]::new);
+
+        ArrayList<double[]> merged = new ArrayList<>();
+        for (double interval[] : sorted) {
+            double last[] = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && interval[0] <= last[1]) {
+                last[1] = Math.max(last[1], interval[1]);
+            } else {
+                merged.add(new double[] {interval[0], interval[1]});
+            }
+        }
+
+        double startsAndEnds[][] = new double[2][merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            startsAndEnds[0][i] = merged.get(i)[0];
+            startsAndEnds[1][i] = merged.get(i)[1];
+        }
+        return startsAndEnds;
+    }
+
+    // merges closed intervals of instants like mergeIntervals(double[][]) (instants keep their nanoseconds)
+    static Instant[][] mergeIntervals(Instant intervals[][]) {
+        Instant sorted[][] = Arrays.stream(intervals).filter(interval -> !interval[0].isAfter(interval[1]))
+                .sorted((a, b) -> a[0].compareTo(b[0])).toArray(Instant[][]::new);
+
+        ArrayList<Instant[]> merged = new ArrayList<>();
+        for (Instant interval[] : sorted) {
+            Instant last[] = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !interval[0].isAfter(last[1])) {
+                last[1] = interval[1].isAfter(last[1]) ? interval[1] : last[1];
+            } else {
+                merged.add(new Instant[] {interval[0], interval[1]});
+            }
+        }
+
+        Instant startsAndEnds[][] = new Instant[2][merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            startsAndEnds[0][i] = merged.get(i)[0];
+            startsAndEnds[1][i] = merged.get(i)[1];
+        }
+        return startsAndEnds;
+    }
+
+    // returns the number of values in a histogram bin that fall inside the intervals assuming the values are
+    // spread uniformly over the bin
+    static double estimateBinCount(int binCount, double binLowerBound, double binUpperBound, double starts[], double ends[]) {
+        double binWidth = binUpperBound - binLowerBound;
+        double count = 0.;
+        for (int i = 0; i < starts.length; i++) {
+            if (binWidth > 0.) {
+                double overlap = Math.min(ends[i], binUpperBound) - Math.max(starts[i], binLowerBound);
+                if (overlap > 0.) {
+                    count += binCount * Math.min(1., overlap / binWidth);
+                }
+            } else if (starts[i] <= binLowerBound && ends[i] >= binUpperBound) {
+                count += binCount;
+            }
+        }
+        return count;
+    }
+
+    // one or more value ranges on a double column (NaN values never pass)
+    static final class DoubleRangePredicate extends ColumnPredicate {
+        private final double minValues[];
+        private final double maxValues[];
+
+        DoubleRangePredicate(DoubleColumn column, double minAndMaxValues[][]) {
+            super(column);
+            minValues = minAndMaxValues[0];
+            maxValues = minAndMaxValues[1];
+        }
+
+        @Override
+        double estimateSelectivity() {
+            DoubleColumnSummaryStats summaryStats = ((DoubleColumn)column).getStatistics();
+            DoubleHistogram histogram = summaryStats == null ? null : summaryStats.getHistogram();
+            if (histogram == null || column.getValueCount() == 0) {
+                return 1.;
+            }
+            double count = 0.;
+            for (int i = 0; i < histogram.getNumBins(); i++) {
+                count += estimateBinCount(histogram.getBinCount(i), histogram.getBinLowerBound(i),
+                        histogram.getBinUpperBound(i), minValues, maxValues);
+            }
+            return count / column.getValueCount();
+        }
+
+        @Override
+        boolean test(int row) {
+            double value = ((DoubleColumn)column).getValue(row);
+            for (int i = 0; i < minValues.length; i++) {
+                if (value >= minValues[i] && value <= maxValues[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long testWord(int firstRow, int rowCount) {
+            double values[] = ((DoubleColumn)column).getValueArray();
+            if (values == null) {
+                long mask = 0L;
+                for (int i = 0; i < rowCount; i++) {
+                    mask |= (test(firstRow + i) ? 1L : 0L) << i;
+                }
+                return mask;
+            }
+
+            long mask = 0L;
+            if (minValues.length == 1) {
+                double minValue = minValues[0];
+                double maxValue = maxValues[0];
+                for (int i = 0; i < rowCount; i++) {
+                    double value = values[firstRow + i];
+                    mask |= ((value >= minValue) & (value <= maxValue) ? 1L : 0L) << i;
+                }
+            } else {
+                for (int i = 0; i < rowCount; i++) {
+                    double value = values[firstRow + i];
+                    boolean pass = false;
+                    for (int j = 0; j < minValues.length; j++) {
+                        pass |= (value >= minValues[j]) & (value <= maxValues[j]);
+                    }
+                    mask |= (pass ? 1L : 0L) << i;
+                }
+            }
+            return mask;
+        }
+    }
+
+    // one or more ranges of instants on a temporal column; the rows of columns without sub-millisecond values are
+    // tested against the whole epoch milliseconds the ranges cover
+    static final class TemporalRangePredicate extends ColumnPredicate {
+        private final Instant startInstants[];
+        private final Instant endInstants[];
+        private final long startValues[];
+        private final long endValues[];
+
+        TemporalRangePredicate(TemporalColumn column, Instant startAndEndInstants[][]) {
+            super(column);
+            startInstants = startAndEndInstants[0];
+            endInstants = startAndEndInstants[1];
+            startValues = new long[startInstants.length];
+            endValues = new long[startValues.length];
+            for (int i = 0; i < startValues.length; i++) {
+                // the first whole millisecond that is not before the start
+                startValues[i] = startInstants[i].toEpochMilli() + (startInstants[i].getNano() % 1000000 != 0 ? 1 : 0);
+                endValues[i] = endInstants[i].toEpochMilli();
+            }
+        }
+
+        @Override
+        double estimateSelectivity() {
+            TemporalColumnSummaryStats summaryStats = ((TemporalColumn)column).getStatistics();
+            TemporalHistogram histogram = summaryStats == null ? null : summaryStats.getHistogram();
+            if (histogram == null || column.getValueCount() == 0) {
+                return 1.;
+            }
+            double starts[] = new double[startValues.length];
+            double ends[] = new double[endValues.length];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = startInstants[i].toEpochMilli();
+                ends[i] = endInstants[i].toEpochMilli();
+            }
+            double count = 0.;
+            for (int i = 0; i < histogram.getNumBins(); i++) {
+                count += estimateBinCount(histogram.getBinCount(i), histogram.getBinLowerBound(i).toEpochMilli(),
+                        histogram.getBinUpperBound(i).toEpochMilli(), starts, ends);
+            }
+            return count / column.getValueCount();
+        }
+
+        @Override
+        boolean test(int row) {
+            TemporalColumn temporalColumn = (TemporalColumn)column;
+            for (int i = 0; i < startInstants.length; i++) {
+                if (temporalColumn.compareValue(row, startInstants[i]) >= 0 &&
+                        temporalColumn.compareValue(row, endInstants[i]) <= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long testWord(int firstRow, int rowCount) {
+            TemporalColumn temporalColumn = (TemporalColumn)column;
+            long values[] = temporalColumn.getEpochMilliArray();
+            long mask = 0L;
+            if (values == null || temporalColumn.hasSubMillisecondValues()) {
+                for (int i = 0; i < rowCount; i++) {
+                    mask |= (test(firstRow + i) ? 1L : 0L) << i;
+                }
+            } else {
+                for (int i = 0; i < rowCount; i++) {
+                    long value = values[firstRow + i];
+                    boolean pass = false;
+                    for (int j = 0; j < startValues.length; j++) {
+                        pass |= (value >= startValues[j]) & (value <= endValues[j]);
+                    }
+                    mask |= (pass ? 1L : 0L) << i;
+                }
+            }
+            return mask;
+        }
+    }
+
+    // a mask of selected category ids tested against the category id codes of the rows
+    static final class CategoryPredicate extends ColumnPredicate {
+        private final long categoryIDMask[];
+        private final int categoryIDs[];
+
+        CategoryPredicate(CategoricalColumn column, BitSet categoryIDMask) {
+            super(column);
+            // pad the mask to cover every category id of the column so the test needs no bounds check
+            this.categoryIDMask = Arrays.copyOf(categoryIDMask.toLongArray(), (column.getCategories().size() + 63) >>> 6);
+            categoryIDs = column.getCategoryIDArray();
+        }
+
+        @Override
+        double estimateSelectivity() {
+            CategoricalColumnSummaryStats summaryStats = ((CategoricalColumn)column).getStatistics();
+            CategoricalHistogram histogram = summaryStats == null ? null : summaryStats.getHistogram();
+            if (histogram == null || histogram.getTotalCount() == 0) {
+                return 1.;
+            }
+            int count = 0;
+            for (int categoryID = 0; categoryID < histogram.getNumCategories(); categoryID++) {
+                if (((categoryIDMask[categoryID >>> 6] >>> categoryID) & 1L) != 0L) {
+                    count += histogram.getCategoryCount(categoryID);
+                }
+            }
+            return (double)count / histogram.getTotalCount();
+        }
+
+        @Override
+        boolean test(int row) {
+            int categoryID = categoryIDs[row];
+            return ((categoryIDMask[categoryID >>> 6] >>> categoryID) & 1L) != 0L;
+        }
+
+        @Override
+        long testWord(int firstRow, int rowCount) {
+            long mask = 0L;
+            for (int i = 0; i < rowCount; i++) {
+                int categoryID = categoryIDs[firstRow + i];
+                mask |= ((categoryIDMask[categoryID >>> 6] >>> categoryID) & 1L) << i;
+            }
+            return mask;
+        }
+    }
+
+    // the selections of columns without primitive storage tested with the selections themselves
+    static final class SelectionPredicate extends ColumnPredicate {
+        private final List<ColumnSelection> columnSelections;
+
+        SelectionPredicate(Column column, List<ColumnSelection> columnSelections) {
+            super(column);
+            this.columnSelections = columnSelections;
+        }
+
+        @Override
+        double estimateSelectivity() {
+            return 1.;
+        }
+
+        @Override
+        boolean test(int row) {
+            if (column instanceof ImageColumn) {
+                Object value = ((ImageColumn)column).getValue(row);
+                for (ColumnSelection columnSelection : columnSelections) {
+                    if (((ImageColumnSelection)columnSelection).getSelectedImagePairs().contains(value)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long testWord(int firstRow, int rowCount) {
+            long mask = 0L;
+            for (int i = 0; i < rowCount; i++) {
+                mask |= (test(firstRow + i) ? 1L : 0L) << i;
+            }
+            return mask;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package gov.ornl.datatable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row bitmaps of column selections shared by the queries of a data table.  A bitmap is keyed by the
+ * column of the selection and its current range or set of categories, so queries with equal
+ * selections share one bitmap, and a query is evaluated again from the bitmaps of its selections
+ * without scanning the column values if they are cached.  The least recently used bitmaps are
+ * dropped once the cache holds its capacity, and all bitmaps are dropped when the rows change.
+ */
+class ColumnSelectionCache {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private int capacity;
+    // data table state the bitmaps were evaluated for
+    private Object dataState = null;
+    private LinkedHashMap<List<Object>, long[]> rowBitmaps;
+
+    ColumnSelectionCache(int capacity) {
+        this.capacity = capacity;
+        rowBitmaps = new LinkedHashMap<List<Object>, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, long[]> eldest) {
+                return size() > ColumnSelectionCache.this.capacity;
+            }
+        };
+    }
+
+    int getSize() {
+        return rowBitmaps.size();
+    }
+
+    void clear() {
+        rowBitmaps.clear();
+    }
+
+    // returns the words of the bitmap of the first rowCount rows that pass the selection (callers must not
+    // modify them); the cache is emptied first if the data table state differs from the cached bitmaps
+    long[] getRowBitmap(ColumnSelection columnSelection, int rowCount, Object dataState) {
+        if (!dataState.equals(this.dataState)) {
+            rowBitmaps.clear();
+            this.dataState = dataState;
+        }
+
+        List<Object> key = createKey(columnSelection);
+        long words[] = rowBitmaps.get(key);
+        if (words == null) {
+            ColumnPredicate predicate = ColumnPredicate.compile(columnSelection.getColumn(),
+                    Collections.singletonList(columnSelection));
+            words = new long[(rowCount + 63) >>> 6];
+            for (int iword = 0; iword < words.length; iword++) {
+                int firstRow = iword << 6;
+                words[iword] = predicate.testWord(firstRow, Math.min(64, rowCount - firstRow));
+            }
+            rowBitmaps.put(key, words);
+        }
+        return words;
+    }
+
+    // a selection is identified by its column and a copy of its current range or categories
+    private static List<Object> createKey(ColumnSelection columnSelection) {
+        Object criteria;
+        if (columnSelection instanceof DoubleColumnSelectionRange) {
+            DoubleColumnSelectionRange selectionRange = (DoubleColumnSelectionRange)columnSelection;
+            criteria = Arrays.asList(selectionRange.getMinValue(), selectionRange.getMaxValue());
+        } else if (columnSelection instanceof TemporalColumnSelectionRange) {
+            TemporalColumnSelectionRange selectionRange = (TemporalColumnSelectionRange)columnSelection;
+            criteria = Arrays.asList(selectionRange.getStartInstant(), selectionRange.getEndInstant());
+        } else if (columnSelection instanceof CategoricalColumnSelection) {
+            criteria = new HashSet<>(((CategoricalColumnSelection)columnSelection).getSelectedCategories());
+        } else if (columnSelection instanceof ImageColumnSelection) {
+            criteria = new HashSet<>(((ImageColumnSelection)columnSelection).getSelectedImagePairs());
+        } else {
+            criteria = columnSelection;
+        }
+        return Arrays.asList(columnSelection.getColumn(), criteria);
+    }
+}
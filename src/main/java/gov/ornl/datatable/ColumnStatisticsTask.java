@@ -0,0 +1,61 @@
+package gov.ornl.datatable;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the statistics calculation of each of a number of columns on the common fork/join pool.  The
+ * statistics of a column do not depend on the other columns, so the columns are split into halves that
+ * are calculated in parallel down to single columns.  The calculations only fill statistics that are not
+ * observed yet; the caller sets them on the columns or query afterwards in one pass on the thread that
+ * owns the data table.  The time the calculation of each column took is recorded for diagnostics.
+ */
+class ColumnStatisticsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private IntConsumer calculation;
+    private long times[];
+    private int startColumn;
+    private int endColumn;
+
+    private ColumnStatisticsTask(IntConsumer calculation, long times[], int startColumn, int endColumn) {
+        this.calculation = calculation;
+        this.times = times;
+        this.startColumn = startColumn;
+        this.endColumn = endColumn;
+    }
+
+    // runs the calculation for each column index from 0 to columnCount - 1 and returns the nanoseconds each took;
+    // the columns are calculated in parallel once they hold parallelValueThreshold values in total (rowCount
+    // values per column)
+    static long[] invoke(int columnCount, int rowCount, int parallelValueThreshold, IntConsumer calculation) {
+        long times[] = new long[columnCount];
+        if (columnCount > 1 && (long)columnCount * rowCount >= parallelValueThreshold &&
+                ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(new ColumnStatisticsTask(calculation, times, 0, columnCount));
+        } else {
+            for (int i = 0; i < columnCount; i++) {
+                calculate(calculation, times, i);
+            }
+        }
+        return times;
+    }
+
+    private static void calculate(IntConsumer calculation, long times[], int column) {
+        long start = System.nanoTime();
+        calculation.accept(column);
+        times[column] = System.nanoTime() - start;
+    }
+
+    @Override
+    protected void compute() {
+        if (endColumn - startColumn > 1) {
+            int middleColumn = (startColumn + endColumn) >>> 1;
+            invokeAll(new ColumnStatisticsTask(calculation, times, startColumn, middleColumn),
+                    new ColumnStatisticsTask(calculation, times, middleColumn, endColumn));
+        } else {
+            calculate(calculation, times, startColumn);
+        }
+    }
+}
@@ -6,6 +6,8 @@ public abstract class ColumnSummaryStats {
 
     protected Column column;
     protected Query query = null;
+    // true if these are statistics of the rows the query does not select
+    protected boolean nonquery = false;
     protected int numHistogramBins = DEFAULT_NUM_HISTOGRAM_BINS;
 
     public ColumnSummaryStats(Column column, int numHistogramBins, Query query) {
@@ -18,8 +20,24 @@ public abstract class ColumnSummaryStats {
         return column;
     }
 
+    // moves the statistics to another query (used when a query result computed separately is published)
+    protected void setQuery(Query query) {
+        this.query = query;
+    }
+
+    // marks the statistics as statistics of the rows the query does not select (values that are gathered when they
+    // are first needed are then gathered from those rows)
+    void setNonquery(boolean nonquery) {
+        this.nonquery = nonquery;
+    }
+
     public abstract void calculateStatistics();
 
+    // sets the statistics to statistics of the same column calculated separately (in parallel with other columns
+    // into statistics that are not observed yet) and calculates the statistics that relate the column to other
+    // columns
+    abstract void setStatistics(ColumnSummaryStats statistics);
+
     public abstract void calculateHistogram();
 
     public void setNumHistogramBins(int numBins) {
@@ -0,0 +1,241 @@
+package gov.ornl.datatable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Co-moments of the double columns of a data table over a set of rows from which the correlation
+ * coefficient of any two columns is derived.  The matrix keeps the row count, the sum of the values of
+ * each column and the sum of the products of the values of every pair of columns (shifted by a value of
+ * the column to keep the sums accurate), so one pass over the rows correlates all columns at once instead
+ * of one pass over two value arrays per pair.  The pass gathers the values of a block of rows column by
+ * column before the pair sums of the block are accumulated, and large tables are split into blocks of
+ * rows summed in parallel.  The sums of disjoint row sets are added and subtracted, so the matrix of the
+ * queried rows is updated from the rows that entered or left the query, and the matrix of the rows that
+ * are not queried is the matrix of all rows minus the matrix of the queried rows.  Columns with NaN values
+ * are not correlated by the matrix.
+ */
+class CorrelationMatrix {
+    // number of rows whose values are gathered before their pair sums are accumulated
+    private static final int BLOCK_ROWS = 256;
+    // number of rows summed by a parallel task without splitting it further
+    private static final int TASK_ROWS = 64 * BLOCK_ROWS;
+    // relative size of the rounding error in the second central moment calculated from the sums
+    private static final double RELATIVE_ROUNDING_ERROR = 1e-12;
+
+    private DoubleColumn columns[];
+    private HashMap<Column, Integer> columnIndices;
+    private double shifts[];
+    // columns with NaN values in the rows the shifts were taken from
+    private boolean nanColumns[];
+
+    private int rowCount = 0;
+    private double sums[];
+    // sums of the products of each pair of columns i <= j at index i * columns.length - i * (i - 1) / 2 + j - i
+    private double productSums[];
+
+    private CorrelationMatrix(DoubleColumn columns[], HashMap<Column, Integer> columnIndices, double shifts[],
+                              boolean nanColumns[]) {
+        this.columns = columns;
+        this.columnIndices = columnIndices;
+        this.shifts = shifts;
+        this.nanColumns = nanColumns;
+        sums = new double[columns.length];
+        productSums = new double[columns.length * (columns.length + 1) / 2];
+    }
+
+    // returns the matrix of the double columns over the first rowCount rows of the data table (the columns are
+    // summed in parallel blocks of rows from parallelRowThreshold rows on)
+    static CorrelationMatrix create(List<Column> columns, int rowCount, int parallelRowThreshold) {
+        ArrayList<DoubleColumn> doubleColumns = new ArrayList<>();
+        HashMap<Column, Integer> columnIndices = new HashMap<>();
+        for (Column column : columns) {
+            if (column instanceof DoubleColumn) {
+                columnIndices.put(column, doubleColumns.size());
+                doubleColumns.add((DoubleColumn)column);
+            }
+        }
+
+        // each column is shifted by its first value
+        double shifts[] = new double[doubleColumns.size()];
+        boolean nanColumns[] = new boolean[doubleColumns.size()];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = rowCount > 0 ? doubleColumns.get(i).getValue(0) : 0.;
+            if (Double.isNaN(shifts[i])) {
+                shifts[i] = 0.;
+            }
+        }
+
+        CorrelationMatrix matrix = new CorrelationMatrix(doubleColumns.toArray(new DoubleColumn[doubleColumns.size()]),
+                columnIndices, shifts, nanColumns);
+        matrix.add(matrix.sumRows(null, rowCount, parallelRowThreshold));
+        // NaN values leave NaN sums for the columns they are in
+        for (int i = 0; i < nanColumns.length; i++) {
+            nanColumns[i] = Double.isNaN(matrix.sums[i]);
+        }
+        return matrix;
+    }
+
+    // returns an empty matrix of the same columns and shifts
+    CorrelationMatrix createEmpty() {
+        return new CorrelationMatrix(columns, columnIndices, shifts, nanColumns);
+    }
+
+    // returns a copy of the matrix that is updated independently
+    CorrelationMatrix copy() {
+        CorrelationMatrix matrix = createEmpty();
+        matrix.add(this);
+        return matrix;
+    }
+
+    // returns a matrix with the same columns and shifts over the rows of the first rowCount rows that are in
+    // rows (all rows if rows is null)
+    CorrelationMatrix sumRows(BitSet rows, int rowCount, int parallelRowThreshold) {
+        if (rowCount >= parallelRowThreshold && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return ForkJoinPool.commonPool().invoke(new RowBlockSumTask(this, rows, 0, rowCount));
+        }
+        CorrelationMatrix matrix = createEmpty();
+        matrix.addRows(rows, 0, rowCount);
+        return matrix;
+    }
+
+    // adds the sums of the rows from startRow to endRow - 1 that are in rows (all rows if rows is null)
+    private void addRows(BitSet rows, int startRow, int endRow) {
+        int numColumns = columns.length;
+        double blockValues[][] = new double[numColumns][BLOCK_ROWS];
+        int blockRows[] = new int[BLOCK_ROWS];
+
+        int row = rows == null ? startRow : rows.nextSetBit(startRow);
+        while (row >= 0 && row < endRow) {
+            // gather the next block of rows
+            int blockSize = 0;
+            while (blockSize < BLOCK_ROWS && row >= 0 && row < endRow) {
+                blockRows[blockSize++] = row;
+                row = rows == null ? row + 1 : rows.nextSetBit(row + 1);
+            }
+            for (int i = 0; i < numColumns; i++) {
+                DoubleColumn column = columns[i];
+                double shift = shifts[i];
+                double values[] = blockValues[i];
+                double sum = 0.;
+                for (int r = 0; r < blockSize; r++) {
+                    values[r] = column.getValue(blockRows[r]) - shift;
+                    sum += values[r];
+                }
+                sums[i] += sum;
+            }
+
+            // pair sums of the block over the gathered column values
+            int index = 0;
+            for (int i = 0; i < numColumns; i++) {
+                double values1[] = blockValues[i];
+                for (int j = i; j < numColumns; j++) {
+                    double values2[] = blockValues[j];
+                    double productSum = 0.;
+                    for (int r = 0; r < blockSize; r++) {
+                        productSum += values1[r] * values2[r];
+                    }
+                    productSums[index++] += productSum;
+                }
+            }
+            rowCount += blockSize;
+        }
+    }
+
+    // adds the sums of a matrix of a disjoint set of rows with the same columns and shifts
+    void add(CorrelationMatrix other) {
+        addSums(other, 1.);
+    }
+
+    // removes the sums of a matrix of a subset of the rows with the same columns and shifts
+    void subtract(CorrelationMatrix other) {
+        addSums(other, -1.);
+    }
+
+    private void addSums(CorrelationMatrix other, double sign) {
+        rowCount += (int)sign * other.rowCount;
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] += sign * other.sums[i];
+        }
+        for (int i = 0; i < productSums.length; i++) {
+            productSums[i] += sign * other.productSums[i];
+        }
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    // returns true if the correlation coefficients of the column are derived from the matrix
+    boolean contains(Column column) {
+        Integer index = columnIndices.get(column);
+        return index != null && !nanColumns[index];
+    }
+
+    // returns the Pearson correlation coefficient of two columns the matrix contains over its rows (NaN for fewer
+    // than two rows or a column with equal values)
+    double getCorrelationCoefficient(Column column1, Column column2) {
+        if (rowCount < 2) {
+            return Double.NaN;
+        } else if (column1 == column2) {
+            return 1.;
+        }
+        int i = columnIndices.get(column1);
+        int j = columnIndices.get(column2);
+        double covariance = getCoMoment(Math.min(i, j), Math.max(i, j));
+        double variance1 = getCoMoment(i, i);
+        double variance2 = getCoMoment(j, j);
+        if (variance1 == 0. || variance2 == 0.) {
+            return Double.NaN;
+        }
+        return Math.max(-1., Math.min(1., covariance / Math.sqrt(variance1 * variance2)));
+    }
+
+    // returns the sum of the products of the deviations from the means of two columns (i <= j)
+    private double getCoMoment(int i, int j) {
+        double productSum = productSums[i * columns.length - i * (i - 1) / 2 + j - i];
+        double coMoment = productSum - sums[i] * sums[j] / rowCount;
+        if (i == j && coMoment <= RELATIVE_ROUNDING_ERROR * productSum) {
+            // the values are all equal up to the rounding error of the sums
+            return 0.;
+        }
+        return coMoment;
+    }
+
+    // sums a range of rows by splitting it into halves summed in parallel
+    private static class RowBlockSumTask extends RecursiveTask<CorrelationMatrix> {
+        private static final long serialVersionUID = 1L;
+
+        private CorrelationMatrix matrix;
+        private BitSet rows;
+        private int startRow;
+        private int endRow;
+
+        RowBlockSumTask(CorrelationMatrix matrix, BitSet rows, int startRow, int endRow) {
+            this.matrix = matrix;
+            this.rows = rows;
+            this.startRow = startRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        protected CorrelationMatrix compute() {
+            if (endRow - startRow > TASK_ROWS) {
+                int middleRow = (startRow + endRow) >>> 1;
+                RowBlockSumTask lowerTask = new RowBlockSumTask(matrix, rows, startRow, middleRow);
+                lowerTask.fork();
+                CorrelationMatrix upperSums = new RowBlockSumTask(matrix, rows, middleRow, endRow).compute();
+                CorrelationMatrix lowerSums = lowerTask.join();
+                lowerSums.add(upperSums);
+                return lowerSums;
+            }
+            CorrelationMatrix sums = matrix.createEmpty();
+            sums.addRows(rows, startRow, endRow);
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package gov.ornl.datatable;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Crossfilter-style incremental maintenance of a query result and its statistics.  Keeps for every
+ * row the number of columns whose selections the row fails, so a row is queried exactly when its
+ * count is zero.  When the selections of one column change only the rows that now pass or fail that
+ * column differently update their counts, and only the rows that enter or leave the query update the
+ * per-column reductions (histogram bin counts, moments, and sorted ranks of double columns and category
+ * counts of categorical columns) and the correlation co-moments of the queried rows.  The non-query
+ * statistics are the statistics of all rows minus the reductions.  A selection change then costs time
+ * proportional to the rows that changed instead of the rows times the columns.
+ */
+class Crossfilter {
+    private int rowCount;
+
+    // number of columns with selections each row fails
+    private int failCounts[];
+
+    private HashMap<Column, Reduction> reductions = new HashMap<>();
+
+    // co-moments of the queried rows (built when first requested from the matrix of all rows it shares its shifts
+    // with) and the rows that entered or left the query since they were last updated
+    private CorrelationMatrix correlationMatrix = null;
+    private CorrelationMatrix correlationTableMatrix = null;
+    private BitSet changedRows = new BitSet();
+
+    // builds the failure counts of the first rowCount rows for the predicates of the query and the
+    // reductions of the columns over the queried rows
+    Crossfilter(List<ColumnPredicate> predicates, List<Column> columns, int rowCount, int numHistogramBins) {
+        this.rowCount = rowCount;
+
+        failCounts = new int[rowCount];
+        for (ColumnPredicate predicate : predicates) {
+            for (int firstRow = 0; firstRow < rowCount; firstRow += 64) {
+                int wordRowCount = Math.min(64, rowCount - firstRow);
+                long failedRows = ~predicate.testWord(firstRow, wordRowCount) & (-1L >>> (64 - wordRowCount));
+                for (; failedRows != 0L; failedRows &= failedRows - 1) {
+                    failCounts[firstRow + Long.numberOfTrailingZeros(failedRows)]++;
+                }
+            }
+        }
+
+        for (Column column : columns) {
+            Reduction reduction = null;
+            if (column instanceof DoubleColumn && ((DoubleColumn)column).getStatistics() != null) {
+                reduction = new DoubleReduction((DoubleColumn)column, numHistogramBins, rowCount);
+            } else if (column instanceof CategoricalColumn) {
+                reduction = new CategoryReduction((CategoricalColumn)column);
+            }
+            if (reduction != null) {
+                for (int row = 0; row < rowCount; row++) {
+                    if (failCounts[row] == 0) {
+                        reduction.add(row, 1);
+                    }
+                }
+                reductions.put(column, reduction);
+            }
+        }
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    // records that a row no longer passes the selections of one column; returns true if the row left the query
+    boolean failColumn(int row) {
+        if (failCounts[row]++ == 0) {
+            addToReductions(row, -1);
+            changedRows.flip(row);
+            return true;
+        }
+        return false;
+    }
+
+    // records that a row now passes the selections of one column it failed; returns true if the row entered
+    // the query
+    boolean passColumn(int row) {
+        if (--failCounts[row] == 0) {
+            addToReductions(row, 1);
+            changedRows.flip(row);
+            return true;
+        }
+        return false;
+    }
+
+    private void addToReductions(int row, int sign) {
+        for (Reduction reduction : reductions.values()) {
+            reduction.add(row, sign);
+        }
+    }
+
+    // sets the query statistics of a column from its reduction and the non-query statistics (if not null) from the
+    // statistics of all rows of the column minus the reduction; returns false if the column has no reduction or the
+    // statistics cannot be derived from it (the statistics must then be calculated from the values)
+    boolean updateStatistics(Column column, ColumnSummaryStats querySummaryStats,
+                             ColumnSummaryStats nonquerySummaryStats) {
+        Reduction reduction = reductions.get(column);
+        return reduction != null && querySummaryStats != null &&
+                reduction.updateStatistics(querySummaryStats, nonquerySummaryStats, rowCount);
+    }
+
+    // returns the co-moments of the queried rows; the co-moments of the rows that entered or left the query since
+    // they were last requested are added or subtracted unless there are more of them than queried rows
+    CorrelationMatrix getCorrelationMatrix(CorrelationMatrix tableMatrix, BitSet queriedRows, int parallelRowThreshold) {
+        int changedRowCount = changedRows.cardinality();
+        if (correlationMatrix == null || correlationTableMatrix != tableMatrix ||
+                changedRowCount > queriedRows.cardinality()) {
+            correlationTableMatrix = tableMatrix;
+            correlationMatrix = tableMatrix.sumRows(queriedRows, rowCount, parallelRowThreshold);
+        } else if (changedRowCount > 0) {
+            BitSet enteredRows = (BitSet)changedRows.clone();
+            enteredRows.and(queriedRows);
+            BitSet leftRows = changedRows;
+            leftRows.andNot(queriedRows);
+            correlationMatrix.add(tableMatrix.sumRows(enteredRows, rowCount, parallelRowThreshold));
+            correlationMatrix.subtract(tableMatrix.sumRows(leftRows, rowCount, parallelRowThreshold));
+        }
+        changedRows = new BitSet();
+        return correlationMatrix;
+    }
+
+    private static abstract class Reduction {
+        // adds (sign 1) or removes (sign -1) the value of a row
+        abstract void add(int row, int sign);
+
+        // sets the query statistics and the non-query statistics (if not null) of rowCount rows
+        abstract boolean updateStatistics(ColumnSummaryStats queryStats, ColumnSummaryStats nonqueryStats,
+                                          int rowCount);
+    }
+
+    // histogram bin counts, moments, and sorted ranks of the queried values of a double column; the queried rows
+    // are counted by their position in the sorted row index of the column in a Fenwick tree, so the values at the
+    // ranks of the quartiles and whiskers of the queried and non-queried values are found in logarithmic time
+    // instead of by reading the queried rows in sorted order
+    private static class DoubleReduction extends Reduction {
+        private DoubleColumn column;
+        private DoubleHistogram bins;
+        private int binCounts[];
+        private DoubleMoments moments;
+        // number of values removed from the moments since they were last calculated from the queried values
+        private int removedValueCount;
+        private int sortedRows[];
+        // position of each row in the sorted row index and the Fenwick tree of queried rows over the positions
+        private int sortedPositions[];
+        private int positionCounts[];
+
+        DoubleReduction(DoubleColumn column, int numBins, int rowCount) {
+            this.column = column;
+            DoubleColumnSummaryStats columnStats = column.getStatistics();
+            bins = new DoubleHistogram(column.getName(), new double[0], numBins, columnStats.getMinValue(),
+                    columnStats.getMaxValue());
+            binCounts = new int[numBins];
+            moments = new DoubleMoments();
+            sortedRows = column.getSortedRows();
+            sortedPositions = new int[rowCount];
+            for (int position = 0; position < sortedRows.length && position < rowCount; position++) {
+                sortedPositions[sortedRows[position]] = position;
+            }
+            positionCounts = new int[rowCount + 1];
+        }
+
+        @Override
+        void add(int row, int sign) {
+            double value = column.getValue(row);
+            int binIndex = bins.getBinIndex(value);
+            if (binIndex != -1) {
+                binCounts[binIndex] += sign;
+            }
+            if (sign > 0) {
+                moments.add(value);
+            } else {
+                moments.remove(value);
+                removedValueCount++;
+            }
+            for (int i = sortedPositions[row] + 1; i < positionCounts.length; i += i & -i) {
+                positionCounts[i] += sign;
+            }
+        }
+
+        // the rounding errors of removals add up, so the moments are calculated again from the queried values (read
+        // by rank from the tree) once more values were removed than are queried, which keeps the cost of the
+        // removals amortized logarithmic
+        private void refreshMoments() {
+            int count = moments.getCount();
+            if (removedValueCount <= count) {
+                return;
+            }
+            moments = new DoubleMoments();
+            for (int rank = 0; rank < count; rank++) {
+                moments.add(getValueAtRank(rank, true));
+            }
+            removedValueCount = 0;
+        }
+
+        // returns the value of the queried (or non-queried) row with the given rank in ascending order
+        private double getValueAtRank(int rank, boolean queried) {
+            // descends the tree to the last position before which fewer than rank + 1 rows are counted
+            int position = 0;
+            int remaining = rank + 1;
+            for (int step = Integer.highestOneBit(positionCounts.length - 1); step > 0; step >>>= 1) {
+                int next = position + step;
+                if (next < positionCounts.length) {
+                    int count = queried ? positionCounts[next] : step - positionCounts[next];
+                    if (count < remaining) {
+                        position = next;
+                        remaining -= count;
+                    }
+                }
+            }
+            return column.getValue(sortedRows[position]);
+        }
+
+        @Override
+        boolean updateStatistics(ColumnSummaryStats queryStats, ColumnSummaryStats nonqueryStats, int rowCount) {
+            DoubleColumnSummaryStats stats = (DoubleColumnSummaryStats)queryStats;
+            DoubleColumnSummaryStats columnStats = column.getStatistics();
+            if (moments.getNaNCount() > 0 || stats.getNumHistogramBins() != binCounts.length ||
+                    columnStats.getMinValue() != bins.getMinValue() || columnStats.getMaxValue() != bins.getMaxValue() ||
+                    column.getSortedRows() != sortedRows || sortedRows.length != rowCount) {
+                return false;
+            }
+            DoubleMoments columnMoments = columnStats.getMoments();
+            DoubleHistogram columnHistogram = columnStats.getHistogram();
+            if (nonqueryStats != null && (columnMoments == null || columnMoments.getNaNCount() > 0 ||
+                    columnMoments.getCount() != rowCount || columnHistogram.getNumBins() != binCounts.length ||
+                    columnHistogram.getMinValue() != bins.getMinValue() ||
+                    columnHistogram.getMaxValue() != bins.getMaxValue())) {
+                return false;
+            }
+
+            refreshMoments();
+            stats.setMoments(moments.copy());
+            stats.setExactOrderStatistics(rank -> getValueAtRank(rank, true), moments.getCount());
+            stats.setHistogram(new DoubleHistogram(column.getName(), binCounts.clone(), bins.getMinValue(),
+                    bins.getMaxValue()));
+            stats.clearValues();
+
+            if (nonqueryStats != null) {
+                DoubleColumnSummaryStats nonqueryDoubleStats = (DoubleColumnSummaryStats)nonqueryStats;
+                DoubleMoments nonqueryMoments = columnMoments.copy();
+                nonqueryMoments.subtract(moments);
+                nonqueryDoubleStats.setMoments(nonqueryMoments);
+                nonqueryDoubleStats.setExactOrderStatistics(rank -> getValueAtRank(rank, false),
+                        nonqueryMoments.getCount());
+                int nonqueryBinCounts[] = new int[binCounts.length];
+                for (int bin = 0; bin < binCounts.length; bin++) {
+                    nonqueryBinCounts[bin] = columnHistogram.getBinCount(bin) - binCounts[bin];
+                }
+                nonqueryDoubleStats.setHistogram(new DoubleHistogram(column.getName(), nonqueryBinCounts,
+                        bins.getMinValue(), bins.getMaxValue()));
+                nonqueryDoubleStats.clearValues();
+            }
+            return true;
+        }
+    }
+
+    // counts of the queried rows in each category of a categorical column
+    private static class CategoryReduction extends Reduction {
+        private CategoricalColumn column;
+        private int categoryIDs[];
+        private int categoryCounts[];
+        private int count;
+
+        CategoryReduction(CategoricalColumn column) {
+            this.column = column;
+            categoryIDs = column.getCategoryIDArray();
+            categoryCounts = new int[column.getCategories().size()];
+        }
+
+        @Override
+        void add(int row, int sign) {
+            categoryCounts[categoryIDs[row]] += sign;
+            count += sign;
+        }
+
+        @Override
+        boolean updateStatistics(ColumnSummaryStats queryStats, ColumnSummaryStats nonqueryStats, int rowCount) {
+            if (column.getCategories().size() != categoryCounts.length) {
+                return false;
+            }
+            CategoricalColumnSummaryStats stats = (CategoricalColumnSummaryStats)queryStats;
+            stats.setHistogram(new CategoricalHistogram(column.getName(), column.getCategories(),
+                    categoryCounts.clone(), count));
+            stats.clearValues();
+            return nonqueryStats == null || ((CategoricalColumnSummaryStats)nonqueryStats).setNonqueryStatistics(
+                    column.getStatistics(), stats, rowCount);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package gov.ornl.datatable;
 
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.SetChangeListener;
 import javafx.scene.image.Image;
 import javafx.util.Pair;
@@ -9,23 +12,32 @@ import javafx.util.Pair;
 import java.io.File;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 public class DataTable {
     private static final int DEFAULT_NUM_HISTOGRAM_BINS = 50;
     private static final int MAX_NUM_HISTOGRAM_BINS = 100;
+    private static final int DEFAULT_PARALLEL_QUERY_ROW_THRESHOLD = 100000;
+    private static final int DEFAULT_PARALLEL_STATISTICS_VALUE_THRESHOLD = 1000000;
+    private static final int DEFAULT_QUERY_PREVIEW_SAMPLE_SIZE = 50000;
+    private static final double DEFAULT_QUANTILE_RANK_ERROR = 0.005;
 
     private final static Logger log = Logger.getLogger(DataTable.class.getName());
 
     // List of enabled tuples
     protected ArrayList<Tuple> tuples;
 
-    protected HashSet<Tuple> focusTuples = new HashSet<>();
-
-    protected HashSet<Tuple> contextTuples = new HashSet<>();
+    // number of enabled columns in which each row is in a context region (rows with no context columns are in focus)
+    private int contextColumnCounts[] = new int[0];
+    private int contextRowCount = 0;
 
     // List of enabled columns
     protected ArrayList<Column> columns;
@@ -33,9 +45,6 @@ public class DataTable {
     // List of disabled columns
     protected ArrayList<Column> disabledColumns;
 
-    // List of tuple elements for disabled columns
-    protected ArrayList<Tuple> disabledColumnTuples;
-
     // List of active listeners
     private ArrayList<DataTableListener> listeners;
 
@@ -63,42 +72,137 @@ public class DataTable {
     // boolean property controls whether or not nonquery statistics are calculated
     private BooleanProperty calculateNonQueryStatistics = new SimpleBooleanProperty(false);
 
+    // minimum number of rows for evaluating queries on several cores
+    private int parallelQueryRowThreshold = DEFAULT_PARALLEL_QUERY_ROW_THRESHOLD;
+
+    // minimum number of values (rows times columns) for calculating column statistics on several cores
+    private int parallelStatisticsValueThreshold = DEFAULT_PARALLEL_STATISTICS_VALUE_THRESHOLD;
+
+    // directory for memory mapped column value files (null keeps the column values on the heap)
+    private File columnStorageDirectory = null;
+
+    // evaluates the active query off the JavaFX application thread while selections change (null when
+    // queries are evaluated synchronously)
+    private QueryScheduler queryScheduler = null;
+
+    // row bitmaps of the column selections shared by the active and saved queries
+    private ColumnSelectionCache columnSelectionCache = new ColumnSelectionCache(ColumnSelectionCache.DEFAULT_CAPACITY);
+
+    // incremented whenever the column values change (query results computed before are out of date)
+    private int dataVersion = 0;
+
+    // number of sampled rows query previews are evaluated on
+    private int queryPreviewSampleSize = DEFAULT_QUERY_PREVIEW_SAMPLE_SIZE;
+
+    // milliseconds the statistics of each column took the last time statistics were calculated
+    private Map<Column, Double> columnStatisticsTimes = Collections.emptyMap();
+
+    // correlation co-moments of the double columns over all rows (built when first requested)
+    private CorrelationMatrix correlationMatrix = null;
+
+    // rank error of the quantile sketches the quartiles and whiskers of query statistics are estimated from
+    // (0 calculates them exactly)
+    private double quantileRankError = DEFAULT_QUANTILE_RANK_ERROR;
+    // sample of the rows for query previews (null until a preview is made after the rows changed)
+    private RowSample rowSample = null;
+    // approximate result of the active query while a selection range is dragged (null when there is no drag)
+    private ObjectProperty<QueryPreview> queryPreview = new SimpleObjectProperty<>();
+
     public DataTable() {
         tuples = new ArrayList<>();
         columns = new ArrayList<>();
-        disabledColumnTuples = new ArrayList<>();
         disabledColumns = new ArrayList<>();
 
+        savedQueryList = new ArrayList<>();
         activeQuery = new Query("Q1", this);
         listeners = new ArrayList<>();
     }
 
-    public Set<Tuple> getContextTuples() { return contextTuples; }
+    public boolean isRowInContext(int row) { return contextColumnCounts[row] > 0; }
+
+    public boolean isRowInFocus(int row) { return contextColumnCounts[row] == 0; }
 
-    public Set<Tuple> getFocusTuples() { return focusTuples; }
+    public int getContextRowCount() { return contextRowCount; }
 
+    public int getFocusRowCount() { return tuples.size() - contextRowCount; }
+
+    // calculates the focus states of all enabled columns and the rows that are in a context region of any column
     private void setContextTuples() {
-        focusTuples.clear();
-        contextTuples.clear();
+        contextColumnCounts = new int[tuples.size()];
+        contextRowCount = 0;
 
         for (Column column : columns) {
-            column.getFocusTuples().clear();
-            column.getLowerContextTuples().clear();
-            column.getUpperContextTuples().clear();
+            column.calculateFocusStates();
+            addColumnContextRows(column);
         }
+    }
 
-        for (Tuple tuple : tuples) {
-            boolean isContext = false;
-            for (int i = 0; i < tuple.getElementCount(); i++) {
-                if (!columns.get(i).setFocusContext(tuple, i)) {
-                    isContext = true;
+    // calculates the focus states of the rows appended from firstNewRow on and adds the rows that are in a context
+    // region of any enabled column
+    private void appendContextTuples(int firstNewRow) {
+        if (contextColumnCounts.length != firstNewRow) {
+            setContextTuples();
+            return;
+        }
+
+        contextColumnCounts = Arrays.copyOf(contextColumnCounts, tuples.size());
+        for (Column column : columns) {
+            column.appendFocusStates(firstNewRow);
+            if (column.getFocusRowCount() != contextColumnCounts.length) {
+                for (int row = firstNewRow; row < contextColumnCounts.length; row++) {
+                    if (!column.isRowInFocus(row)) {
+                        columnFocusStateChanged(row, false);
+                    }
                 }
             }
+        }
+    }
 
-            if (isContext) {
-                contextTuples.add(tuple);
+    // updates the focus states of a column after its focus extents changed
+    private void updateContextTuples(Column column) {
+        if (column.focusStates.length != tuples.size()) {
+            // the focus states were calculated for other rows (the column was disabled when the rows changed)
+            if (columns.contains(column)) {
+                setContextTuples();
             } else {
-                focusTuples.add(tuple);
+                column.calculateFocusStates();
+            }
+        } else {
+            column.updateFocusStates();
+        }
+    }
+
+    private void addColumnContextRows(Column column) {
+        if (column.getFocusRowCount() == contextColumnCounts.length) {
+            return;
+        }
+        for (int row = 0; row < contextColumnCounts.length; row++) {
+            if (!column.isRowInFocus(row)) {
+                columnFocusStateChanged(row, false);
+            }
+        }
+    }
+
+    private void removeColumnContextRows(Column column) {
+        if (column.getFocusRowCount() == contextColumnCounts.length) {
+            return;
+        }
+        for (int row = 0; row < contextColumnCounts.length; row++) {
+            if (!column.isRowInFocus(row)) {
+                columnFocusStateChanged(row, true);
+            }
+        }
+    }
+
+    // called when a row moves in or out of the focus region of an enabled column
+    protected void columnFocusStateChanged(int row, boolean inFocus) {
+        if (inFocus) {
+            if (--contextColumnCounts[row] == 0) {
+                contextRowCount--;
+            }
+        } else {
+            if (contextColumnCounts[row]++ == 0) {
+                contextRowCount++;
             }
         }
     }
@@ -135,12 +239,14 @@ public class DataTable {
     }
 
     public void setCalculateQueryStatistics(boolean enabled) {
+        stopQueryEvaluation();
         calculateQueryStatistics.set(enabled);
         getActiveQuery().calculateStatistics();
         fireDataTableStatisticsChanged();
     }
 
     public void setCalculateNonQueryStatistics(boolean enabled) {
+        stopQueryEvaluation();
         calculateNonQueryStatistics.set(enabled);
         getActiveQuery().calculateStatistics();
         fireDataTableStatisticsChanged();
@@ -152,6 +258,8 @@ public class DataTable {
 
     public void setNumHistogramBins(int numBins) {
         if (numBins != numHistogramBins) {
+            // the statistics are binned again in place, which the query worker reads
+            stopQueryEvaluation();
             numHistogramBins = numBins;
             for (Column column : columns) {
                 if (!(column instanceof ImageColumn)) {
@@ -165,6 +273,155 @@ public class DataTable {
         }
     }
 
+    public int getParallelQueryRowThreshold() {
+        return parallelQueryRowThreshold;
+    }
+
+    // sets the number of rows at which queries are evaluated in parallel blocks of rows (smaller tables are
+    // evaluated serially with the sorted row indices of the columns)
+    public void setParallelQueryRowThreshold(int rowThreshold) {
+        parallelQueryRowThreshold = rowThreshold;
+    }
+
+    public int getParallelStatisticsValueThreshold() {
+        return parallelStatisticsValueThreshold;
+    }
+
+    // sets the number of values the columns hold in total (rows times columns) at which the statistics of the
+    // columns are calculated in parallel, one column per task
+    public void setParallelStatisticsValueThreshold(int valueThreshold) {
+        parallelStatisticsValueThreshold = valueThreshold;
+    }
+
+    public File getColumnStorageDirectory() {
+        return columnStorageDirectory;
+    }
+
+    // sets the directory where loaders put memory mapped files for the values of numeric and temporal columns
+    // so tables larger than the heap can be loaded (null keeps the values on the heap).  Only the column values
+    // leave the heap: each row keeps a Tuple, each double column a sorted row index (4 bytes per row), and each
+    // column its focus states (1 byte per row); categorical values and the query bitsets stay on the heap as well
+    public void setColumnStorageDirectory(File directory) {
+        columnStorageDirectory = directory;
+    }
+
+    public int getQueryPreviewSampleSize() {
+        return queryPreviewSampleSize;
+    }
+
+    // sets the number of sampled rows query previews are evaluated on (tables with no more rows are previewed
+    // exactly)
+    public void setQueryPreviewSampleSize(int sampleSize) {
+        if (sampleSize != queryPreviewSampleSize) {
+            queryPreviewSampleSize = sampleSize;
+            rowSample = null;
+        }
+    }
+
+    public double getQuantileRankError() {
+        return quantileRankError;
+    }
+
+    // sets the rank error of the quantile sketches for the quartiles and whiskers of the query and non-query
+    // statistics as a fraction of the values (0 finds them exactly by selection, which takes longer on large
+    // tables); smaller sets of values are not sketched and always have exact statistics
+    public void setQuantileRankError(double rankError) {
+        if (rankError != quantileRankError) {
+            stopQueryEvaluation();
+            quantileRankError = rankError;
+            getActiveQuery().calculateStatistics();
+            fireDataTableStatisticsChanged();
+        }
+    }
+
+    public ReadOnlyObjectProperty<QueryPreview> queryPreviewProperty() {
+        return queryPreview;
+    }
+
+    public QueryPreview getQueryPreview() {
+        return queryPreview.get();
+    }
+
+    // previews the active query with a range of one of its double selections while the range is dragged; the
+    // query is evaluated on a sample of the rows and the preview is kept in the query preview property until
+    // endQueryPreview() is called
+    public QueryPreview previewColumnSelectionRange(DoubleColumnSelectionRange columnSelection, double minValue,
+                                                   double maxValue) {
+        return previewColumnSelection(columnSelection, new DoubleColumnSelectionRange(
+                (DoubleColumn)columnSelection.getColumn(), minValue, maxValue));
+    }
+
+    public QueryPreview previewColumnSelectionRange(TemporalColumnSelectionRange columnSelection, Instant startInstant,
+                                                   Instant endInstant) {
+        return previewColumnSelection(columnSelection, new TemporalColumnSelectionRange(
+                (TemporalColumn)columnSelection.getColumn(), startInstant, endInstant));
+    }
+
+    private QueryPreview previewColumnSelection(ColumnSelection columnSelection, ColumnSelection previewSelection) {
+        if (tuples.isEmpty() || !getActiveQuery().getColumnSelections().contains(columnSelection)) {
+            return null;
+        }
+        if (rowSample == null || rowSample.getRowCount() != tuples.size()) {
+            rowSample = new RowSample(tuples.size(), queryPreviewSampleSize, new Random());
+        }
+
+        ArrayList<ColumnPredicate> predicates = getActiveQuery().compilePredicates(
+                selection -> selection == columnSelection ? previewSelection : selection);
+        QueryPreview preview = new QueryPreview(previewSelection, predicates, columns, tuples.size(),
+                rowSample.getRows(), numHistogramBins);
+        queryPreview.set(preview);
+        return preview;
+    }
+
+    // ends the query preview after the dragged range was set on its selection; the preview is kept until the
+    // exact query result is available if the query is evaluated in the background
+    public void endQueryPreview() {
+        if (queryScheduler == null || !queryScheduler.isPending()) {
+            queryPreview.set(null);
+        }
+    }
+
+    public boolean isAsynchronousQueries() {
+        return queryScheduler != null;
+    }
+
+    // sets whether changes to the ranges and categories of column selections are evaluated on a background
+    // thread; column selection changed events are then fired on the JavaFX application thread once the new
+    // query result and statistics are available
+    public void setAsynchronousQueries(boolean enabled) {
+        if (enabled == isAsynchronousQueries()) {
+            return;
+        }
+        if (enabled) {
+            queryScheduler = new QueryScheduler(this);
+        } else {
+            // drop results still being computed and bring the query up to date with the current selections
+            queryScheduler.cancel();
+            queryScheduler = null;
+            getActiveQuery().setQueriedTuples();
+        }
+    }
+
+    // updates the active query after a selection changed and notifies listeners (right away or once the
+    // query is evaluated in the background); a saved query is only marked for evaluation when it is activated
+    private void handleColumnSelectionChange(Query query, ColumnSelection columnSelection) {
+        if (query != getActiveQuery()) {
+            query.invalidate();
+        } else if (queryScheduler != null) {
+            queryScheduler.schedule(columnSelection);
+        } else {
+            recombineActiveQuery();
+            fireColumnSelectionChanged(columnSelection);
+        }
+    }
+
+    // evaluates the active query again after selections were added, removed, or had their categories changed;
+    // the row bitmaps of the selections that are cached are combined with word operations and only the other
+    // selections are tested against their column values
+    private void recombineActiveQuery() {
+        getActiveQuery().setQueriedTuples(columnSelectionCache);
+    }
+
     public ArrayList<DoubleColumn> getEnabledDoubleColumns() {
         ArrayList<DoubleColumn> doubleColumns = new ArrayList<>();
         for (Column column : columns) {
@@ -281,23 +538,41 @@ public class DataTable {
     }
 
     public void setData(ArrayList<Tuple> tuples, ArrayList<Column> columns) {
+        if (tuples != null && !tuples.isEmpty()) {
+            // copy the tuple elements into the column value storage
+            for (Column column : columns) {
+                column.ensureCapacity(column.getValueCount() + tuples.size());
+            }
+            addTupleElementsToColumns(tuples, columns);
+        }
+
+        setData(columns);
+    }
+
+    // sets the data table contents from columns that already hold their values (all columns must have the same
+    // number of values)
+    public void setData(ArrayList<Column> columns) {
+        closeMappedStorage(columns);
         clearDataModel();
 
         if (columns.isEmpty()) {
             return;
         }
 
-        if (tuples != null && !tuples.isEmpty()) {
-            this.tuples.addAll(tuples);
-            numHistogramBins = (int)Math.floor(Math.sqrt(tuples.size()));
-            if (numHistogramBins > MAX_NUM_HISTOGRAM_BINS) {
-                numHistogramBins = MAX_NUM_HISTOGRAM_BINS;
-            }
-        }
-
         this.columns.addAll(columns);
         for (Column column : this.columns) {
             column.setDataModel(this);
+            column.trimToSize();
+        }
+
+        int rowCount = columns.get(0).getValueCount();
+        addRowTuples(rowCount);
+
+        if (rowCount > 0) {
+            numHistogramBins = (int)Math.floor(Math.sqrt(rowCount));
+            if (numHistogramBins > MAX_NUM_HISTOGRAM_BINS) {
+                numHistogramBins = MAX_NUM_HISTOGRAM_BINS;
+            }
         }
 
         calculateStatistics();
@@ -306,27 +581,117 @@ public class DataTable {
         fireDataModelReset();
     }
 
+    // appends rows to the data table; the focus states, sorted row indices, and active query result are extended
+    // with the new rows only and the column selections are kept; tuple elements are read in the order of the
+    // enabled columns followed by the disabled columns, and disabled columns the tuples have no elements for get
+    // missing values (so all columns keep one value per row)
     public void addTuples(ArrayList<Tuple> newTuples) {
-        this.tuples.addAll(newTuples);
-        setContextTuples();
-        calculateStatistics();
+        stopQueryEvaluation();
+        int firstNewRow = tuples.size();
+        ArrayList<Column> allColumns = new ArrayList<>(columns);
+        allColumns.addAll(disabledColumns);
+        for (Column column : allColumns) {
+            column.ensureCapacity(firstNewRow + newTuples.size());
+        }
+        addTupleElementsToColumns(newTuples, allColumns);
+        addRowTuples(newTuples.size());
+
+        appendContextTuples(firstNewRow);
+        // columns merge the aggregates of the appended rows into their statistics where they can and the statistics
+        // of the other columns are calculated again
+        dataChanged();
+        ArrayList<Column> recalculatedColumns = new ArrayList<>();
+        for (Column column : columns) {
+            if (!column.appendRows(firstNewRow)) {
+                recalculatedColumns.add(column);
+            }
+        }
+        for (Column column : disabledColumns) {
+            if (!column.appendRows(firstNewRow)) {
+                recalculatedColumns.add(column);
+            }
+        }
+        calculateStatistics(recalculatedColumns);
+        updateCorrelationCoefficientLists();
+        activeQuery.appendQueriedTuples(firstNewRow);
+
+        fireTuplesAdded(new ArrayList<>(tuples.subList(firstNewRow, tuples.size())));
+    }
+
+    // appends the elements of tuples that are not yet stored in the data table to the column value storage
+    // (columns after the last element of a tuple get missing values)
+    private void addTupleElementsToColumns(List<Tuple> newTuples, List<Column> columns) {
+        for (Tuple tuple : newTuples) {
+            int elementCount = tuple.getElementCount();
+            for (int icol = 0; icol < columns.size(); icol++) {
+                if (icol < elementCount) {
+                    columns.get(icol).addValue(tuple.getElement(icol));
+                } else {
+                    columns.get(icol).addMissingValue();
+                }
+            }
+        }
+    }
 
-        fireTuplesAdded(newTuples);
+    // creates row tuples for values that have been added to the end of the column value storage
+    private void addRowTuples(int numRows) {
+        tuples.ensureCapacity(tuples.size() + numRows);
+        int firstRow = tuples.size();
+        for (int row = firstRow; row < firstRow + numRows; row++) {
+            tuples.add(new Tuple(this, row));
+        }
     }
 
     public void clear() {
+        closeMappedStorage(Collections.emptyList());
         clearDataModel();
         fireDataModelReset();
     }
 
+    // stops the background query evaluation before rows are added or removed or the statistics or their settings
+    // change (the worker reads the column value storage, sorted row indices, and column statistics that are changed
+    // in place); the active query is evaluated here if the result of its last selection change was dropped, so the
+    // change applies to an up to date result
+    private void stopQueryEvaluation() {
+        if (queryScheduler != null && queryScheduler.cancelAndWait() == activeQuery) {
+            activeQuery.setQueriedTuples();
+            queryPreview.set(null);
+        }
+    }
+
+    // closes the memory mapped storage of the columns of the data table that are not kept (the columns are removed
+    // from the data table)
+    private void closeMappedStorage(List<Column> keptColumns) {
+        if (queryScheduler != null) {
+            queryScheduler.cancelAndWait();
+        }
+        for (Column column : columns) {
+            if (!keptColumns.contains(column)) {
+                column.closeMappedStorage();
+            }
+        }
+        for (Column column : disabledColumns) {
+            if (!keptColumns.contains(column)) {
+                column.closeMappedStorage();
+            }
+        }
+    }
+
     private void clearDataModel() {
         tuples.clear();
-        disabledColumnTuples.clear();
+        if (queryScheduler != null) {
+            queryScheduler.cancel();
+        }
+        savedQueryList.clear();
+        columnSelectionCache.clear();
+        queryPreview.set(null);
         activeQuery = new Query("Q" + (nextQueryNumber++), this);
 //		removeColumnSelectionsFromActiveQuery();
         columns.clear();
         disabledColumns.clear();
         highlightedColumn = null;
+        contextColumnCounts = new int[0];
+        contextRowCount = 0;
     }
 
     public void setColumnName(Column column, String name) {
@@ -357,9 +722,8 @@ public class DataTable {
 
         Object[] values = new Object[tuples.size()];
 
-        for (int ituple = 0; ituple < tuples.size(); ituple++) {
-            Tuple tuple = tuples.get(ituple);
-            values[ituple] = tuple.getElement(columnIndex);
+        for (int row = 0; row < tuples.size(); row++) {
+            values[row] = column.getValueAt(row);
         }
 
         return values;
@@ -368,11 +732,12 @@ public class DataTable {
     public Object[] getColumnQueriedValues(int columnIndex) {
         Column column = columns.get(columnIndex);
 
-        Object[] values = new Object[getActiveQuery().getQueriedTuples().size()];
+        BitSet queriedRows = getActiveQuery().getQueriedRows();
+        Object[] values = new Object[getActiveQuery().getQueriedTupleCount()];
 
         int tupleCounter = 0;
-        for (Tuple tuple : getActiveQuery().getQueriedTuples()) {
-            values[tupleCounter++] = tuple.getElement(columnIndex);
+        for (int row = queriedRows.nextSetBit(0); row >= 0; row = queriedRows.nextSetBit(row + 1)) {
+            values[tupleCounter++] = column.getValueAt(row);
         }
 
         return values;
@@ -392,10 +757,6 @@ public class DataTable {
         return tuples.get(idx);
     }
 
-    public Tuple getDisabledTuple(int idx) {
-        return disabledColumnTuples.get(idx);
-    }
-
     public Column getColumn(int idx) {
         return columns.get(idx);
     }
@@ -423,7 +784,6 @@ public class DataTable {
 
     public void disableColumn(Column disabledColumn) {
         if (!disabledColumns.contains(disabledColumn)) {
-            removeTupleElementsForColumn(disabledColumn);
             disabledColumn.setEnabled(false);
 
             if (disabledColumn == this.highlightedColumn) {
@@ -433,11 +793,18 @@ public class DataTable {
 
             disabledColumns.add(disabledColumn);
             columns.remove(disabledColumn);
+            removeColumnContextRows(disabledColumn);
 
-            calculateStatistics();
+            // column values and statistics are kept so only the correlation lists change
+            updateCorrelationCoefficientLists();
 
-            getActiveQuery().removeColumnSelections(disabledColumn);
-            getActiveQuery().setQueriedTuples();
+            // the query result only changes if the column had selections
+            ArrayList<ColumnSelection> removedColumnSelections = getActiveQuery().removeColumnSelections(disabledColumn);
+            if (removedColumnSelections != null && !removedColumnSelections.isEmpty()) {
+                recombineActiveQuery();
+            } else {
+                getActiveQuery().updateCorrelationCoefficientLists();
+            }
 
             fireColumnDisabled(disabledColumn);
         }
@@ -446,7 +813,6 @@ public class DataTable {
     public void disableColumns(ArrayList<Column> columns) {
         for (Column column : columns) {
             if (!disabledColumns.contains(column)) {
-                removeTupleElementsForColumn(column);
                 column.setEnabled(false);
 
                 if (column == this.highlightedColumn) {
@@ -455,12 +821,14 @@ public class DataTable {
                 }
 
                 disabledColumns.add(column);
-                columns.remove(column);
+                this.columns.remove(column);
+                removeColumnContextRows(column);
                 removeColumnSelectionsFromActiveQuery(column);
             }
         }
 
-        calculateStatistics();
+        updateCorrelationCoefficientLists();
+        getActiveQuery().updateCorrelationCoefficientLists();
 
         fireColumnsDisabled(columns);
     }
@@ -479,16 +847,9 @@ public class DataTable {
 
         int idx = columnIndex < 0 ? 0 : columnIndex > columns.size() ? columns.size() : columnIndex;
 
-        int col1Index = columns.indexOf(column1);
-        int col2Index = columns.indexOf(column2);
-
-        // add bivariate pair to tuples
-        for (Tuple tuple : tuples) {
-            Object biValues[] = {tuple.getElement(col1Index), tuple.getElement(col2Index)};
-            tuple.addElement(idx, biValues);
-        }
-
+        stopQueryEvaluation();
         columns.add(idx, biColumn);
+        biColumn.calculateFocusStates();
 
         calculateStatistics();
         getActiveQuery().calculateStatistics();
@@ -532,11 +893,11 @@ public class DataTable {
 
         if (!selectionRangesToRemove.isEmpty()) {
             getActiveQuery().removeColumnSelections(selectionRangesToRemove);
-            getActiveQuery().setQueriedTuples();
+            recombineActiveQuery();
             fireColumnSelectionsRemoved(selectionRangesToRemove);
         }
 
-        setContextTuples();
+        updateContextTuples(column);
         fireDataTableColumnFocusExtentsChanged();
     }
 
@@ -563,11 +924,11 @@ public class DataTable {
 
         if (!selectionRangesToRemove.isEmpty()) {
             getActiveQuery().removeColumnSelections(selectionRangesToRemove);
-            getActiveQuery().setQueriedTuples();
+            recombineActiveQuery();
             fireColumnSelectionsRemoved(selectionRangesToRemove);
         }
 
-        setContextTuples();
+        updateContextTuples(column);
         fireDataTableColumnFocusExtentsChanged();
     }
 
@@ -581,13 +942,22 @@ public class DataTable {
 
     public void enableColumn(Column column) {
         if (disabledColumns.contains(column)) {
-            // move elements from disable column tuples to active tuples list
-            addTupleElementsForDisabledColumn(column);
             disabledColumns.remove(column);
             column.setEnabled(true);
             columns.add(column);
-            calculateStatistics();
-            getActiveQuery().calculateStatistics();
+
+            // focus states and statistics are kept while the column is disabled unless the rows changed
+            if (column.focusStates.length != tuples.size()) {
+                column.calculateFocusStates();
+            }
+            addColumnContextRows(column);
+            updateCorrelationCoefficientLists();
+
+            // only the statistics of the enabled column can be out of date with the active query
+            if (getActiveQuery().hasColumnSelections()) {
+                getActiveQuery().calculateStatistics(column);
+            }
+            getActiveQuery().updateCorrelationCoefficientLists();
             // fireDataModelChanged();
             fireColumnEnabled(column);
         }
@@ -603,16 +973,18 @@ public class DataTable {
 
     public void removeColumnSelectionFromActiveQuery(ColumnSelection selectionRange) {
         getActiveQuery().removeColumnSelection(selectionRange);
-        getActiveQuery().setQueriedTuples();
+        recombineActiveQuery();
         fireColumnSelectionRemoved(selectionRange);
     }
 
     public int removeUnselectedTuples() {
         int tuplesRemoved = 0;
 
+        stopQueryEvaluation();
+
         if (getActiveQuery().hasColumnSelections()) {
-            tuplesRemoved = getActiveQuery().getNonQueriedTuples().size();
-            removeTuples(getActiveQuery().getNonQueriedTuples(), getActiveQuery().getQueriedTuples());
+            tuplesRemoved = getActiveQuery().getNonQueriedTupleCount();
+            removeTuples(false);
 //			tuplesRemoved = getActiveQuery().getNonQueriedTuples().size();
 //			tuples.clear();
 //			tuples.addAll(getActiveQuery().getQueriedTuples());
@@ -634,20 +1006,41 @@ public class DataTable {
         return tuplesRemoved;
     }
 
-    private void removeTuples(Set<Tuple> tuplesToRemove, Set<Tuple> tuplesToKeep) {
-        tuples.clear();
-        tuples.addAll(tuplesToKeep);
-        getActiveQuery().clear();
+    // removes the queried tuples (or the non-queried tuples if removeQueried is false) of the active query
+    private void removeTuples(boolean removeQueried) {
+        Query query = getActiveQuery();
+        BitSet queriedRows = query.getQueriedRows();
+
+        // rows to keep in ascending order
+        int rowsToKeep[] = new int[removeQueried ? query.getNonQueriedTupleCount() : query.getQueriedTupleCount()];
+        int counter = 0;
+        for (int row = removeQueried ? queriedRows.nextClearBit(0) : queriedRows.nextSetBit(0);
+             row >= 0 && row < query.getRowCount();
+             row = removeQueried ? queriedRows.nextClearBit(row + 1) : queriedRows.nextSetBit(row + 1)) {
+            rowsToKeep[counter++] = row;
+        }
+
+        // compact the column value storage in place (categorical columns also drop categories that no longer
+        // appear); columns update their statistics from the aggregates of the removed or retained rows where they
+        // can and the statistics of the other columns are calculated again once all columns are compacted
+        dataChanged();
+        // tuples are views of rows so the tuples of the retained rows are the first tuples
+        tuples.subList(rowsToKeep.length, tuples.size()).clear();
+        ArrayList<Column> recalculatedColumns = new ArrayList<>();
         for (Column column : columns) {
-            if (column instanceof CategoricalColumn) {
-                ((CategoricalColumn)column).getCategories().clear();
-                int columnIndex = columns.indexOf(column);
-                for (Tuple tuple : tuples) {
-                    ((CategoricalColumn)column).addCategory((String)tuple.getElement(columnIndex));
-                }
+            if (!column.retainRows(rowsToKeep)) {
+                recalculatedColumns.add(column);
             }
         }
-        calculateStatistics();
+        for (Column column : disabledColumns) {
+            if (!column.retainRows(rowsToKeep)) {
+                recalculatedColumns.add(column);
+            }
+        }
+        calculateStatistics(recalculatedColumns);
+        updateCorrelationCoefficientLists();
+
+        getActiveQuery().clear();
         for (Column column : columns) {
             if (column instanceof DoubleColumn) {
                 ((DoubleColumn)column).setMinimumScaleValue(((DoubleColumn)column).getStatistics().getMinValue());
@@ -658,14 +1051,17 @@ public class DataTable {
             }
         }
         getActiveQuery().setQueriedTuples();
+        setContextTuples();
     }
 
     public int removeSelectedTuples() {
         int tuplesRemoved = 0;
 
+        stopQueryEvaluation();
+
         if (getActiveQuery().hasColumnSelections()) {
-            tuplesRemoved = getActiveQuery().getQueriedTuples().size();
-            removeTuples(getActiveQuery().getQueriedTuples(), getActiveQuery().getNonQueriedTuples());
+            tuplesRemoved = getActiveQuery().getQueriedTupleCount();
+            removeTuples(true);
 //			tuples.clear();
 //			tuples.addAll(getActiveQuery().getNonQueriedTuples());
 //			getActiveQuery().clear();
@@ -695,27 +1091,87 @@ public class DataTable {
         return tuplesRemoved;
     }
 
-//	public void saveActiveQuery() {
-//		savedQueryList.add(activeQuery);
-//		activeQuery = new Query("Q"+(nextQueryNumber++));
-//	}
+    // state of the rows the cached selection bitmaps were evaluated for
+    Object getRowState() {
+        return Arrays.asList(dataVersion, tuples.size());
+    }
 
-//	public Query getActiveQuery() {
-//		return activeQuery;
-//	}
+    // state of the data table a query result and its statistics are computed for
+    Object getQueryDataState() {
+        return Arrays.asList(dataVersion, tuples.size(), new ArrayList<>(columns), numHistogramBins,
+                getCalculateQueryStatistics(), getCalculateNonQueryStatistics());
+    }
 
-//	public void setActiveQuery(String queryID) {
-//		for (Query query : savedQueryList) {
-//			if (query.getID().equals(queryID)) {
-//				activeQuery = query;
-//				savedQueryList.remove(query);
-//				return;
-//			}
-//		}
-//	}
+    // returns the saved queries (the active query is not in the list)
+    public List<Query> getSavedQueryList() {
+        return Collections.unmodifiableList(savedQueryList);
+    }
+
+    // keeps the active query with its selections and result as a saved query and starts a new empty
+    // active query
+    public Query saveActiveQuery() {
+        Query savedQuery = activeQuery;
+        savedQueryList.add(savedQuery);
+        setActiveQuery(savedQuery, new Query("Q" + (nextQueryNumber++), this));
+        activeQuery.setQueriedTuples();
+        fireActiveQueryChanged(savedQuery);
+        return savedQuery;
+    }
+
+    // makes a saved query the active query and saves the current active query in its place; the result of
+    // the query is only calculated again if its selections or the data changed since it was last active
+    public boolean setActiveQuery(Query query) {
+        int index = savedQueryList.indexOf(query);
+        if (index == -1) {
+            return false;
+        }
+
+        Query previousActiveQuery = activeQuery;
+        savedQueryList.set(index, previousActiveQuery);
+        setActiveQuery(previousActiveQuery, query);
+        if (query.isStale() || !getQueryDataState().equals(query.getDataState())) {
+            query.setQueriedTuples(columnSelectionCache);
+        }
+        fireActiveQueryChanged(previousActiveQuery);
+        return true;
+    }
+
+    public boolean setActiveQuery(String queryID) {
+        Query query = getQueryByID(queryID);
+        return query != null && query != activeQuery && setActiveQuery(query);
+    }
+
+    private void setActiveQuery(Query previousActiveQuery, Query query) {
+        if (queryScheduler != null && queryScheduler.cancel() == previousActiveQuery) {
+            // the result of the last selection change was not published yet
+            previousActiveQuery.invalidate();
+        }
+        previousActiveQuery.setDataState(getQueryDataState());
+        activeQuery = query;
+    }
+
+    public Query getQueryByID(String queryID) {
+        if (activeQuery.getID().equals(queryID)) {
+            return activeQuery;
+        }
+        for (Query query : savedQueryList) {
+            if (query.getID().equals(queryID)) {
+                return query;
+            }
+        }
+        return null;
+    }
+
+    public boolean removeSavedQuery(Query query) {
+        return savedQueryList.remove(query);
+    }
 
     public void removeColumnSelectionsFromActiveQuery() {
-        activeQuery = new Query("Q" + (nextQueryNumber++), this);
+        if (queryScheduler != null) {
+            queryScheduler.cancel();
+        }
+        getActiveQuery().clear();
+        getActiveQuery().setQueriedTuples();
         fireQueryCleared();
     }
 
@@ -725,52 +1181,73 @@ public class DataTable {
 
     public void removeColumnSelectionsFromActiveQuery(Column column) {
         if (activeQuery != null) {
-            getActiveQuery().removeColumnSelections(column);
-            getActiveQuery().setQueriedTuples();
+            ArrayList<ColumnSelection> removedColumnSelections = getActiveQuery().removeColumnSelections(column);
+            if (removedColumnSelections != null && !removedColumnSelections.isEmpty()) {
+                recombineActiveQuery();
+            }
             fireQueryColumnCleared(column);
         }
     }
 
-//	public ArrayList<Query> getSavedQueryList() {
-//		return savedQueryList;
-//	}
-
-//	public Query getQueryByID(String ID) {
-//		if (activeQuery.getID().equals(ID)) {
-//			return activeQuery;
-//		} else {
-//			for (Query query : savedQueryList) {
-//				if (query.getID().equals(ID)) {
-//					return query;
-//				}
-//			}
-//		}
-//
-//		return null;
-//	}
-
     public void addColumnSelectionToActiveQuery(ColumnSelection newColumnSelectionRange) {
         getActiveQuery().addColumnSelection(newColumnSelectionRange);
-        getActiveQuery().setQueriedTuples();
+        recombineActiveQuery();
         fireColumnSelectionAdded(newColumnSelectionRange);
+        addColumnSelectionListener(getActiveQuery(), newColumnSelectionRange);
+    }
+
+    // combines the selections of the active query with an expression instead of the OR of the selections on a
+    // column and the AND across columns (null restores the default combination); selections of the expression
+    // that are not in the active query are added to it and selections added later are ANDed with it.  The
+    // expression is dropped when one of its selections is removed from the query.
+    public void setActiveQueryExpression(QueryExpression expression) {
+        if (queryScheduler != null) {
+            queryScheduler.cancel();
+        }
+        Query query = getActiveQuery();
+        if (expression != null) {
+            for (ColumnSelection columnSelection : expression.getColumnSelections()) {
+                if (!query.getColumnSelections().contains(columnSelection)) {
+                    query.addColumnSelection(columnSelection);
+                    addColumnSelectionListener(query, columnSelection);
+                }
+            }
+        }
+        query.setExpression(expression);
+        query.setQueriedTuples();
+        fireActiveQueryChanged(query);
+    }
 
+    // evaluates the query a selection belongs to when the selection changes (the query may be saved while
+    // another query is active)
+    private void addColumnSelectionListener(Query query, ColumnSelection newColumnSelectionRange) {
         if (newColumnSelectionRange instanceof DoubleColumnSelectionRange) {
-            ((DoubleColumnSelectionRange)newColumnSelectionRange).rangeValuesProperty().addListener((observable, oldValue, newValue) -> {
-                getActiveQuery().setQueriedTuples();
-                fireColumnSelectionChanged(newColumnSelectionRange);
+            DoubleColumnSelectionRange doubleSelectionRange = (DoubleColumnSelectionRange)newColumnSelectionRange;
+            // range values the current query result was computed with (used to only retest the rows that can change)
+            double previousRangeValues[] = {doubleSelectionRange.getMinValue(), doubleSelectionRange.getMaxValue()};
+            doubleSelectionRange.rangeValuesProperty().addListener((observable, oldValue, newValue) -> {
+                if (query != getActiveQuery()) {
+                    // the result of a saved query is calculated again when it becomes the active query
+                    query.invalidate();
+                } else if (queryScheduler != null) {
+                    queryScheduler.schedule(doubleSelectionRange, previousRangeValues[0], previousRangeValues[1]);
+                } else {
+                    getActiveQuery().updateQueriedTuples(doubleSelectionRange, previousRangeValues[0], previousRangeValues[1]);
+                    fireColumnSelectionChanged(newColumnSelectionRange);
+                }
+                previousRangeValues[0] = doubleSelectionRange.getMinValue();
+                previousRangeValues[1] = doubleSelectionRange.getMaxValue();
             });
         } else if (newColumnSelectionRange instanceof TemporalColumnSelectionRange) {
             ((TemporalColumnSelectionRange)newColumnSelectionRange).rangeInstantsProperty().addListener((observable, oldValue, newValue) -> {
-                getActiveQuery().setQueriedTuples();
-                fireColumnSelectionChanged(newColumnSelectionRange);
+                handleColumnSelectionChange(query, newColumnSelectionRange);
             });
         } else if (newColumnSelectionRange instanceof CategoricalColumnSelection) {
             ((CategoricalColumnSelection)newColumnSelectionRange).selectedCategoriesProperty().addListener((SetChangeListener<String>) change -> {
                 if (((CategoricalColumnSelection) newColumnSelectionRange).getSelectedCategories().isEmpty()) {
-                    getActiveQuery().removeColumnSelection(newColumnSelectionRange);
+                    query.removeColumnSelection(newColumnSelectionRange);
                 }
-                getActiveQuery().setQueriedTuples();
-                fireColumnSelectionChanged(newColumnSelectionRange);
+                handleColumnSelectionChange(query, newColumnSelectionRange);
             });
 //            ((CategoricalColumnSelection)newColumnSelectionRange).selectedCategoriesProperty().addListener((observable, oldValue, newValue) -> {
 //                getActiveQuery().setQueriedTuples();
@@ -779,10 +1256,9 @@ public class DataTable {
         } else if (newColumnSelectionRange instanceof ImageColumnSelection) {
             ((ImageColumnSelection)newColumnSelectionRange).selectedImagePairSetProperty().addListener((SetChangeListener<Pair<File, Image>>) change -> {
                 if (((ImageColumnSelection)newColumnSelectionRange).getSelectedImagePairs().isEmpty()) {
-                    getActiveQuery().removeColumnSelection(newColumnSelectionRange);
+                    query.removeColumnSelection(newColumnSelectionRange);
                 }
-                getActiveQuery().setQueriedTuples();
-                fireColumnSelectionChanged(newColumnSelectionRange);
+                handleColumnSelectionChange(query, newColumnSelectionRange);
             });
         }
     }
@@ -883,118 +1359,106 @@ public class DataTable {
     }
 
     public void changeColumnOrder(ArrayList<Column> newColumnOrder) {
-        // determine destination indices for new column order
-        int dstColumnIndices[] = new int[newColumnOrder.size()];
-        for (int i = 0; i < newColumnOrder.size(); i++) {
-            // find index of column in new column order
-            Column column = newColumnOrder.get(i);
-            dstColumnIndices[i] = columns.indexOf(column);
-        }
-
-        // reset columns array
+        // only the logical column order changes (column values and statistics are not touched)
         columns = newColumnOrder;
 
-        // rearrange column correlation coefficients
-        for (int iColumn = 0; iColumn < columns.size(); iColumn++) {
-            Column column = columns.get(iColumn);
-            if (column instanceof DoubleColumn) {
-                List<Double> currentCoefList = ((DoubleColumnSummaryStats)column.getStatistics()).getCorrelationCoefficientList();
-                ArrayList<Double> newCoefList = new ArrayList<>();
-                for (int i = 0; i < currentCoefList.size(); i++) {
-                    newCoefList.add(currentCoefList.get(dstColumnIndices[i]));
-                }
-                ((DoubleColumnSummaryStats)column.getStatistics()).setCorrelationCoefficientList(newCoefList);
-            }
-        }
-
-        // move tuple elements to reflect new column order
-        for (int iTuple = 0; iTuple < tuples.size(); iTuple++) {
-            Tuple tuple = tuples.get(iTuple);
-            Object elements[] = tuple.getElementsAsArray();
-            tuple.removeAllElements();
-
-            for (int iElement = 0; iElement < elements.length; iElement++) {
-                tuple.addElement(elements[dstColumnIndices[iElement]]);
-            }
-        }
-
-        // move query statistics to reflect new column order
-		if (getActiveQuery().hasColumnSelections()) {
-            for (int iColumn = 0; iColumn < columns.size(); iColumn++) {
-                Column column = columns.get(iColumn);
-                if (column instanceof DoubleColumn) {
-                    DoubleColumnSummaryStats summaryStats = (DoubleColumnSummaryStats)getActiveQuery().getColumnQuerySummaryStats(column);
-                    List<Double> corrCoef = summaryStats.getCorrelationCoefficientList();
-
-//                            ArrayList < Double > corrCoef = summaryStats.getCorrelationCoefficients();
-                    ArrayList<Double> newCorrCoef = new ArrayList<Double>();
-                    for (int iCorrCoef = 0; iCorrCoef < corrCoef.size(); iCorrCoef++) {
-                        newCorrCoef.add(corrCoef.get(dstColumnIndices[iCorrCoef]));
-                    }
-                    summaryStats.setCorrelationCoefficientList(newCorrCoef);
-//                    summaryStats.setCorrelationCoefficients(newCorrCoef);
-                }
-//				ArrayList<Histogram2DOLD> histogram2DList = summaryStats.getHistogram2DList();
-//				ArrayList<Histogram2DOLD> newHistogram2DList = new ArrayList<>();
-//				for (int i = 0; i < histogram2DList.size(); i++) {
-//					newHistogram2DList.add(histogram2DList.get(dstColumnIndices[i]));
-//				}
-//				summaryStats.setHistogram2DList(newHistogram2DList);
-            }
-        }
+        // rebuild the correlation coefficient lists from the coefficients cached for each column
+        updateCorrelationCoefficientLists();
+        getActiveQuery().updateCorrelationCoefficientLists();
 
         fireColumnOrderChanged();
     }
 
-    // get index of column and remove all tuple elements at this index
-    // add the tuple elements to a list of disabledColumnTuples for later enabling
-    private void removeTupleElementsForColumn(Column column) {
-        int columnIndex = columns.indexOf(column);
+    private void calculateStatistics() {
+        dataChanged();
+        // disabled columns are kept current so enabling a column does not need to recalculate statistics
+        ArrayList<Column> allColumns = new ArrayList<>(columns);
+        allColumns.addAll(disabledColumns);
+        calculateStatistics(allColumns);
+    }
 
-        for (int iTuple = 0; iTuple < tuples.size(); iTuple++) {
-            Tuple tuple = tuples.get(iTuple);
-            Object elementValue = tuple.getElement(columnIndex);
-            tuple.removeElement(columnIndex);
+    // calculates the statistics of the columns in parallel into statistics that are not observed yet and then sets
+    // them on the columns in one pass on this thread (the thread that owns the data table)
+    private void calculateStatistics(List<Column> statisticsColumns) {
+        long start = System.currentTimeMillis();
+        ColumnSummaryStats statistics[] = new ColumnSummaryStats[statisticsColumns.size()];
+        long times[] = ColumnStatisticsTask.invoke(statisticsColumns.size(), getTupleCount(),
+                parallelStatisticsValueThreshold,
+                i -> statistics[i] = statisticsColumns.get(i).prepareStatistics());
 
-            if (disabledColumnTuples.size() != tuples.size()) {
-                Tuple disabledTuple = new Tuple(this);
-                disabledTuple.addElement(elementValue);
-                disabledColumnTuples.add(disabledTuple);
-            } else {
-                Tuple disabledTuple = disabledColumnTuples.get(iTuple);
-                disabledTuple.addElement(elementValue);
-            }
+        LinkedHashMap<Column, Double> columnTimes = new LinkedHashMap<>();
+        for (int i = 0; i < statistics.length; i++) {
+            long columnStart = System.nanoTime();
+            statisticsColumns.get(i).setStatistics(statistics[i]);
+            columnTimes.put(statisticsColumns.get(i), (times[i] + System.nanoTime() - columnStart) / 1e6);
         }
-    }
-
-    private void addTupleElementsForDisabledColumn(Column column) {
-        int columnIndex = disabledColumns.indexOf(column);
-        if (columnIndex != -1) {
-            for (int iTuple = 0; iTuple < disabledColumnTuples.size(); iTuple++) {
-                Tuple disabledTuple = disabledColumnTuples.get(iTuple);
-                Object elementValue = disabledTuple.getElement(columnIndex);
-                disabledTuple.removeElement(columnIndex);
+        columnStatisticsTimes = Collections.unmodifiableMap(columnTimes);
 
-                if (disabledColumnTuples.size() != tuples.size()) {
-                    Tuple tuple = new Tuple(this);
-                    tuple.addElement(elementValue);
-                    tuples.add(tuple);
-                } else {
-                    Tuple tuple = tuples.get(iTuple);
-                    tuple.addElement(elementValue);
+        long elapsed = System.currentTimeMillis() - start;
+        log.fine("Calculating the statistics of " + statisticsColumns.size() + " columns took " + elapsed + " ms");
+    }
+
+    // returns the milliseconds the statistics of each column took the last time statistics were calculated from
+    // the column values (only the columns calculated that time; for diagnostics)
+    public Map<Column, Double> getColumnStatisticsTimes() {
+        return columnStatisticsTimes;
+    }
+
+    // invalidates the state derived from the rows (cached selection bitmaps, the preview sample, and the
+    // correlation co-moments)
+    private synchronized void dataChanged() {
+        dataVersion++;
+        rowSample = null;
+        correlationMatrix = null;
+    }
+
+    // returns the correlation co-moments of the enabled and disabled double columns over all rows, which the
+    // column, query, and non-query statistics derive their correlation coefficients from
+    synchronized CorrelationMatrix getCorrelationMatrix() {
+        if (correlationMatrix == null) {
+            ArrayList<Column> allColumns = new ArrayList<>(columns);
+            allColumns.addAll(disabledColumns);
+            correlationMatrix = CorrelationMatrix.create(allColumns, getTupleCount(), parallelQueryRowThreshold);
+        }
+        return correlationMatrix;
+    }
+
+    // returns a supplier of the correlation co-moments of all rows for the query worker, so they are built on the
+    // worker thread instead of the thread that owns the data table when the rows changed; the columns are captured
+    // now and the co-moments built by the supplier are kept unless the rows changed in the meantime
+    synchronized Supplier<CorrelationMatrix> getCorrelationMatrixSupplier() {
+        CorrelationMatrix matrix = correlationMatrix;
+        if (matrix != null) {
+            return () -> matrix;
+        }
+        ArrayList<Column> allColumns = new ArrayList<>(columns);
+        allColumns.addAll(disabledColumns);
+        int rowCount = getTupleCount();
+        int threshold = parallelQueryRowThreshold;
+        int version = dataVersion;
+        return () -> {
+            synchronized (this) {
+                if (correlationMatrix != null && dataVersion == version) {
+                    return correlationMatrix;
                 }
             }
-        }
+            CorrelationMatrix builtMatrix = CorrelationMatrix.create(allColumns, rowCount, threshold);
+            synchronized (this) {
+                if (correlationMatrix == null && dataVersion == version) {
+                    correlationMatrix = builtMatrix;
+                }
+            }
+            return builtMatrix;
+        };
     }
 
-    private void calculateStatistics() {
-        long start = System.currentTimeMillis();
+    // rebuilds the correlation coefficient lists of the column statistics for the current enabled columns
+    private void updateCorrelationCoefficientLists() {
         for (Column column : columns) {
-            column.calculateStatistics();
+            if (column instanceof DoubleColumn && column.getStatistics() != null) {
+                ((DoubleColumn)column).getStatistics().updateCorrelationCoefficientList();
+            }
         }
-
-        long elapsed = System.currentTimeMillis() - start;
-        log.info("Calling column.calculateStatistics for all columns took " + elapsed + " ms");
     }
 
     public void fireNumHistogramBinsChanged() {
@@ -1094,11 +1558,19 @@ public class DataTable {
     }
 
     public void fireColumnSelectionChanged(ColumnSelection columnSelectionRange) {
+        // the exact result replaces a preview of the selection change
+        queryPreview.set(null);
         for (DataTableListener listener : listeners) {
             listener.dataTableColumnSelectionChanged(this, columnSelectionRange);
         }
     }
 
+    public void fireActiveQueryChanged(Query previousActiveQuery) {
+        for (DataTableListener listener : listeners) {
+            listener.dataTableActiveQueryChanged(this, previousActiveQuery);
+        }
+    }
+
     public void fireQueryCleared() {
         for (DataTableListener listener : listeners) {
             listener.dataTableAllColumnSelectionsRemoved(this);
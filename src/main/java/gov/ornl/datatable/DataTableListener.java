@@ -21,6 +21,10 @@ public interface DataTableListener {
     // Called when the active query is reset with no selections (all selections are removed)
     public void dataTableAllColumnSelectionsRemoved(DataTable dataTable);
 
+    // Called when a saved query replaces the active query (the previous active query may be saved) or the
+    // selections of the active query are combined with another expression (the previous query is the active query)
+    public void dataTableActiveQueryChanged(DataTable dataTable, Query previousActiveQuery);
+
     // Called when selections for a particular column are removed from the active query
     public void dataTableAllColumnSelectionsForColumnRemoved(DataTable dataTable, Column column);
 
@@ -4,11 +4,33 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
+import java.util.function.IntToDoubleFunction;
 
 public class DoubleColumn extends Column {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // primitive storage for the column values (the first valueCount entries are valid)
+    private double values[] = new double[0];
+
+    // memory mapped storage that replaces the values array for tables larger than the heap (null if not used)
+    private MappedColumnStorage mappedValues;
+
+    // row indices sorted by ascending value (built lazily, extended when rows are appended, and compacted when
+    // rows are removed)
+    private int sortedRows[];
+
+    // positions in the sorted row index of the last lower context row + 1, the first upper context row,
+    // and the last upper context row + 1 for the current focus extents
+    private int focusLowerEnd = 0;
+    private int focusUpperStart = 0;
+    private int focusUpperEnd = 0;
+
     private DoubleColumnSummaryStats summaryStats;
     private DoubleProperty minimumScaleValue = new SimpleDoubleProperty(Double.NaN);
     private DoubleProperty maximumScaleValue = new SimpleDoubleProperty(Double.NaN);
@@ -19,23 +41,313 @@ public class DoubleColumn extends Column {
         super(name);
     }
 
-    public boolean setFocusContext(Tuple tuple, int elementIdx) {
-        if (((Double)tuple.getElement(elementIdx)) > getMaximumFocusValue()) {
-            getUpperContextTuples().add(tuple);
+    @Override
+    protected void calculateFocusStates() {
+        super.calculateFocusStates();
+        setFocusBoundaries();
+        setFocusStates(0, focusLowerEnd);
+        setFocusStates(focusUpperStart, focusUpperEnd);
+        focusRowCount = focusStates.length - focusLowerEnd - (focusUpperEnd - focusUpperStart);
+    }
+
+    @Override
+    protected void appendFocusStates(int firstNewRow) {
+        super.appendFocusStates(firstNewRow);
+        setFocusBoundaries();
+
+        // rows with values above the maximum focus value are upper context even if they are below the minimum
+        double minimumFocusValue = getMinimumFocusValue();
+        double maximumFocusValue = getMaximumFocusValue();
+        for (int row = firstNewRow; row < focusStates.length; row++) {
+            double value = getValue(row);
+            if (value > maximumFocusValue) {
+                focusStates[row] = UPPER_CONTEXT;
+                focusRowCount--;
+            } else if (value < minimumFocusValue) {
+                focusStates[row] = LOWER_CONTEXT;
+                focusRowCount--;
+            }
+        }
+    }
+
+    @Override
+    protected void updateFocusStates() {
+        int previousLowerEnd = focusLowerEnd;
+        int previousUpperStart = focusUpperStart;
+        setFocusBoundaries();
+
+        // only the rows between the previous and new boundaries in the sorted row index change state
+        updateFocusStates(Math.min(previousLowerEnd, focusLowerEnd), Math.max(previousLowerEnd, focusLowerEnd));
+        updateFocusStates(Math.min(previousUpperStart, focusUpperStart), Math.max(previousUpperStart, focusUpperStart));
+    }
+
+    // finds the positions in the sorted row index that separate the lower context, focus, and upper context rows
+    private void setFocusBoundaries() {
+        // rows with NaN values are sorted last and are always in focus
+        focusUpperEnd = getSortedRowsUpperBound(Double.POSITIVE_INFINITY);
+        focusUpperStart = Double.isNaN(getMaximumFocusValue()) ? focusUpperEnd : getSortedRowsUpperBound(getMaximumFocusValue());
+        focusLowerEnd = Double.isNaN(getMinimumFocusValue()) ? 0 :
+                Math.min(getSortedRowsLowerBound(getMinimumFocusValue()), focusUpperStart);
+    }
+
+    // returns the focus state for a position in the sorted row index
+    private byte getFocusStateAt(int position) {
+        if (position < focusLowerEnd) {
+            return LOWER_CONTEXT;
+        } else if (position >= focusUpperStart && position < focusUpperEnd) {
+            return UPPER_CONTEXT;
+        }
+        return FOCUS;
+    }
+
+    private void setFocusStates(int start, int end) {
+        for (int i = start; i < end; i++) {
+            focusStates[sortedRows[i]] = getFocusStateAt(i);
+        }
+    }
+
+    private void updateFocusStates(int start, int end) {
+        for (int i = start; i < end; i++) {
+            setFocusState(sortedRows[i], getFocusStateAt(i));
+        }
+    }
+
+    // returns the row indices ordered by ascending value (NaN values last); callers must not modify the array
+    protected int[] getSortedRows() {
+        if (sortedRows == null || sortedRows.length < valueCount) {
+            IntToDoubleFunction valueFunction = mappedValues != null ? mappedValues::getDouble : row -> values[row];
+            if (sortedRows == null) {
+                sortedRows = RowIndexSorter.sortByDouble(valueFunction, valueCount);
+            } else {
+                // rows were appended since the index was built so only the appended rows are sorted and merged
+                sortedRows = RowIndexSorter.extendByDouble(sortedRows, valueFunction, valueCount);
+            }
+        }
+        return sortedRows;
+    }
+
+    // returns the position in the sorted rows of the first row with a value that is not less than value
+    protected int getSortedRowsLowerBound(double value) {
+        int sortedRows[] = getSortedRows();
+        int low = 0;
+        int high = sortedRows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getValue(sortedRows[middle]) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // returns the position in the sorted rows of the first row with a value greater than value (or NaN)
+    protected int getSortedRowsUpperBound(double value) {
+        int sortedRows[] = getSortedRows();
+        int low = 0;
+        int high = sortedRows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getValue(sortedRows[middle]) <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // returns the heap value array (it may be longer than the value count) or null if the column uses memory mapped
+    // storage; callers must not modify the array
+    double[] getValueArray() {
+        return mappedValues != null ? null : values;
+    }
+
+    public double getValue(int row) {
+        return mappedValues != null ? mappedValues.getDouble(row) : values[row];
+    }
+
+    @Override
+    public Object getValueAt(int row) {
+        return getValue(row);
+    }
+
+    public void addValue(double value) {
+        if (mappedValues != null) {
+            mappedValues.ensureCapacity(valueCount + 1);
+            mappedValues.putDouble(valueCount++, value);
+        } else {
+            if (valueCount == values.length) {
+                ensureCapacity(Math.max(INITIAL_CAPACITY, values.length * 2));
+            }
+            values[valueCount++] = value;
+        }
+    }
+
+    @Override
+    protected void addValue(Object value) {
+        addValue(((Number)value).doubleValue());
+    }
+
+    @Override
+    protected void addMissingValue() {
+        addValue(Double.NaN);
+    }
+
+    @Override
+    protected void useMappedStorage(File directory) throws IOException {
+        if (mappedValues == null) {
+            mappedValues = new MappedColumnStorage(directory, getName());
+            mappedValues.ensureCapacity(valueCount);
+            for (int i = 0; i < valueCount; i++) {
+                mappedValues.putDouble(i, values[i]);
+            }
+            values = new double[0];
+        }
+    }
+
+    @Override
+    protected void closeMappedStorage() {
+        if (mappedValues != null) {
+            mappedValues.close();
+            mappedValues = null;
+            valueCount = 0;
+            sortedRows = null;
+        }
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (mappedValues != null) {
+            mappedValues.ensureCapacity(capacity);
+        } else if (capacity > values.length) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    @Override
+    protected void trimToSize() {
+        if (mappedValues == null && values.length != valueCount) {
+            values = Arrays.copyOf(values, valueCount);
+        }
+    }
+
+    @Override
+    protected boolean retainRows(int[] rows) {
+        // the moments and histogram bin counts of the retained values are derived from the statistics before the
+        // storage is compacted, aggregating the retained values or subtracting the removed values (whichever are
+        // fewer); statistics of values with NaN are calculated again
+        DoubleMoments retainedMoments = null;
+        int retainedBinCounts[] = null;
+        if (summaryStats != null && summaryStats.getMoments() != null && summaryStats.getMoments().getNaNCount() == 0) {
+            DoubleHistogram histogram = summaryStats.getHistogram();
+            retainedBinCounts = new int[histogram.getNumBins()];
+            if (2 * rows.length <= valueCount) {
+                retainedMoments = new DoubleMoments();
+                for (int row : rows) {
+                    addToAggregates(row, retainedMoments, histogram, retainedBinCounts);
+                }
+            } else {
+                DoubleMoments removedMoments = new DoubleMoments();
+                int removedBinCounts[] = new int[histogram.getNumBins()];
+                int i = 0;
+                for (int row = 0; row < valueCount; row++) {
+                    if (i < rows.length && rows[i] == row) {
+                        i++;
+                    } else {
+                        addToAggregates(row, removedMoments, histogram, removedBinCounts);
+                    }
+                }
+                retainedMoments = summaryStats.getMoments().copy();
+                retainedMoments.subtract(removedMoments);
+                for (int bin = 0; bin < retainedBinCounts.length; bin++) {
+                    retainedBinCounts[bin] = histogram.getBinCount(bin) - removedBinCounts[bin];
+                }
+            }
+        }
+
+        if (mappedValues != null) {
+            mappedValues.retain(rows);
+        } else {
+            // rows are ascending so each value moves to a position at or before its current one
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = values[rows[i]];
+            }
+        }
+        if (sortedRows != null && sortedRows.length == valueCount) {
+            sortedRows = RowIndexSorter.retain(sortedRows, rows, valueCount);
+        } else {
+            sortedRows = null;
+        }
+        valueCount = rows.length;
+
+        if (retainedMoments == null) {
+            return false;
+        }
+        summaryStats.setAggregatedStatistics(retainedMoments, retainedBinCounts);
+        return true;
+    }
+
+    @Override
+    protected boolean appendRows(int firstNewRow) {
+        // the moments and histogram bin counts of the appended values are merged into those of the previous values
+        // (the sorted row index is extended with the appended rows when the quartiles are read); statistics of
+        // values with NaN are calculated again
+        if (summaryStats == null || summaryStats.getMoments() == null || summaryStats.getMoments().getNaNCount() != 0 ||
+                summaryStats.getMoments().getCount() != firstNewRow) {
             return false;
-        } else if (((Double)tuple.getElement(elementIdx)) < getMinimumFocusValue()) {
-            getLowerContextTuples().add(tuple);
+        }
+        DoubleHistogram histogram = summaryStats.getHistogram();
+        DoubleMoments appendedMoments = new DoubleMoments();
+        int binCounts[] = new int[histogram.getNumBins()];
+        for (int row = firstNewRow; row < valueCount; row++) {
+            addToAggregates(row, appendedMoments, histogram, binCounts);
+        }
+        if (appendedMoments.getNaNCount() != 0) {
             return false;
         }
-        getFocusTuples().add(tuple);
+
+        DoubleMoments moments = summaryStats.getMoments().copy();
+        moments.merge(appendedMoments);
+        for (int bin = 0; bin < binCounts.length; bin++) {
+            binCounts[bin] += histogram.getBinCount(bin);
+        }
+        summaryStats.setAggregatedStatistics(moments, binCounts);
         return true;
     }
 
+    private void addToAggregates(int row, DoubleMoments moments, DoubleHistogram histogram, int binCounts[]) {
+        double value = getValue(row);
+        moments.add(value);
+        int binIndex = histogram.getBinIndex(value);
+        if (binIndex != -1) {
+            binCounts[binIndex]++;
+        }
+    }
+
     public void calculateStatistics() {
+        setStatistics(prepareStatistics());
+    }
+
+    @Override
+    ColumnSummaryStats prepareStatistics() {
+        DoubleColumnSummaryStats statistics = new DoubleColumnSummaryStats(this, getDataTable().getNumHistogramBins(),
+                null);
+        if (mappedValues != null) {
+            statistics.setRowsWithoutCorrelations(null, getDataTable().getNumHistogramBins());
+        } else {
+            statistics.setValuesWithoutCorrelations(getValues(), getDataTable().getNumHistogramBins());
+        }
+        return statistics;
+    }
+
+    @Override
+    void setStatistics(ColumnSummaryStats statistics) {
         if (summaryStats == null) {
-            summaryStats = new DoubleColumnSummaryStats(this, getDataTable().getNumHistogramBins(), null);
+            summaryStats = (DoubleColumnSummaryStats)statistics;
         }
-        summaryStats.setValues(getValues(), getDataTable().getNumHistogramBins());
+        summaryStats.setStatistics(statistics);
 
         if (Double.isNaN(getMinimumFocusValue())) {
             setMinimumFocusValue(summaryStats.getMinValue());
@@ -88,79 +400,76 @@ public class DoubleColumn extends Column {
 
     public ReadOnlyDoubleProperty maximumScaleValueProperty() { return maximumScaleValue; }
 
-    public double[] getValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-        if (columnIndex == -1) {
-            columnIndex = getDataTable().getDisabledColumns().indexOf(this);
-            double values[] = new double[getDataTable().getTupleCount()];
-            for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-                values[i] = (double) getDataTable().getDisabledTuple(i).getElement(columnIndex);
-            }
+    // returns true if the column values are in memory mapped storage (statistics then read the values one at a time
+    // instead of gathering them in heap arrays)
+    boolean hasMappedStorage() {
+        return mappedValues != null;
+    }
 
-            return values;
-        } else {
-            double values[] = new double[getDataTable().getTupleCount()];
-            for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-                values[i] = (double) getDataTable().getTuple(i).getElement(columnIndex);
+    // returns a copy of the column values (use getValueArray() to read heap values without copying them)
+    public double[] getValues() {
+        if (mappedValues != null) {
+            double copy[] = new double[valueCount];
+            for (int i = 0; i < valueCount; i++) {
+                copy[i] = mappedValues.getDouble(i);
             }
-
-            return values;
+            return copy;
         }
+        return Arrays.copyOf(values, valueCount);
     }
 
     public double[] getFocusValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-        if (columnIndex == -1) {
-            columnIndex = getDataTable().getDisabledColumns().indexOf(this);
-
-        }
-
-        double values[] = new double[getFocusTuples().size()];
+        double focusValues[] = new double[getFocusRowCount()];
         int counter = 0;
-        for (Tuple focusTuple : getFocusTuples()) {
-            values[counter++] = (double)focusTuple.getElement(columnIndex);
+        for (int row = 0; row < focusStates.length; row++) {
+            if (focusStates[row] == FOCUS) {
+                focusValues[counter++] = getValue(row);
+            }
         }
 
-        return values;
+        return focusValues;
     }
 
     public List<Double> getValuesAsList() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-
-        ArrayList<Double> valuesList = new ArrayList<>();
-        for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-            valuesList.add((double) getDataTable().getTuple(i).getElement(columnIndex));
+        ArrayList<Double> valuesList = new ArrayList<>(valueCount);
+        for (int i = 0; i < valueCount; i++) {
+            valuesList.add(getValue(i));
         }
 
         return valuesList;
     }
 
     public double[] getQueriedValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
+        return getQueriedValues(getDataTable().getActiveQuery());
+    }
 
-        Set<Tuple> queriedTuples = getDataTable().getActiveQuery().getQueriedTuples();
-        double values[] = new double[queriedTuples.size()];
+    public double[] getQueriedValues(Query query) {
+        BitSet queriedRows = query.getQueriedRows();
+        double queriedValues[] = new double[query.getQueriedTupleCount()];
 
         int counter = 0;
-        for (Tuple tuple : queriedTuples) {
-            values[counter++] = (Double) tuple.getElement(columnIndex);
+        for (int row = queriedRows.nextSetBit(0); row >= 0; row = queriedRows.nextSetBit(row + 1)) {
+            queriedValues[counter++] = getValue(row);
         }
 
-        return values;
+        return queriedValues;
     }
 
     public double[] getNonqueriedValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
+        return getNonqueriedValues(getDataTable().getActiveQuery());
+    }
 
-        Set<Tuple> nonqueriedTuples = getDataTable().getActiveQuery().getNonQueriedTuples();
-        double values[] = new double[nonqueriedTuples.size()];
+    public double[] getNonqueriedValues(Query query) {
+        BitSet queriedRows = query.getQueriedRows();
+        double nonqueriedValues[] = new double[query.getNonQueriedTupleCount()];
 
         int counter = 0;
-        for (Tuple tuple : nonqueriedTuples) {
-            values[counter++] = (Double) tuple.getElement(columnIndex);
+        int rowCount = query.getRowCount();
+        for (int row = queriedRows.nextClearBit(0); row < rowCount; row = queriedRows.nextClearBit(row + 1)) {
+            nonqueriedValues[counter++] = getValue(row);
         }
 
-        return values;
+        return nonqueriedValues;
     }
 
     public DoubleColumnSummaryStats getStatistics() { return summaryStats; }
@@ -3,9 +3,12 @@ package gov.ornl.datatable;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.function.IntToDoubleFunction;
 import java.util.logging.Logger;
 
 /**
@@ -14,8 +17,16 @@ import java.util.logging.Logger;
 public class DoubleColumnSummaryStats extends ColumnSummaryStats {
     private final static Logger log = Logger.getLogger(DoubleColumnSummaryStats.class.getName());
 
+    // percentiles of the quartile statistics
+    private static final double QUARTILE_PERCENTILES[] = {25., 50., 75.};
+
     private double[] values;
 
+    // moments of the values so the statistics can be updated when values are removed
+    private DoubleMoments moments;
+    // sketch the quartiles and whiskers were estimated from (null if they are exact)
+    private QuantileSketch quantileSketch;
+
     private DoubleProperty meanValue;
     private DoubleProperty minValue;
     private DoubleProperty maxValue;
@@ -31,6 +42,12 @@ public class DoubleColumnSummaryStats extends ColumnSummaryStats {
 
     private ListProperty<Double> correlationCoefficientList;
 
+    // correlation coefficients of the current values with other columns (kept while the values do not change so
+    // the coefficient list can be rebuilt cheaply when columns are enabled, disabled, or reordered)
+    private HashMap<Column, Double> correlationCoefficientMap = new HashMap<>();
+    // true if the coefficient list must be rebuilt before it is read
+    private boolean correlationCoefficientListStale = false;
+
     private ObjectProperty<DoubleHistogram> histogram;
 
     public DoubleColumnSummaryStats(Column column, int numHistogramBins, Query query) {
@@ -72,85 +89,370 @@ public class DoubleColumnSummaryStats extends ColumnSummaryStats {
         calculateStatistics();
     }
 
+    // sets the values and calculates the statistics of the values alone (the correlations with other columns are
+    // calculated when the statistics are copied with setStatistics())
+    void setValuesWithoutCorrelations(double[] values, int numHistogramBins) {
+        this.values = values;
+        this.numHistogramBins = numHistogramBins;
+        calculateValueStatistics();
+    }
+
+    // calculates the statistics of the values of the rows (all rows of the column if rows is null) like
+    // setValuesWithoutCorrelations() but reads the values from the column storage one at a time instead of
+    // gathering them, so the values of memory mapped columns are not copied to the heap; the quartiles and whiskers
+    // are estimated from a quantile sketch or read from the sorted row index
+    void setRowsWithoutCorrelations(BitSet rows, int numHistogramBins) {
+        DoubleColumn column = doubleColumn();
+        int rowCount = column.getValueCount();
+        values = null;
+        this.numHistogramBins = numHistogramBins;
+
+        double rankError = query != null ? query.getStatisticsSettings().getQuantileRankError() : 0.;
+        QuantileSketch sketch = rankError > 0. ? new QuantileSketch(rankError) : null;
+        moments = new DoubleMoments();
+        for (int row = rows == null ? 0 : rows.nextSetBit(0); row >= 0 && row < rowCount;
+             row = rows == null ? row + 1 : rows.nextSetBit(row + 1)) {
+            double value = column.getValue(row);
+            moments.add(value);
+            if (sketch != null) {
+                sketch.update(value);
+            }
+        }
+        moments.setStatistics(this);
+        if (sketch != null) {
+            setOrderStatistics(sketch::getValueAtRank, moments.getCount());
+        } else {
+            calculateOrderStatistics(column.getSortedRows(), rows, moments.getCount());
+        }
+        quantileSketch = sketch;
+
+        // query statistics are binned over the range of all values of the column
+        DoubleColumnSummaryStats rangeStats = query == null ? this : column.getStatistics();
+        DoubleHistogram binning = new DoubleHistogram(column.getName(), new int[numHistogramBins],
+                rangeStats.getMinValue(), rangeStats.getMaxValue());
+        int binCounts[] = new int[numHistogramBins];
+        for (int row = rows == null ? 0 : rows.nextSetBit(0); row >= 0 && row < rowCount;
+             row = rows == null ? row + 1 : rows.nextSetBit(row + 1)) {
+            int binIndex = binning.getBinIndex(column.getValue(row));
+            if (binIndex != -1) {
+                binCounts[binIndex]++;
+            }
+        }
+        setHistogram(new DoubleHistogram(column.getName(), binCounts, rangeStats.getMinValue(),
+                rangeStats.getMaxValue()));
+    }
+
     public double[] getValues() {
+        if (values == null) {
+            // statistics set from aggregates gather the values when they are first needed
+            values = query == null ? doubleColumn().getValues() : nonquery ? doubleColumn().getNonqueriedValues(query) :
+                    doubleColumn().getQueriedValues(query);
+        }
         return values;
     }
 
+    // returns the moments of the values (callers must copy them before changing them)
+    DoubleMoments getMoments() {
+        return moments;
+    }
+
+    // sets the moments of the values and the mean, variance, standard deviation, skewness and kurtosis from them
+    // (the statistics keep the moments, so callers must not change them afterwards)
+    void setMoments(DoubleMoments moments) {
+        this.moments = moments;
+        moments.setStatistics(this);
+    }
+
+    // returns the sketch the quartiles and whiskers were estimated from (null if they are exact)
+    QuantileSketch getQuantileSketch() {
+        return quantileSketch;
+    }
+
+    // drops the values of statistics that were set from aggregates maintained for the query result or the
+    // retained rows of the column; correlations are calculated again from the values when they are requested
+    void clearValues() {
+        values = null;
+        clearCorrelations();
+    }
+
+    // drops the correlation coefficients; they are calculated again when the coefficient list is next read
+    void clearCorrelations() {
+        correlationCoefficientMap.clear();
+        correlationCoefficientListStale = true;
+    }
+
     @Override
     public void calculateStatistics() {
-        DescriptiveStatistics stats = new DescriptiveStatistics(values);
-
-        setMinValue(stats.getMin());
-        setMaxValue(stats.getMax());
-        setMeanValue(stats.getMean());
-        setMedianValue(stats.getPercentile(50));
-        setVarianceValue(stats.getVariance());
-        setStandardDeviationValue(stats.getStandardDeviation());
-        setPercentile25Value(stats.getPercentile(25));
-        setPercentile75Value(stats.getPercentile(75));
-        setSkewnessValue(stats.getSkewness());
-        setKurtosisValue(stats.getKurtosis());
-
-        // calculate whiskers for box plot 1.5 of IQR
-        double iqr_range = 1.5 * getIQR();
-        double lowerFence = getPercentile25Value() - iqr_range;
-        double upperFence = getPercentile75Value() + iqr_range;
-        double sorted_data[] = stats.getSortedValues();
-
-        // find upper datum that is not greater than upper fence
-        if (upperFence >= getMaxValue()) {
-            setUpperWhiskerValue(getMaxValue());
+        calculateValueStatistics();
+        calculateCorrelations();
+    }
+
+    private void calculateValueStatistics() {
+        // moments in one pass; the order statistics of query statistics are estimated from a quantile sketch
+        // unless exact quantiles are requested, and are otherwise found by selection without sorting the values
+        moments = DoubleMoments.of(values, 0, values.length);
+        moments.setStatistics(this);
+
+        double rankError = query != null ? query.getStatisticsSettings().getQuantileRankError() : 0.;
+        if (rankError > 0.) {
+            quantileSketch = QuantileSketch.of(values, 0, values.length, rankError);
+            setOrderStatistics(rank -> quantileSketch.getValueAtRank(rank), moments.getCount());
         } else {
-            // find largest datum not larger than upper fence value
-            for (int i = sorted_data.length - 1; i >= 0; i--) {
-                if (sorted_data[i] <= upperFence) {
-                    setUpperWhiskerValue(sorted_data[i]);
-                    break;
-                }
+            quantileSketch = null;
+            RankSelector rankSelector = new RankSelector(values);
+            setOrderStatistics(rankSelector::getValueAtRank, rankSelector.getCount());
+        }
+
+        calculateHistogram();
+    }
+
+    @Override
+    void setStatistics(ColumnSummaryStats statistics) {
+        DoubleColumnSummaryStats stats = (DoubleColumnSummaryStats)statistics;
+        if (stats != this) {
+            values = stats.values;
+            nonquery = stats.nonquery;
+            numHistogramBins = stats.numHistogramBins;
+            moments = stats.moments;
+            quantileSketch = stats.quantileSketch;
+            setMeanValue(stats.getMeanValue());
+            setVarianceValue(stats.getVarianceValue());
+            setStandardDeviationValue(stats.getStandardDeviationValue());
+            setSkewnessValue(stats.getSkewnessValue());
+            setKurtosisValue(stats.getKurtosisValue());
+            setMinValue(stats.getMinValue());
+            setMaxValue(stats.getMaxValue());
+            setPercentile25Value(stats.getPercentile25Value());
+            setMedianValue(stats.getMedianValue());
+            setPercentile75Value(stats.getPercentile75Value());
+            setUpperWhiskerValue(stats.getUpperWhiskerValue());
+            setLowerWhiskerValue(stats.getLowerWhiskerValue());
+            setHistogram(stats.getHistogram());
+        }
+        calculateCorrelations();
+    }
+
+    // sets the statistics of a column after rows were removed from or appended to its storage from the moments and
+    // histogram bin counts of its values and its compacted or extended sorted row index, so the values are not
+    // sorted again (the bin counts are ignored and the values binned again if the value range changed)
+    void setAggregatedStatistics(DoubleMoments aggregatedMoments, int aggregatedBinCounts[]) {
+        moments = aggregatedMoments;
+        quantileSketch = null;
+        moments.setStatistics(this);
+        calculateOrderStatistics(doubleColumn().getSortedRows(), null, moments.getCount());
+
+        clearValues();
+        DoubleHistogram histogram = getHistogram();
+        if (histogram.getNumBins() == numHistogramBins && histogram.getMinValue() == getMinValue() &&
+                histogram.getMaxValue() == getMaxValue()) {
+            setHistogram(new DoubleHistogram(column.getName(), aggregatedBinCounts, getMinValue(), getMaxValue()));
+        } else {
+            calculateHistogram();
+        }
+    }
+
+    // sets the statistics of the rows the query does not select from the statistics of all rows of the column and
+    // the query statistics without gathering the values of the rows: the histogram bin counts of the query are
+    // subtracted from those of all rows, the query moments are subtracted from the moments of all rows unless the
+    // rows are fewer than the queried rows (their moments are then aggregated directly to avoid cancellation), and
+    // the quartiles and whiskers, which cannot be subtracted, are read exactly from the sorted row index; returns
+    // false if the statistics of all rows are not current with the rows of the query
+    boolean setNonqueryStatistics(DoubleColumnSummaryStats columnStats, DoubleColumnSummaryStats queryStats,
+                                  BitSet nonqueriedRows, int rowCount) {
+        DoubleMoments columnMoments = columnStats.getMoments();
+        DoubleMoments queryMoments = queryStats.getMoments();
+        if (columnMoments == null || queryMoments == null ||
+                columnMoments.getCount() + columnMoments.getNaNCount() != rowCount) {
+            return false;
+        }
+
+        DoubleColumn column = doubleColumn();
+        values = null;
+        if (2 * (queryMoments.getCount() + queryMoments.getNaNCount()) < rowCount) {
+            moments = columnMoments.copy();
+            moments.subtract(queryMoments);
+        } else {
+            moments = new DoubleMoments();
+            for (int row = nonqueriedRows.nextSetBit(0); row >= 0 && row < rowCount;
+                 row = nonqueriedRows.nextSetBit(row + 1)) {
+                moments.add(column.getValue(row));
+            }
+        }
+        moments.setStatistics(this);
+        calculateOrderStatistics(column.getSortedRows(), nonqueriedRows, moments.getCount());
+
+        DoubleHistogram columnHistogram = columnStats.getHistogram();
+        DoubleHistogram queryHistogram = queryStats.getHistogram();
+        if (columnHistogram.getNumBins() == numHistogramBins && queryHistogram.getNumBins() == numHistogramBins &&
+                columnHistogram.getMinValue() == queryHistogram.getMinValue() &&
+                columnHistogram.getMaxValue() == queryHistogram.getMaxValue()) {
+            int binCounts[] = new int[numHistogramBins];
+            for (int bin = 0; bin < numHistogramBins; bin++) {
+                binCounts[bin] = columnHistogram.getBinCount(bin) - queryHistogram.getBinCount(bin);
             }
+            setHistogram(new DoubleHistogram(column.getName(), binCounts, columnHistogram.getMinValue(),
+                    columnHistogram.getMaxValue()));
+        } else {
+            calculateHistogram();
+        }
+        return true;
+    }
+
+    // sets the minimum, maximum, quartiles and whiskers of the count values of the rows (all rows if rows is
+    // null) from the sorted row index of the column (values are read in sorted order and not sorted again)
+    void calculateOrderStatistics(int sortedRows[], BitSet rows, int count) {
+        DoubleColumn column = doubleColumn();
+        quantileSketch = null;
+        if (rows == null) {
+            setOrderStatistics(rank -> column.getValue(sortedRows[rank]), count);
+            return;
         }
 
-        if (lowerFence <= getMinValue()) {
-            setLowerWhiskerValue(getMinValue());
+        double rankValues[] = new double[count];
+        int rank = 0;
+        for (int i = 0; i < sortedRows.length && rank < count; i++) {
+            if (rows.get(sortedRows[i])) {
+                rankValues[rank++] = column.getValue(sortedRows[i]);
+            }
+        }
+        setOrderStatistics(rankIndex -> rankValues[rankIndex], count);
+    }
+
+    // sets the minimum, maximum, quartiles and whiskers of count values exactly from a function that returns the
+    // value at each ascending rank
+    void setExactOrderStatistics(IntToDoubleFunction rankValues, int count) {
+        quantileSketch = null;
+        setOrderStatistics(rankValues, count);
+    }
+
+    // sets the minimum, maximum, quartiles and whiskers of count values from their values by ascending rank
+    private void setOrderStatistics(IntToDoubleFunction rankValues, int count) {
+        if (count == 0) {
+            setMinValue(Double.NaN);
+            setMaxValue(Double.NaN);
+            setPercentile25Value(Double.NaN);
+            setMedianValue(Double.NaN);
+            setPercentile75Value(Double.NaN);
+            setUpperWhiskerValue(Double.NaN);
+            setLowerWhiskerValue(Double.NaN);
+            return;
+        }
+
+        double minValue = rankValues.applyAsDouble(0);
+        double maxValue = rankValues.applyAsDouble(count - 1);
+        setMinValue(minValue);
+        setMaxValue(maxValue);
+        setPercentile25Value(getPercentile(rankValues, count, QUARTILE_PERCENTILES[0]));
+        setMedianValue(getPercentile(rankValues, count, QUARTILE_PERCENTILES[1]));
+        setPercentile75Value(getPercentile(rankValues, count, QUARTILE_PERCENTILES[2]));
+
+        // whiskers for box plot at the most extreme values within 1.5 times the interquartile range of the quartiles
+        double iqrRange = 1.5 * getIQR();
+        double upperFence = getPercentile75Value() + iqrRange;
+        double lowerFence = getPercentile25Value() - iqrRange;
+        if (upperFence >= maxValue) {
+            setUpperWhiskerValue(maxValue);
+        } else {
+            // largest value not greater than the upper fence
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (rankValues.applyAsDouble(middle) <= upperFence) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            setUpperWhiskerValue(rankValues.applyAsDouble(Math.max(low - 1, 0)));
+        }
+        if (lowerFence <= minValue) {
+            setLowerWhiskerValue(minValue);
         } else {
-            // find smallest datum not less than lower fence value
-            for (int i = 0; i < sorted_data.length; i++) {
-                if (sorted_data[i] >= lowerFence) {
-                    setLowerWhiskerValue(sorted_data[i]);
-                    break;
+            // smallest value not less than the lower fence
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (rankValues.applyAsDouble(middle) < lowerFence) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
                 }
             }
+            setLowerWhiskerValue(rankValues.applyAsDouble(Math.min(low, count - 1)));
         }
+    }
 
-        calculateHistogram();
-        calculateCorrelations();
+    // legacy percentile estimation of DescriptiveStatistics
+    private static double getPercentile(IntToDoubleFunction rankValues, int count, double percentile) {
+        double position = percentile * (count + 1) / 100.;
+        if (position < 1.) {
+            return rankValues.applyAsDouble(0);
+        } else if (position >= count) {
+            return rankValues.applyAsDouble(count - 1);
+        }
+        int lowerRank = (int)Math.floor(position) - 1;
+        double lowerValue = rankValues.applyAsDouble(lowerRank);
+        return lowerValue + (position - Math.floor(position)) * (rankValues.applyAsDouble(lowerRank + 1) - lowerValue);
     }
 
     private void calculateCorrelations() {
-        correlationCoefficientList.clear();
-        PearsonsCorrelation pCorr = new PearsonsCorrelation();
-
-        for (int icol = 0; icol < getColumn().getDataTable().getColumns().size(); icol++) {
-            Column otherColumn = getColumn().getDataTable().getColumn(icol);
-            double coefficient = Double.NaN;
-            if ((otherColumn == this.column) &&  (values.length > 1)) {
-                // no need to computer correlation with itself
-                coefficient = 1d;
-            } else if ((otherColumn instanceof DoubleColumn) && (values.length > 1)) {
-                if (query == null) {
-                    coefficient = pCorr.correlation(values, ((DoubleColumn) otherColumn).getValues());
+        // coefficients computed for the previous values are no longer valid
+        correlationCoefficientMap.clear();
+        updateCorrelationCoefficientList();
+    }
+
+    // rebuilds the correlation coefficient list for the current enabled columns of the data table (only
+    // coefficients with columns that have not been correlated with the current values are calculated)
+    public void updateCorrelationCoefficientList() {
+        correlationCoefficientListStale = false;
+        List<Column> columns = getColumn().getDataTable().getColumns();
+        ArrayList<Double> coefficients = new ArrayList<>(columns.size());
+        for (Column otherColumn : columns) {
+            coefficients.add(getCorrelationCoefficient(otherColumn));
+        }
+        correlationCoefficientList.setAll(coefficients);
+    }
+
+    // returns the correlation coefficient of the current values with another column (independent of column order)
+    public double getCorrelationCoefficient(Column otherColumn) {
+        Double coefficient = correlationCoefficientMap.get(otherColumn);
+        if (coefficient == null) {
+            coefficient = calculateCorrelationCoefficient(otherColumn);
+            correlationCoefficientMap.put(otherColumn, coefficient);
+        }
+        return coefficient;
+    }
+
+    private double calculateCorrelationCoefficient(Column otherColumn) {
+        // coefficients of columns without NaN values are derived from the co-moments shared by all columns
+        CorrelationMatrix matrix = query == null ? getColumn().getDataTable().getCorrelationMatrix() :
+                query.getCorrelationMatrix(this);
+        if (matrix != null && matrix.contains(column) && matrix.contains(otherColumn)) {
+            return matrix.getCorrelationCoefficient(column, otherColumn);
+        }
+
+        double values[] = getValues();
+        double coefficient = Double.NaN;
+        if ((otherColumn == this.column) &&  (values.length > 1)) {
+            // no need to computer correlation with itself
+            coefficient = 1d;
+        } else if ((otherColumn instanceof DoubleColumn) && (values.length > 1)) {
+            PearsonsCorrelation pCorr = new PearsonsCorrelation();
+            if (query == null) {
+                coefficient = pCorr.correlation(values, ((DoubleColumn) otherColumn).getValues());
+            } else {
+                if (((DoubleColumn)otherColumn).getQueriedValues(query).length == values.length) {
+                    coefficient = pCorr.correlation(values, ((DoubleColumn) otherColumn).getQueriedValues(query));
+                } else if (((DoubleColumn)otherColumn).getNonqueriedValues(query).length == values.length) {
+                    coefficient = pCorr.correlation(values, ((DoubleColumn) otherColumn).getNonqueriedValues(query));
                 } else {
-                    if (((DoubleColumn)otherColumn).getQueriedValues().length == values.length) {
-                        coefficient = pCorr.correlation(values, ((DoubleColumn) otherColumn).getQueriedValues());
-                    } else if (((DoubleColumn)otherColumn).getNonqueriedValues().length == values.length) {
-                        coefficient = pCorr.correlation(values, ((DoubleColumn) otherColumn).getNonqueriedValues());
-                    } else {
-                        coefficient = Double.NaN;
-                    }
+                    coefficient = Double.NaN;
                 }
             }
-            correlationCoefficientList.add(coefficient);
         }
+        return coefficient;
     }
 
     private DoubleColumn doubleColumn() {
@@ -159,9 +461,10 @@ public class DoubleColumnSummaryStats extends ColumnSummaryStats {
 
     @Override
     public void calculateHistogram() {
-        setHistogram(new DoubleHistogram(column.getName(), values, numHistogramBins,
-                doubleColumn().getStatistics().getMinValue(),
-                doubleColumn().getStatistics().getMaxValue()));
+        // query statistics are binned over the range of all values of the column
+        DoubleColumnSummaryStats rangeStats = query == null ? this : doubleColumn().getStatistics();
+        setHistogram(new DoubleHistogram(column.getName(), getValues(), numHistogramBins,
+                rangeStats.getMinValue(), rangeStats.getMaxValue()));
     }
 
     public DoubleHistogram getHistogram() {
@@ -192,11 +495,14 @@ public class DoubleColumnSummaryStats extends ColumnSummaryStats {
     }
 
     public ListProperty<Double> correlationCoefficientListProperty() {
+        if (correlationCoefficientListStale) {
+            updateCorrelationCoefficientList();
+        }
         return correlationCoefficientList;
     }
 
     public List<Double> getCorrelationCoefficientList() {
-        return correlationCoefficientList.get();
+        return correlationCoefficientListProperty().get();
     }
 
     public void setCorrelationCoefficientList(List<Double> newCorrelationCoefficientList) {
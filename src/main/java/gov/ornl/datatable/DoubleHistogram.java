@@ -40,6 +40,19 @@ public class DoubleHistogram extends Histogram {
         calculateStatistics();
     }
 
+    // creates a histogram from bin counts that were accumulated elsewhere (the histogram keeps no values)
+    public DoubleHistogram(String name, int binCounts[], double min, double max) {
+        super(name);
+
+        values = new double[0];
+        numBins = binCounts.length;
+        minValue = min;
+        maxValue = max;
+        binSize = (maxValue - minValue) / numBins;
+        this.binCounts = binCounts;
+        maxBinCount = Arrays.stream(binCounts).max().orElse(0);
+    }
+
     public int getBinCount(int i) {
         return binCounts[i];
     }
@@ -115,18 +128,8 @@ public class DoubleHistogram extends Histogram {
         binSize = (maxValue - minValue) / numBins;
 
         for (double value : values) {
-            int binIndex = (int)((value - minValue) / binSize);
-            if (binIndex < 0) {
-                // the value is smaller than the minValue
-            } else if (binIndex >= numBins) {
-                // if the value is equal to the max value increment the last bin
-                if ((Math.abs(value - maxValue)) <= EPSILON) {
-                    binCounts[numBins-1]++;
-                    if (binCounts[numBins-1] > maxBinCount) {
-                        maxBinCount = binCounts[numBins-1];
-                    }
-                }
-            } else {
+            int binIndex = getBinIndex(value);
+            if (binIndex != -1) {
                 binCounts[binIndex]++;
                 if (binCounts[binIndex] > maxBinCount) {
                     maxBinCount = binCounts[binIndex];
@@ -135,6 +138,19 @@ public class DoubleHistogram extends Histogram {
         }
     }
 
+    // returns the bin a value is counted in or -1 if the value is outside of the histogram range
+    public int getBinIndex(double value) {
+        int binIndex = (int)((value - minValue) / binSize);
+        if (binIndex < 0) {
+            // the value is smaller than the minValue
+            return -1;
+        } else if (binIndex >= numBins) {
+            // if the value is equal to the max value it goes in the last bin
+            return (Math.abs(value - maxValue)) <= EPSILON ? numBins - 1 : -1;
+        }
+        return binIndex;
+    }
+
     public static void main (String args[]) {
         double values[] = new double[] {162, 168, 177, 147, 189, 171, 173, 168, 178,
                 184, 165, 173, 179, 166, 168, 165, 140, 190};
@@ -0,0 +1,224 @@
+package gov.ornl.datatable;
+
+/**
+ * One-pass accumulator of the count, mean, second to fourth central moments, minimum and maximum of a set
+ * of double values from which the mean, variance, skewness and kurtosis of the values are derived.  Values
+ * are added with numerically stable Welford-style updates, so no values are kept or sorted.  The moments of
+ * disjoint sets of values can be merged (e.g. for partitions of the rows computed in parallel) and the
+ * moments of a subset can be subtracted, so the moments of a changing set of values are updated in time
+ * proportional to the values that change instead of the size of the set.  NaN values are counted but not
+ * accumulated.  The minimum and maximum cannot be subtracted and are unknown (NaN) once values are removed.
+ */
+class DoubleMoments {
+    // relative size of the rounding error in the second central moment left after values are removed
+    private static final double RELATIVE_ROUNDING_ERROR = 1e-12;
+
+    private int count;
+    private int nanCount;
+    private double mean;
+    private double m2;
+    private double m3;
+    private double m4;
+    private double minValue = Double.NaN;
+    private double maxValue = Double.NaN;
+    // largest second central moment the moments were derived from (bounds the rounding error of removals)
+    private double m2Bound;
+
+    DoubleMoments() { }
+
+    // returns the moments of values from index from to to - 1
+    static DoubleMoments of(double values[], int from, int to) {
+        DoubleMoments moments = new DoubleMoments();
+        for (int i = from; i < to; i++) {
+            moments.add(values[i]);
+        }
+        return moments;
+    }
+
+    // returns a copy of the moments that is updated independently
+    DoubleMoments copy() {
+        DoubleMoments moments = new DoubleMoments();
+        moments.count = count;
+        moments.nanCount = nanCount;
+        moments.mean = mean;
+        moments.m2 = m2;
+        moments.m3 = m3;
+        moments.m4 = m4;
+        moments.minValue = minValue;
+        moments.maxValue = maxValue;
+        moments.m2Bound = m2Bound;
+        return moments;
+    }
+
+    void add(double value) {
+        if (Double.isNaN(value)) {
+            nanCount++;
+            return;
+        }
+
+        double n = ++count;
+        double delta = value - mean;
+        double deltaN = delta / n;
+        double term = delta * deltaN * (n - 1.);
+        mean += deltaN;
+        m4 += term * deltaN * deltaN * (n * n - 3. * n + 3.) + 6. * deltaN * deltaN * m2 - 4. * deltaN * m3;
+        m3 += term * deltaN * (n - 2.) - 3. * deltaN * m2;
+        m2 += term;
+        m2Bound = Math.max(m2Bound, m2);
+
+        if (count == 1) {
+            minValue = maxValue = value;
+        } else if (!Double.isNaN(minValue)) {
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+        }
+    }
+
+    // removes a value that was added before
+    void remove(double value) {
+        if (Double.isNaN(value)) {
+            nanCount--;
+            return;
+        }
+        DoubleMoments moments = new DoubleMoments();
+        moments.add(value);
+        subtract(moments);
+    }
+
+    // adds the moments of a set of values disjoint from the values of these moments
+    void merge(DoubleMoments other) {
+        if (other.count == 0) {
+            nanCount += other.nanCount;
+            return;
+        }
+        if (count == 0) {
+            int nanCount = this.nanCount;
+            set(other);
+            this.nanCount += nanCount;
+            return;
+        }
+        nanCount += other.nanCount;
+
+        double na = count;
+        double nb = other.count;
+        double n = na + nb;
+        double delta = other.mean - mean;
+        double delta2 = delta * delta;
+        double newM2 = m2 + other.m2 + delta2 * na * nb / n;
+        double newM3 = m3 + other.m3 + delta2 * delta * na * nb * (na - nb) / (n * n) +
+                3. * delta * (na * other.m2 - nb * m2) / n;
+        double newM4 = m4 + other.m4 + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n) +
+                6. * delta2 * (na * na * other.m2 + nb * nb * m2) / (n * n) +
+                4. * delta * (na * other.m3 - nb * m3) / n;
+
+        count += other.count;
+        mean += delta * nb / n;
+        m2 = newM2;
+        m3 = newM3;
+        m4 = newM4;
+        m2Bound = Math.max(Math.max(m2Bound, other.m2Bound), m2);
+        // Math.min and Math.max return NaN if either value is unknown
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    // removes the moments of a subset of the values of these moments (the inverse of merge)
+    void subtract(DoubleMoments other) {
+        nanCount -= other.nanCount;
+        if (other.count == 0) {
+            return;
+        }
+        if (other.count >= count) {
+            int nanCount = this.nanCount;
+            set(new DoubleMoments());
+            this.nanCount = nanCount;
+            return;
+        }
+
+        double n = count;
+        double nb = other.count;
+        double na = n - nb;
+        double meanA = (n * mean - nb * other.mean) / na;
+        double delta = other.mean - meanA;
+        double delta2 = delta * delta;
+        double m2A = m2 - other.m2 - delta2 * na * nb / n;
+        double m3A = m3 - other.m3 - delta2 * delta * na * nb * (na - nb) / (n * n) -
+                3. * delta * (na * other.m2 - nb * m2A) / n;
+        double m4A = m4 - other.m4 - delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n) -
+                6. * delta2 * (na * na * other.m2 + nb * nb * m2A) / (n * n) -
+                4. * delta * (na * other.m3 - nb * m3A) / n;
+
+        count -= other.count;
+        mean = meanA;
+        m2 = Math.max(m2A, 0.);
+        m3 = m3A;
+        m4 = Math.max(m4A, 0.);
+        m2Bound = Math.max(m2Bound, other.m2Bound);
+        minValue = Double.NaN;
+        maxValue = Double.NaN;
+    }
+
+    private void set(DoubleMoments other) {
+        count = other.count;
+        nanCount = other.nanCount;
+        mean = other.mean;
+        m2 = other.m2;
+        m3 = other.m3;
+        m4 = other.m4;
+        minValue = other.minValue;
+        maxValue = other.maxValue;
+        m2Bound = other.m2Bound;
+    }
+
+    // number of values that are not NaN
+    int getCount() {
+        return count;
+    }
+
+    int getNaNCount() {
+        return nanCount;
+    }
+
+    // mean of the values that are not NaN
+    double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    // minimum of the values that are not NaN (NaN if values were removed)
+    double getMinValue() {
+        return minValue;
+    }
+
+    // maximum of the values that are not NaN (NaN if values were removed)
+    double getMaxValue() {
+        return maxValue;
+    }
+
+    // sets the mean, variance, standard deviation, skewness and kurtosis of the statistics from the moments
+    // (NaN if any value is NaN, as calculated by DescriptiveStatistics)
+    void setStatistics(DoubleColumnSummaryStats stats) {
+        if (nanCount > 0) {
+            stats.setMeanValue(Double.NaN);
+            stats.setVarianceValue(Double.NaN);
+            stats.setStandardDeviationValue(Double.NaN);
+            stats.setSkewnessValue(Double.NaN);
+            stats.setKurtosisValue(Double.NaN);
+            return;
+        }
+
+        double n = count;
+        // the values are all equal if the second moment is within the rounding error of removed values
+        double m2 = this.m2 <= RELATIVE_ROUNDING_ERROR * m2Bound ? 0. : this.m2;
+        double variance = count == 0 ? Double.NaN : count == 1 ? 0. : m2 / (n - 1.);
+
+        stats.setMeanValue(getMean());
+        stats.setVarianceValue(variance);
+        stats.setStandardDeviationValue(Math.sqrt(variance));
+        // bias corrected estimates as calculated by DescriptiveStatistics (undefined for equal values)
+        stats.setSkewnessValue(count < 3 || variance == 0. ? Double.NaN :
+                (n / ((n - 1.) * (n - 2.))) * m3 / (variance * Math.sqrt(variance)));
+        stats.setKurtosisValue(count < 4 || variance == 0. ? Double.NaN :
+                (n * (n + 1.)) / ((n - 1.) * (n - 2.) * (n - 3.)) * m4 / (variance * variance) -
+                3. * (n - 1.) * (n - 1.) / ((n - 2.) * (n - 3.)));
+    }
+}
@@ -283,8 +283,10 @@ public class IOUtilities {
                                DataTable dataTable) throws IOException {
         BufferedReader reader = new BufferedReader(new FileReader(f));
 
-        ArrayList<Tuple> tuples = new ArrayList<>();
         ArrayList<Column> columns = new ArrayList<>();
+        int numRows = 0;
+        double doubleValues[] = null;
+        Object objectValues[] = null;
 
         int temporalColumnIndices[] = null;
         if (temporalColumnNames != null && !temporalColumnNames.isEmpty()) {
@@ -373,6 +375,10 @@ public class IOUtilities {
                         column = new DoubleColumn(token.trim());
                     }
 
+                    if (dataTable.getColumnStorageDirectory() != null) {
+                        column.useMappedStorage(dataTable.getColumnStorageDirectory());
+                    }
+
                     columns.add(column);
 
 //					if (temporalColumnName != null && token.equals(temporalColumnName)) {
@@ -391,7 +397,13 @@ public class IOUtilities {
                 continue;
             }
 
-            Tuple tuple = new Tuple(dataTable);
+            if (doubleValues == null) {
+                // scratch arrays holding the parsed values of the current line
+                doubleValues = new double[columns.size()];
+                objectValues = new Object[columns.size()];
+            }
+            int elementCount = 0;
+
             StringTokenizer st = new StringTokenizer(line);
 
             int tokenCounter = 0;
@@ -415,6 +427,12 @@ public class IOUtilities {
                     }
                 }
 
+                if (elementCount == columns.size()) {
+                    // more values than columns
+                    elementCount++;
+                    break;
+                }
+
                 if (temporalColumnIndices != null) {
                     Instant instant = null;
 
@@ -429,17 +447,12 @@ public class IOUtilities {
                             } catch (DateTimeParseException ex) {
                                 instant = Instant.parse(token);
                             }
-
-//                            instant = localDateTime.toInstant(ZoneOffset.UTC);
-//                            tuple.addElement(instant);
-//                            tokenCounter++;
                             break;
-//                            tuple.setInstant(instant);
                         }
                     }
 
                     if (instant != null) {
-                        tuple.addElement(instant);
+                        objectValues[elementCount++] = instant;
                         tokenCounter++;
                         continue;
                     }
@@ -452,14 +465,12 @@ public class IOUtilities {
                     for (int i = 0; i < categoricalColumnIndices.length; i++) {
                         if (tokenCounter == categoricalColumnIndices[i]) {
                             category = token.trim();
-//							((CategoricalColumn)columns.get(tokenCounter)).addCategory(category);
-                            ((CategoricalColumn)columns.get(tuple.getElementCount())).addCategory(category);
                             break;
                         }
                     }
 
                     if (category != null) {
-                        tuple.addElement(category);
+                        objectValues[elementCount++] = category;
                         tokenCounter++;
                         continue;
                     }
@@ -469,11 +480,7 @@ public class IOUtilities {
                     File imageFile = new File(imageFileDirectoryPath, token.trim());
                     Image image = new Image(new FileInputStream(imageFile));
                     Pair<File,Image> imagePair = new Pair<>(imageFile, image);
-//					Object imageInfo[] = new Object[2];
-//					imageInfo[0] = imageFile;
-//					imageInfo[1] = image;
-//					tuple.addElement(imageInfo);
-                    tuple.addElement(imagePair);
+                    objectValues[elementCount++] = imagePair;
                     tokenCounter++;
                     continue;
                 }
@@ -481,16 +488,13 @@ public class IOUtilities {
                 try {
                     double value = Double.parseDouble(token);
 
-//                    if (token_counter == 0) {
-//                        log.info("token=" + token + " value=" + ((long)value) + " dvalue=" + (long)dvalue);
-//                    }
-
                     if (Double.isNaN(value)) {
                         skip_line = true;
+                        numLinesIgnored++;
                         break;
                     }
                     // data attribute
-                    tuple.addElement(value);
+                    doubleValues[elementCount++] = value;
                     tokenCounter++;
                 } catch (NumberFormatException ex) {
                     System.out.println("DataSet.readCSV(): NumberFormatException caught so skipping record. "
@@ -501,16 +505,25 @@ public class IOUtilities {
                 }
             }
 
-            if (tuple.getElementCount() != columns.size()) {
+            if (!skip_line && elementCount != columns.size()) {
                 log.info("Row ignored because it has "
-                        + (columns.size() - tuple.getElementCount())
+                        + (columns.size() - elementCount)
                         + " column values missing.");
                 numLinesIgnored++;
                 skip_line = true;
             }
 
             if (!skip_line) {
-                tuples.add(tuple);
+                // append the line values to the column value storage
+                for (int icol = 0; icol < columns.size(); icol++) {
+                    Column column = columns.get(icol);
+                    if (column instanceof DoubleColumn) {
+                        ((DoubleColumn)column).addValue(doubleValues[icol]);
+                    } else {
+                        column.addValue(objectValues[icol]);
+                    }
+                }
+                numRows++;
             }
 
             lineCounter++;
@@ -519,10 +532,10 @@ public class IOUtilities {
 
         reader.close();
 
-        log.info("Finished reading CSV file '" + f.getName() + "': Read " + tuples.size() + " rows with " + columns.size() + " columns; " + numLinesIgnored + " rows ignored.");
+        log.info("Finished reading CSV file '" + f.getName() + "': Read " + numRows + " rows with " + columns.size() + " columns; " + numLinesIgnored + " rows ignored.");
 
         long start = System.currentTimeMillis();
-        dataTable.setData(tuples, columns);
+        dataTable.setData(columns);
         long elapsed = System.currentTimeMillis() - start;
 
         log.info("Finished setting data in datamodel (it took " + elapsed + " ms");
@@ -5,21 +5,18 @@ import javafx.util.Pair;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 public class ImageColumn extends Column {
 
+    // storage for the column values (image file and image pairs)
+    private ArrayList<Pair<File, Image>> imagePairs = new ArrayList<>();
+
     public ImageColumn(String name) {
         super(name);
     }
 
-    @Override
-    public boolean setFocusContext(Tuple tuple, int elementIdx) {
-        getFocusTuples().add(tuple);
-        return true;
-    }
-
     @Override
     public void calculateStatistics() {
 
@@ -30,55 +27,79 @@ public class ImageColumn extends Column {
         return null;
     }
 
-    public Pair<File, Image>[] getValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
+    public Pair<File, Image> getValue(int row) {
+        return imagePairs.get(row);
+    }
+
+    @Override
+    public Object getValueAt(int row) {
+        return imagePairs.get(row);
+    }
+
+    public void addValue(Pair<File, Image> imagePair) {
+        imagePairs.add(imagePair);
+        valueCount++;
+    }
+
+    @Override
+    protected void addValue(Object value) {
+        addValue((Pair<File, Image>)value);
+    }
 
-        Pair<File, Image>[] values = new Pair[getDataTable().getTupleCount()];
-//        Image values[] = new Image[getDataTable().getTupleCount()];
-        for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-            values[i] = (Pair<File, Image>)getDataTable().getTuple(i).getElement(columnIndex);
-//            values[i] = (Image) getDataTable().getTuple(i).getElement(columnIndex);
+    @Override
+    protected void ensureCapacity(int capacity) {
+        imagePairs.ensureCapacity(capacity);
+    }
+
+    @Override
+    protected void trimToSize() {
+        imagePairs.trimToSize();
+    }
+
+    @Override
+    protected boolean retainRows(int[] rows) {
+        // rows are ascending so each image pair moves to a position at or before its current one
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != i) {
+                imagePairs.set(i, imagePairs.get(rows[i]));
+            }
         }
+        imagePairs.subList(rows.length, imagePairs.size()).clear();
+        valueCount = rows.length;
+        return false;
+    }
 
-        return values;
+    public Pair<File, Image>[] getValues() {
+        Pair<File, Image>[] values = new Pair[valueCount];
+        return imagePairs.toArray(values);
     }
 
     public List<Pair<File, Image>> getValuesAsList() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-        ArrayList<Pair<File,Image>> valuesList = new ArrayList<>();
-        for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-            valuesList.add((Pair<File, Image>)getDataTable().getTuple(i).getElement(columnIndex));
-//            valuesList.add((Image) getDataTable().getTuple(i).getElement(columnIndex));
-        }
-        return valuesList;
+        return new ArrayList<>(imagePairs);
     }
 
     public Pair<File,Image>[] getQueriedValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-
-        Set<Tuple> queriedTuples = getDataTable().getActiveQuery().getQueriedTuples();
-        Pair<File,Image> values[] = new Pair[queriedTuples.size()];
-//        Image values[] = new Image[queriedTuples.size()];
+        Query query = getDataTable().getActiveQuery();
+        BitSet queriedRows = query.getQueriedRows();
+        Pair<File,Image> values[] = new Pair[query.getQueriedTupleCount()];
 
         int counter = 0;
-        for (Tuple tuple : queriedTuples) {
-            values[counter++] = (Pair<File, Image>)tuple.getElement(columnIndex);
-//            values[counter++] = (Image)tuple.getElement(columnIndex);
+        for (int row = queriedRows.nextSetBit(0); row >= 0; row = queriedRows.nextSetBit(row + 1)) {
+            values[counter++] = imagePairs.get(row);
         }
 
         return values;
     }
 
     public Pair<File,Image>[] getNonqueriedValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-
-        Set<Tuple> nonqueriedTuples = getDataTable().getActiveQuery().getNonQueriedTuples();
-        Pair<File,Image> values[] = new Pair[nonqueriedTuples.size()];
+        Query query = getDataTable().getActiveQuery();
+        BitSet queriedRows = query.getQueriedRows();
+        Pair<File,Image> values[] = new Pair[query.getNonQueriedTupleCount()];
 
         int counter = 0;
-        for (Tuple tuple : nonqueriedTuples) {
-            values[counter++] = (Pair<File, Image>)tuple.getElement(columnIndex);
-//            values[counter++] = (Image)tuple.getElement(columnIndex);
+        int rowCount = query.getRowCount();
+        for (int row = queriedRows.nextClearBit(0); row < rowCount; row = queriedRows.nextClearBit(row + 1)) {
+            values[counter++] = imagePairs.get(row);
         }
 
         return values;
@@ -0,0 +1,102 @@
+package gov.ornl.datatable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Storage for the 8 byte values of a column in a temporary file that is memory mapped in segments.
+ * The values live in the operating system page cache instead of the Java heap, and the segments
+ * get around the 2 GB size limit of a single MappedByteBuffer.
+ */
+class MappedColumnStorage {
+    private final static Logger log = Logger.getLogger(MappedColumnStorage.class.getName());
+
+    // number of values per mapped segment (2^24 values or 128 MB)
+    private static final int SEGMENT_SHIFT = 24;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int VALUE_BYTES = 8;
+
+    private File file;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+    MappedColumnStorage(File directory, String columnName) throws IOException {
+        // column names may contain characters that are not allowed in file names
+        String prefix = "crossvis-" + columnName.replaceAll("[^A-Za-z0-9_-]", "_") + "-";
+        file = File.createTempFile(prefix, ".col", directory);
+        file.deleteOnExit();
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getCapacity() {
+        return (long)segments.size() * SEGMENT_SIZE;
+    }
+
+    // maps additional segments until at least capacity values can be stored
+    void ensureCapacity(long capacity) {
+        try {
+            while (getCapacity() < capacity) {
+                long position = getCapacity() * VALUE_BYTES;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long)SEGMENT_SIZE * VALUE_BYTES));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to map column storage file " + file, ex);
+        }
+    }
+
+    double getDouble(int index) {
+        return segments.get(index >>> SEGMENT_SHIFT).getDouble((index & SEGMENT_MASK) * VALUE_BYTES);
+    }
+
+    void putDouble(int index, double value) {
+        segments.get(index >>> SEGMENT_SHIFT).putDouble((index & SEGMENT_MASK) * VALUE_BYTES, value);
+    }
+
+    long getLong(int index) {
+        return segments.get(index >>> SEGMENT_SHIFT).getLong((index & SEGMENT_MASK) * VALUE_BYTES);
+    }
+
+    void putLong(int index, long value) {
+        segments.get(index >>> SEGMENT_SHIFT).putLong((index & SEGMENT_MASK) * VALUE_BYTES, value);
+    }
+
+    // closes and deletes the file; the storage cannot be used afterwards.  The mapped segments stay valid until
+    // they are garbage collected, as there is no public way to unmap them: on Unix-like systems the file is unlinked
+    // right away and its pages are freed once the segments are collected, but Windows does not delete a file that is
+    // still mapped, so the file is then left to be deleted when the virtual machine exits
+    void close() {
+        segments.clear();
+        try {
+            randomAccessFile.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to close column storage file " + file, ex);
+        }
+        if (!file.delete() && file.exists()) {
+            log.warning("Unable to delete column storage file " + file + " (it is deleted on exit)");
+            file.deleteOnExit();
+        }
+    }
+
+    // keeps the values at the given indices (sorted in ascending order) at the start of the storage
+    void retain(int[] indices) {
+        // indices are ascending so each value moves to a position at or before its current one
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] != i) {
+                putLong(i, getLong(indices[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package gov.ornl.datatable;
+
+import java.util.Arrays;
+
+/**
+ * KLL quantile sketch of a stream of double values.  The sketch keeps a bounded number of the values in
+ * levels where each value at level h stands for 2^h values of the stream.  When the sketch holds more
+ * values than its capacity the lowest full level is sorted and every other value is promoted to the next
+ * level, so the sketch grows with the logarithm of the number of values and estimates the value at any
+ * rank with a rank error of about rankError times the number of values.  Sketches of disjoint sets of
+ * values (e.g. partitions of the rows) are merged into a sketch of their union.  Streams with no more
+ * values than the capacity of the first level are kept completely and answered exactly.  The minimum and
+ * maximum are always exact and NaN values are ignored.
+ */
+class QuantileSketch {
+    // capacity of each level relative to the level above it
+    private static final double LEVEL_CAPACITY_RATIO = 2. / 3.;
+    private static final int MIN_LEVEL_CAPACITY = 2;
+
+    private int k;
+    private long count = 0;
+    private double minValue = Double.NaN;
+    private double maxValue = Double.NaN;
+
+    private int numLevels = 0;
+    private double levels[][] = new double[0][];
+    private int levelSizes[] = new int[0];
+    // alternates the values promoted by successive compactions of each level (deterministic sketches)
+    private boolean levelOffsets[] = new boolean[0];
+    private int levelCapacities[] = new int[0];
+    // number of values held in all levels and the capacity of all levels
+    private int size = 0;
+    private int capacity = 0;
+
+    // retained values in ascending order and the cumulative weights up to each (built when the sketch is queried)
+    private double sortedValues[] = null;
+    private long cumulativeWeights[] = null;
+
+    QuantileSketch(double rankError) {
+        k = Math.max(8, (int)Math.ceil(1.7 / rankError));
+        addLevel();
+    }
+
+    // returns a sketch of the values from index from to to - 1
+    static QuantileSketch of(double values[], int from, int to, double rankError) {
+        QuantileSketch sketch = new QuantileSketch(rankError);
+        for (int i = from; i < to; i++) {
+            sketch.update(values[i]);
+        }
+        return sketch;
+    }
+
+    void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count++ == 0) {
+            minValue = maxValue = value;
+        } else {
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+        }
+        addToLevel(0, value);
+        compress();
+    }
+
+    // adds the values of a sketch of a disjoint set of values
+    void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            minValue = other.minValue;
+            maxValue = other.maxValue;
+        } else {
+            minValue = Math.min(minValue, other.minValue);
+            maxValue = Math.max(maxValue, other.maxValue);
+        }
+        count += other.count;
+        for (int h = 0; h < other.numLevels; h++) {
+            while (numLevels <= h) {
+                addLevel();
+            }
+            for (int i = 0; i < other.levelSizes[h]; i++) {
+                addToLevel(h, other.levels[h][i]);
+            }
+        }
+        compress();
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    // returns the estimated value with the given rank (0 is the minimum and count - 1 the maximum)
+    double getValueAtRank(long rank) {
+        if (count == 0) {
+            return Double.NaN;
+        } else if (rank <= 0) {
+            return minValue;
+        } else if (rank >= count - 1) {
+            return maxValue;
+        }
+        buildSortedValues();
+        // first retained value whose cumulative weight covers the rank
+        int low = 0;
+        int high = sortedValues.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] <= rank) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return sortedValues[low];
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, numLevels + 1);
+        levelSizes = Arrays.copyOf(levelSizes, numLevels + 1);
+        levelOffsets = Arrays.copyOf(levelOffsets, numLevels + 1);
+        levels[numLevels++] = new double[MIN_LEVEL_CAPACITY];
+
+        // the capacities of the lower levels shrink as levels are added above them
+        levelCapacities = new int[numLevels];
+        capacity = 0;
+        for (int h = 0; h < numLevels; h++) {
+            int depth = numLevels - 1 - h;
+            levelCapacities[h] = Math.max(MIN_LEVEL_CAPACITY, (int)Math.ceil(k * Math.pow(LEVEL_CAPACITY_RATIO, depth)));
+            capacity += levelCapacities[h];
+        }
+    }
+
+    private void addToLevel(int h, double value) {
+        if (levelSizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+        }
+        levels[h][levelSizes[h]++] = value;
+        size++;
+        sortedValues = null;
+    }
+
+    // compacts the lowest full levels until the sketch holds no more values than its capacity
+    private void compress() {
+        while (size > capacity) {
+            int h = 0;
+            while (levelSizes[h] < levelCapacities[h]) {
+                h++;
+            }
+            if (h == numLevels - 1) {
+                addLevel();
+            }
+
+            double values[] = levels[h];
+            int levelSize = levelSizes[h];
+            Arrays.sort(values, 0, levelSize);
+            // an odd value stays at its level
+            int compactedSize = levelSize & ~1;
+            int offset = levelOffsets[h] ? 1 : 0;
+            levelOffsets[h] = !levelOffsets[h];
+            for (int i = offset; i < compactedSize; i += 2) {
+                addToLevel(h + 1, values[i]);
+            }
+            values[0] = values[levelSize - 1];
+            levelSizes[h] = levelSize - compactedSize;
+            size -= compactedSize;
+        }
+    }
+
+    private void buildSortedValues() {
+        if (sortedValues != null) {
+            return;
+        }
+        double values[] = new double[size];
+        long weights[] = new long[size];
+        int i = 0;
+        for (int h = 0; h < numLevels; h++) {
+            for (int j = 0; j < levelSizes[h]; j++) {
+                values[i] = levels[h][j];
+                weights[i++] = 1L << h;
+            }
+        }
+
+        Integer order[] = new Integer[size];
+        for (i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        sortedValues = new double[size];
+        cumulativeWeights = new long[size];
+        long weight = 0;
+        for (i = 0; i < size; i++) {
+            sortedValues[i] = values[order[i]];
+            weight += weights[order[i]];
+            cumulativeWeights[i] = weight;
+        }
+    }
+}
@@ -3,15 +3,24 @@ package gov.ornl.datatable;
 import javafx.beans.property.ListProperty;
 import javafx.beans.property.SimpleListProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
 public class Query {
     private final static Logger log = Logger.getLogger(Query.class.getName());
 
+    // number of row blocks evaluated between reorderings of the query predicates by their observed pass rates
+    private static final int REORDER_BLOCK_INTERVAL = 16;
+
+    static final BooleanSupplier NOT_CANCELLED = () -> false;
+
     private String id;
 
     private ListProperty<ColumnSelection> columnSelections;
@@ -19,17 +28,63 @@ public class Query {
     private HashMap<Column, ColumnSummaryStats> columnNonquerySummaryStatsMap;
     private DataTable dataModel;
 
-    private HashSet<Tuple> queriedTuples;
-    private HashSet<Tuple> nonQueriedTuples;
+    // query result as a bitset of row indices (set bits are queried rows, clear bits below
+    // queriedRowCount + nonQueriedRowCount are non-queried rows)
+    private BitSet queriedRows;
+    private int queriedRowCount = 0;
+    private int nonQueriedRowCount = 0;
+
+    // incremented whenever the query result or statistics change so results computed asynchronously
+    // from an older state can be detected
+    private int resultVersion = 0;
+
+    // failure counts and column reductions kept while only the range of double column selections changes
+    // (null until the first such change after the result was computed in another way)
+    private Crossfilter crossfilter = null;
+
+    // milliseconds the query and non-query statistics of each column took the last time statistics were
+    // calculated from the column values
+    private Map<Column, Double> columnStatisticsTimes = Collections.emptyMap();
+
+    // correlation co-moments of the queried and non-queried rows (built when the correlations of the statistics are
+    // first requested for the current result)
+    private CorrelationMatrix queryCorrelationMatrix = null;
+    private CorrelationMatrix nonqueryCorrelationMatrix = null;
+
+    // true if the selections changed after the result was computed (the selections of saved queries can change
+    // while the query is not active)
+    private boolean stale = false;
+    // state of the data table the result was computed for (recorded when the query stops being the active query)
+    private Object dataState = null;
+
+    // settings of the data table the statistics of a result computed off the JavaFX application thread are
+    // calculated with (null if the current settings of the data table are read)
+    private StatisticsSettings statisticsSettings = null;
+
+    // expression the selections are combined with (null combines them with OR within a column and AND across
+    // columns); selections the expression does not cover are combined the default way and ANDed with it
+    private QueryExpression expression = null;
+
+    // read-only tuple views over the query result bitset
+    private Set<Tuple> queriedTuples;
+    private Set<Tuple> nonQueriedTuples;
 
     public Query(String id, DataTable dataModel) {
         this.id = id;
         this.dataModel = dataModel;
         columnSelections = new SimpleListProperty<>(FXCollections.observableArrayList());
+        columnSelections.addListener((ListChangeListener<ColumnSelection>) change -> {
+            stale = true;
+            // the expression is dropped with any of its selections
+            if (expression != null && !columnSelections.containsAll(expression.getColumnSelections())) {
+                expression = null;
+            }
+        });
         columnQuerySummaryStatsMap = new HashMap<>();
         columnNonquerySummaryStatsMap = new HashMap<>();
-        queriedTuples = new HashSet<>();
-        nonQueriedTuples = new HashSet<>();
+        queriedRows = new BitSet();
+        queriedTuples = new TupleRowSet(true);
+        nonQueriedTuples = new TupleRowSet(false);
     }
 
     public Set<Tuple> getQueriedTuples() {
@@ -37,160 +92,797 @@ public class Query {
     }
 
     public int getQueriedTupleCount() {
-        return queriedTuples.size();
+        return queriedRowCount;
     }
 
     public int getNonQueriedTupleCount() {
-        return nonQueriedTuples.size();
+        return nonQueriedRowCount;
     }
 
     public Set<Tuple> getNonQueriedTuples() {
         return nonQueriedTuples;
     }
 
+    // returns the bitset of queried row indices (callers must not modify it)
+    public BitSet getQueriedRows() {
+        return queriedRows;
+    }
+
+    // returns the number of rows covered by the current query result
+    public int getRowCount() {
+        return queriedRowCount + nonQueriedRowCount;
+    }
+
+    public boolean isRowQueried(int row) {
+        return queriedRows.get(row);
+    }
+
+    int getResultVersion() {
+        return resultVersion;
+    }
+
+    // returns true if the query result does not reflect the current selections
+    boolean isStale() {
+        return stale;
+    }
+
+    // marks the query result as out of date with the selections
+    void invalidate() {
+        stale = true;
+    }
+
+    // returns the expression the selections are combined with (null if they are combined with OR within a
+    // column and AND across columns); selections the expression does not cover are ANDed with it
+    public QueryExpression getExpression() {
+        return expression;
+    }
+
+    // combines the selections with an expression over them (null restores the default combination); the
+    // query result is not updated until setQueriedTuples() is called and the expression is dropped when
+    // one of its selections is removed from the query
+    public void setExpression(QueryExpression expression) {
+        this.expression = expression;
+        crossfilter = null;
+        stale = true;
+    }
+
+    Object getDataState() {
+        return dataState;
+    }
+
+    void setDataState(Object dataState) {
+        this.dataState = dataState;
+    }
+
     public void setQueriedTuples() {
-        queriedTuples.clear();
-        nonQueriedTuples.clear();
+        resultVersion++;
+        crossfilter = null;
+        stale = false;
+        queriedRows.clear();
+        queriedRowCount = 0;
+        nonQueriedRowCount = 0;
 
         if (dataModel.getTupleCount() == 0) {
             return;
         }
 
         if (hasColumnSelections()) {
-            for (Tuple tuple : dataModel.getTuples()) {
-                tuple.setQueryFlag(true);
-
-                for (int icol = 0; icol < dataModel.getColumnCount(); icol++) {
-                    Column column = dataModel.getColumn(icol);
-                    ArrayList<ColumnSelection> columnSelections = getColumnSelections(column);
-                    if (columnSelections != null && (!columnSelections.isEmpty())) {
-                        boolean inSelection = false;
-
-                        if (column instanceof DoubleColumn) {
-                            for (ColumnSelection columnSelection : columnSelections) {
-                                if ((((Double)tuple.getElement(icol)) <= ((DoubleColumnSelectionRange)columnSelection).getMaxValue()) &&
-                                        (((Double)tuple.getElement(icol)) >= ((DoubleColumnSelectionRange)columnSelection).getMinValue())) {
-                                    inSelection = true;
-                                    break;
-                                }
-                            }
-                        } else if (column instanceof TemporalColumn) {
-                            for (ColumnSelection columnSelection : columnSelections) {
-                                if (!((((Instant)tuple.getElement(icol)).isBefore(((TemporalColumnSelectionRange)columnSelection).getStartInstant())) ||
-                                        ((Instant)tuple.getElement(icol)).isAfter(((TemporalColumnSelectionRange)columnSelection).getEndInstant()))) {
-                                    inSelection = true;
-                                    break;
-							    }
-                            }
-                        } else if (column instanceof CategoricalColumn) {
-                            for (ColumnSelection columnSelection : columnSelections) {
-                                if (((CategoricalColumnSelection)columnSelection).getSelectedCategories().contains(tuple.getElement(icol))) {
-                                    inSelection = true;
-                                    break;
-                                }
-                            }
-                        } else if (column instanceof ImageColumn) {
-                            for (ColumnSelection columnSelection : columnSelections) {
-                                if (((ImageColumnSelection)columnSelection).getSelectedImagePairs().contains(tuple.getElement(icol))) {
-                                    inSelection = true;
-                                    break;
-                                }
-                            }
-                        }
-
-                        if (!inSelection) {
-                            tuple.setQueryFlag(false);
-                            break;
-                        }
+            evaluatePredicates(compilePredicates(), dataModel.getTupleCount(), NOT_CANCELLED);
+            calculateStatistics();
+        } else {
+            nonQueriedRowCount = dataModel.getTupleCount();
+            columnQuerySummaryStatsMap.clear();
+            columnNonquerySummaryStatsMap.clear();
+        }
+    }
+
+    /**
+     * Sets the query result from the row bitmaps of the selections in a selection cache.  The bitmaps of
+     * the selections on a column are combined with OR and the columns are combined with AND.  Selections
+     * with bitmaps in the cache are not evaluated again, so a query that shares selections with other
+     * queries or that was evaluated before is rebuilt with word operations.
+     */
+    void setQueriedTuples(ColumnSelectionCache selectionCache) {
+        int rowCount = dataModel.getTupleCount();
+        if (rowCount == 0 || !hasColumnSelections() || expression != null) {
+            setQueriedTuples();
+            return;
+        }
+
+        resultVersion++;
+        crossfilter = null;
+        stale = false;
+
+        // start with every row queried (selections on disabled columns only leave every row queried)
+        long words[] = new long[(rowCount + 63) >>> 6];
+        Arrays.fill(words, -1L);
+        words[words.length - 1] = -1L >>> (-rowCount & 63);
+
+        long columnWords[] = new long[words.length];
+        Object rowState = dataModel.getRowState();
+        for (Column column : dataModel.getColumns()) {
+            ArrayList<ColumnSelection> selections = getColumnSelections(column);
+            if (!selections.isEmpty()) {
+                Arrays.fill(columnWords, 0L);
+                for (ColumnSelection selection : selections) {
+                    long selectionWords[] = selectionCache.getRowBitmap(selection, rowCount, rowState);
+                    for (int i = 0; i < columnWords.length; i++) {
+                        columnWords[i] |= selectionWords[i];
                     }
                 }
-
-                if (tuple.getQueryFlag()) {
-                    queriedTuples.add(tuple);
-                } else {
-                    nonQueriedTuples.add(tuple);
+                for (int i = 0; i < words.length; i++) {
+                    words[i] &= columnWords[i];
                 }
             }
+        }
+
+        queriedRows = BitSet.valueOf(words);
+        queriedRowCount = queriedRows.cardinality();
+        nonQueriedRowCount = rowCount - queriedRowCount;
+        calculateStatistics();
+    }
 
+    /**
+     * Evaluates compiled predicates over the first rowCount rows of the data table into a new query
+     * result.  The query is not shared with the data table views, so it can be computed off the JavaFX
+     * application thread; its statistics are then calculated with calculateResultStatistics() using the
+     * settings the data table had when the result was requested, and it is published with setResult().
+     * Returns null if the evaluation is cancelled before it completes.
+     */
+    Query createResult(ArrayList<ColumnPredicate> predicates, int rowCount, StatisticsSettings statisticsSettings,
+                       BooleanSupplier cancelled) {
+        Query result = new Query(id, dataModel);
+        result.statisticsSettings = statisticsSettings;
+        if (predicates.isEmpty()) {
+            result.nonQueriedRowCount = rowCount;
+        } else if (rowCount > 0 && !result.evaluatePredicates(predicates, rowCount, cancelled)) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new query result from this result (created with createResult() or updateResult()) with
+     * changes of the ranges of double column selections applied in order, so only the rows with values
+     * in the parts of the ranges that were removed or added are tested.  The crossfilter of this result
+     * moves to the new result, so this result must not be updated again.  Like createResult(), the new
+     * result is not shared with the data table views and its statistics are calculated with
+     * calculateResultStatistics() using the given settings.
+     */
+    Query updateResult(List<RangeChange> changes, List<Column> columns, StatisticsSettings statisticsSettings) {
+        Query result = new Query(id, dataModel);
+        result.statisticsSettings = statisticsSettings;
+        result.queriedRows = (BitSet)queriedRows.clone();
+        result.queriedRowCount = queriedRowCount;
+        result.nonQueriedRowCount = nonQueriedRowCount;
+        result.crossfilter = crossfilter;
+        crossfilter = null;
+        for (RangeChange change : changes) {
+            result.applyRangeChange(change, columns);
+        }
+        return result;
+    }
+
+    // calculates the statistics of the columns of a result created with createResult() or updateResult() (from the
+    // crossfilter reductions where the result keeps them) and the correlation co-moments of the queried rows from
+    // the co-moments of all rows; the correlation coefficient lists are built when the result is published.
+    // Returns false if cancelled before all are done.
+    boolean calculateResultStatistics(List<Column> columns, CorrelationMatrix tableMatrix, BooleanSupplier cancelled) {
+        boolean calculated = crossfilter != null ? calculateStatistics(crossfilter, columns, cancelled) :
+                calculateStatistics(columns, cancelled);
+        if (!calculated) {
+            return false;
+        }
+        int rowCount = getRowCount();
+        if (tableMatrix.getRowCount() == rowCount) {
+            int threshold = getStatisticsSettings().parallelQueryRowThreshold;
+            // the co-moments kept by the crossfilter are updated by the next change, so the result keeps a copy
+            queryCorrelationMatrix = crossfilter != null ?
+                    crossfilter.getCorrelationMatrix(tableMatrix, queriedRows, threshold).copy() :
+                    tableMatrix.sumRows(queriedRows, rowCount, threshold);
+        }
+        return !cancelled.getAsBoolean();
+    }
+
+    // replaces the query result and statistics with those of a result created with createResult() or
+    // updateResult() and builds the correlation coefficient lists of the statistics (the result stays the base
+    // of the next update, so its bitset is copied)
+    void setResult(Query result) {
+        crossfilter = null;
+        stale = false;
+        queriedRows = (BitSet)result.queriedRows.clone();
+        queriedRowCount = result.queriedRowCount;
+        nonQueriedRowCount = result.nonQueriedRowCount;
+        columnQuerySummaryStatsMap = result.columnQuerySummaryStatsMap;
+        columnNonquerySummaryStatsMap = result.columnNonquerySummaryStatsMap;
+        queryCorrelationMatrix = result.queryCorrelationMatrix;
+        nonqueryCorrelationMatrix = result.nonqueryCorrelationMatrix;
+        columnStatisticsTimes = result.columnStatisticsTimes;
+        for (ColumnSummaryStats summaryStats : columnQuerySummaryStatsMap.values()) {
+            summaryStats.setQuery(this);
+        }
+        for (ColumnSummaryStats summaryStats : columnNonquerySummaryStatsMap.values()) {
+            summaryStats.setQuery(this);
+        }
+        resultVersion++;
+        updateCorrelationCoefficientLists();
+    }
+
+    // sets the query result to the rows from 0 to rowCount - 1 that pass every predicate; returns false and
+    // leaves the result unchanged if the evaluation is cancelled
+    private boolean evaluatePredicates(ArrayList<ColumnPredicate> predicates, int rowCount, BooleanSupplier cancelled) {
+        long words[] = evaluateRows(predicates, rowCount, getStatisticsSettings().parallelQueryRowThreshold,
+                cancelled);
+        if (words == null) {
+            return false;
+        }
+
+        queriedRows = BitSet.valueOf(words);
+        queriedRowCount = queriedRows.cardinality();
+        nonQueriedRowCount = rowCount - queriedRowCount;
+        return true;
+    }
+
+    // returns the words of the bitset of the rows from 0 to rowCount - 1 that pass every predicate (rowCount must
+    // be positive); the rows are evaluated in parallel blocks from parallelRowThreshold rows on.  Returns null if
+    // the evaluation is cancelled.
+    static long[] evaluateRows(ArrayList<ColumnPredicate> predicates, int rowCount, int parallelRowThreshold,
+                               BooleanSupplier cancelled) {
+        // start with every row queried (selections on disabled columns only leave every row queried)
+        long words[] = new long[(rowCount + 63) >>> 6];
+        Arrays.fill(words, -1L);
+        words[words.length - 1] = -1L >>> (-rowCount & 63);
+
+        if (rowCount >= parallelRowThreshold && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(new RowBlockTask(predicates, words, 0, words.length, rowCount, cancelled));
+        } else {
+            evaluatePredicates(predicates, words, 0, words.length, rowCount, cancelled);
+        }
+        return cancelled.getAsBoolean() ? null : words;
+    }
+
+    /**
+     * Extends the query result to the rows appended to the data table from firstNewRow on.  Only the
+     * appended rows are tested against the column selections.  Falls back to setQueriedTuples() if the
+     * current result does not cover the rows before firstNewRow.
+     */
+    public void appendQueriedTuples(int firstNewRow) {
+        if (getRowCount() != firstNewRow) {
+            setQueriedTuples();
+            return;
+        }
+
+        resultVersion++;
+        crossfilter = null;
+        int rowCount = dataModel.getTupleCount();
+        if (hasColumnSelections()) {
+            ArrayList<ColumnPredicate> predicates = compilePredicates();
+            for (int row = firstNewRow; row < rowCount; row++) {
+                queriedRows.set(row, isRowInPredicates(predicates, row));
+            }
+            queriedRowCount = queriedRows.cardinality();
+            nonQueriedRowCount = rowCount - queriedRowCount;
             calculateStatistics();
         } else {
-            for (Tuple tuple : dataModel.getTuples()) {
-                tuple.setQueryFlag(false);
-                nonQueriedTuples.add(tuple);
+            nonQueriedRowCount = rowCount;
+        }
+    }
+
+    /**
+     * Updates the query result after the range of a double column selection changed from
+     * [previousMinValue, previousMaxValue] to its current range.  Instead of retesting every row
+     * against every selection, only the rows with values in the parts of the range that were removed
+     * or added can change.  They are found with the sorted row index of the column.  The first change
+     * retests the queried rows in the removed parts against the changed column and the non-queried
+     * rows in the added parts against all selections, and then keeps a crossfilter for the following
+     * changes that updates the per-row failure counts of the changed rows and the statistics of the
+     * rows entering or leaving the query.  Falls back to setQueriedTuples() if the current result does
+     * not cover the rows of the data table.
+     */
+    public void updateQueriedTuples(DoubleColumnSelectionRange changedSelection, double previousMinValue,
+                                    double previousMaxValue) {
+        RangeChange change = getRowCount() != dataModel.getTupleCount() ? null :
+                createRangeChange(changedSelection, previousMinValue, previousMaxValue, compilePredicates());
+        if (change == null) {
+            setQueriedTuples();
+            return;
+        }
+
+        resultVersion++;
+        if (applyRangeChange(change, dataModel.getColumns()) > 0) {
+            calculateStatistics(crossfilter, dataModel.getColumns(), NOT_CANCELLED);
+        }
+    }
+
+    // returns the change of the range of a double column selection of the query from [previousMinValue,
+    // previousMaxValue] to its current range with the selections compiled into predicates, so the change can be
+    // applied off the JavaFX application thread (null if the selection is not in the query, its column is
+    // disabled, or the selections are combined with an expression)
+    RangeChange createRangeChange(DoubleColumnSelectionRange changedSelection, double previousMinValue,
+                                  double previousMaxValue, ArrayList<ColumnPredicate> predicates) {
+        DoubleColumn column = (DoubleColumn)changedSelection.getColumn();
+        if (!columnSelections.contains(changedSelection) || dataModel.getColumnIndex(column) == -1 ||
+                expression != null) {
+            return null;
+        }
+        ArrayList<ColumnSelection> otherSelections = getColumnSelections(column);
+        otherSelections.remove(changedSelection);
+        return new RangeChange(column, previousMinValue, previousMaxValue, changedSelection.getMinValue(),
+                changedSelection.getMaxValue(), ColumnPredicate.compile(column, getColumnSelections(column)),
+                otherSelections.isEmpty() ? null : ColumnPredicate.compile(column, otherSelections), predicates);
+    }
+
+    // applies a range change to the query result and keeps a crossfilter over the columns for the following
+    // changes; returns the number of rows that entered or left the query
+    private int applyRangeChange(RangeChange change, List<Column> columns) {
+        DoubleColumn column = change.column;
+        int sortedRows[] = column.getSortedRows();
+        int previousStart = column.getSortedRowsLowerBound(change.previousMinValue);
+        int previousEnd = Math.max(previousStart, column.getSortedRowsUpperBound(change.previousMaxValue));
+        int start = column.getSortedRowsLowerBound(change.minValue);
+        int end = Math.max(start, column.getSortedRowsUpperBound(change.maxValue));
+        int removedRanges[][] = {{previousStart, Math.min(previousEnd, start)}, {Math.max(previousStart, end), previousEnd}};
+        int addedRanges[][] = {{start, Math.min(end, previousStart)}, {Math.max(start, previousEnd), end}};
+        int rowCount = getRowCount();
+        int changedRowCount = 0;
+
+        if (crossfilter != null && crossfilter.getRowCount() == rowCount) {
+            // rows with values that are no longer in the range fail the column unless another selection on the
+            // column contains them
+            for (int[] removedRange : removedRanges) {
+                for (int i = removedRange[0]; i < removedRange[1]; i++) {
+                    int row = sortedRows[i];
+                    if (!change.columnPredicate.test(row) && crossfilter.failColumn(row)) {
+                        queriedRows.clear(row);
+                        changedRowCount++;
+                    }
+                }
+            }
+
+            // rows with values that were added to the range pass the column now (they passed before only if
+            // another selection on the column contains them)
+            for (int[] addedRange : addedRanges) {
+                for (int i = addedRange[0]; i < addedRange[1]; i++) {
+                    int row = sortedRows[i];
+                    if ((change.otherSelectionsPredicate == null || !change.otherSelectionsPredicate.test(row)) &&
+                            crossfilter.passColumn(row)) {
+                        queriedRows.set(row);
+                        changedRowCount++;
+                    }
+                }
+            }
+        } else {
+            // queried rows with values that are no longer in the range may fail the changed column now
+            // (they may still be inside another selection on the same column)
+            for (int[] removedRange : removedRanges) {
+                for (int i = removedRange[0]; i < removedRange[1]; i++) {
+                    int row = sortedRows[i];
+                    if (queriedRows.get(row) && !change.columnPredicate.test(row)) {
+                        queriedRows.clear(row);
+                        changedRowCount++;
+                    }
+                }
+            }
+
+            // non-queried rows with values that were added to the range may pass all selections now
+            // (non-queried rows with values in the previous range failed on another column)
+            for (int[] addedRange : addedRanges) {
+                for (int i = addedRange[0]; i < addedRange[1]; i++) {
+                    int row = sortedRows[i];
+                    if (!queriedRows.get(row) && isRowInPredicates(change.predicates, row)) {
+                        queriedRows.set(row);
+                        changedRowCount++;
+                    }
+                }
+            }
+
+            crossfilter = new Crossfilter(change.predicates, columns, rowCount,
+                    getStatisticsSettings().numHistogramBins);
+        }
+
+        if (changedRowCount > 0) {
+            queriedRowCount = queriedRows.cardinality();
+            nonQueriedRowCount = rowCount - queriedRowCount;
+        }
+        return changedRowCount;
+    }
+
+    // compiles the selections of each enabled column with selections into a predicate; the predicates are
+    // ordered by their estimated selectivity so the predicates that reject the most rows are tested first (a
+    // query with an expression compiles to the predicate tree of the expression plus the predicates of the
+    // selections the expression does not cover)
+    ArrayList<ColumnPredicate> compilePredicates() {
+        return compilePredicates(UnaryOperator.identity());
+    }
+
+    // compiles the predicates with each selection replaced by the selection the substitution returns for it
+    ArrayList<ColumnPredicate> compilePredicates(UnaryOperator<ColumnSelection> substitution) {
+        ArrayList<ColumnPredicate> predicates = new ArrayList<>();
+        if (expression != null) {
+            // the expression is one predicate tree; the selections it does not cover are ANDed with it
+            predicates.add(expression.compile(substitution));
+        }
+        for (int icol = 0; icol < dataModel.getColumnCount(); icol++) {
+            Column column = dataModel.getColumn(icol);
+            ArrayList<ColumnSelection> columnSelections = getColumnSelections(column);
+            if (expression != null) {
+                columnSelections.removeAll(expression.getColumnSelections());
+            }
+            columnSelections.replaceAll(substitution);
+            if (!columnSelections.isEmpty()) {
+                predicates.add(ColumnPredicate.compile(column, columnSelections));
+            }
+        }
+        ColumnPredicate.sortBySelectivity(predicates, false);
+        return predicates;
+    }
+
+    // returns true if the row passes every predicate
+    static boolean isRowInPredicates(List<ColumnPredicate> predicates, int row) {
+        for (ColumnPredicate predicate : predicates) {
+            if (!predicate.test(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // clears the bits of the rows that fail any predicate in the words from startWord to endWord - 1; the words
+    // are processed in blocks so all predicates run over a block while it is in the cache.  Rows rejected by a
+    // predicate are not tested by the following predicates and the predicates are reordered by their observed
+    // pass rates as the blocks are evaluated.  Stops between blocks once the evaluation is cancelled.
+    private static void evaluatePredicates(ArrayList<ColumnPredicate> predicates, long words[], int startWord, int endWord,
+                                           int rowCount, BooleanSupplier cancelled) {
+        ColumnPredicate order[] = predicates.toArray(new ColumnPredicate[predicates.size()]);
+        long testedRowCounts[] = new long[order.length];
+        long passedRowCounts[] = new long[order.length];
+        int blockCount = 0;
+
+        for (int blockStart = startWord; blockStart < endWord; blockStart += RowBlockTask.BLOCK_WORDS) {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            int blockEnd = Math.min(blockStart + RowBlockTask.BLOCK_WORDS, endWord);
+            int remainingRowCount = getSetBitCount(words, blockStart, blockEnd);
+            for (int i = 0; i < order.length && remainingRowCount > 0; i++) {
+                order[i].evaluate(words, blockStart, blockEnd, rowCount);
+                int passedRowCount = getSetBitCount(words, blockStart, blockEnd);
+                testedRowCounts[i] += remainingRowCount;
+                passedRowCounts[i] += passedRowCount;
+                remainingRowCount = passedRowCount;
+            }
+
+            if (++blockCount % REORDER_BLOCK_INTERVAL == 0) {
+                reorderPredicates(order, testedRowCounts, passedRowCounts);
+            }
+        }
+    }
+
+    // sorts the predicates by ascending observed pass rate (insertion sort as there are only a few predicates)
+    private static void reorderPredicates(ColumnPredicate order[], long testedRowCounts[], long passedRowCounts[]) {
+        for (int i = 1; i < order.length; i++) {
+            for (int j = i; j > 0 && getPassRate(testedRowCounts[j], passedRowCounts[j]) <
+                    getPassRate(testedRowCounts[j - 1], passedRowCounts[j - 1]); j--) {
+                swap(order, j, j - 1);
+                swap(testedRowCounts, j, j - 1);
+                swap(passedRowCounts, j, j - 1);
+            }
+        }
+    }
+
+    // predicates that have not been tested yet keep their place behind the predicates that rejected rows
+    private static double getPassRate(long testedRowCount, long passedRowCount) {
+        return testedRowCount == 0 ? 1. : (double)passedRowCount / testedRowCount;
+    }
+
+    private static void swap(ColumnPredicate array[], int i, int j) {
+        ColumnPredicate swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    private static void swap(long array[], int i, int j) {
+        long swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    private static int getSetBitCount(long words[], int startWord, int endWord) {
+        int count = 0;
+        for (int i = startWord; i < endWord; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+
+    // evaluates the predicates for a range of words of the query result; each task writes its own words so
+    // the blocks are evaluated without synchronization
+    private static class RowBlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // number of 64 row words evaluated by a task without splitting it further
+        private static final int BLOCK_WORDS = 256;
+
+        private ArrayList<ColumnPredicate> predicates;
+        private long words[];
+        private int startWord;
+        private int endWord;
+        private int rowCount;
+        private BooleanSupplier cancelled;
+
+        RowBlockTask(ArrayList<ColumnPredicate> predicates, long words[], int startWord, int endWord, int rowCount,
+                     BooleanSupplier cancelled) {
+            this.predicates = predicates;
+            this.words = words;
+            this.startWord = startWord;
+            this.endWord = endWord;
+            this.rowCount = rowCount;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (endWord - startWord > BLOCK_WORDS) {
+                int middleWord = (startWord + endWord) >>> 1;
+                invokeAll(new RowBlockTask(predicates, words, startWord, middleWord, rowCount, cancelled),
+                        new RowBlockTask(predicates, words, middleWord, endWord, rowCount, cancelled));
+            } else {
+                evaluatePredicates(predicates, words, startWord, endWord, rowCount, cancelled);
             }
-            columnQuerySummaryStatsMap.clear();
-            columnNonquerySummaryStatsMap.clear();
         }
     }
 
     public void setNumHistogramBins(int numBins) {
+        crossfilter = null;
         for (ColumnSummaryStats summaryStats : columnQuerySummaryStatsMap.values()) {
             summaryStats.setNumHistogramBins(numBins);
         }
+        for (ColumnSummaryStats summaryStats : columnNonquerySummaryStatsMap.values()) {
+            summaryStats.setNumHistogramBins(numBins);
+        }
     }
 
     public void calculateStatistics() {
-        long start = System.currentTimeMillis();
-
-        for (int icolumn = 0; icolumn < dataModel.getColumnCount(); icolumn++) {
-            Column column = dataModel.getColumn(icolumn);
-            ColumnSummaryStats queryColumnSummaryStats = columnQuerySummaryStatsMap.get(column);
-            ColumnSummaryStats nonqueryColumnSummaryStats = columnNonquerySummaryStatsMap.get(column);
-
-            if (column instanceof TemporalColumn) {
-                Instant queriedValues[] = ((TemporalColumn)column).getQueriedValues();
-                if (queryColumnSummaryStats == null) {
-                    queryColumnSummaryStats = new TemporalColumnSummaryStats(column, dataModel.getNumHistogramBins(), this);
-                    columnQuerySummaryStatsMap.put(column, queryColumnSummaryStats);
-                }
-                ((TemporalColumnSummaryStats)queryColumnSummaryStats).setValues(queriedValues);
+        crossfilter = null;
+        calculateStatistics(dataModel.getColumns(), NOT_CANCELLED);
+    }
 
-                Instant nonqueriedValues[] = ((TemporalColumn)column).getNonqueriedValues();
-                if (nonqueryColumnSummaryStats == null) {
-                    nonqueryColumnSummaryStats = new TemporalColumnSummaryStats(column, dataModel.getNumHistogramBins(), this);
-                    columnNonquerySummaryStatsMap.put(column, nonqueryColumnSummaryStats);
-                }
-                ((TemporalColumnSummaryStats)nonqueryColumnSummaryStats).setValues(nonqueriedValues);
-            } else if (column instanceof DoubleColumn) {
-                if (dataModel.getCalculateQueryStatistics()) {
-                    double queriedValues[] = ((DoubleColumn) column).getQueriedValues();
-                    if (queryColumnSummaryStats == null) {
-                        queryColumnSummaryStats = new DoubleColumnSummaryStats(column, dataModel.getNumHistogramBins(), this);
-                        columnQuerySummaryStatsMap.put(column, queryColumnSummaryStats);
-                    }
-                    ((DoubleColumnSummaryStats) queryColumnSummaryStats).setValues(queriedValues);
-                } else {
-                    columnQuerySummaryStatsMap.remove(column);
+    // calculates the statistics for the columns; returns false if cancelled before all are done
+    private boolean calculateStatistics(List<Column> columns, BooleanSupplier cancelled) {
+        clearCorrelationMatrices();
+        return calculateColumnStatistics(columns, cancelled);
+    }
+
+    // updates the query statistics of the columns from the crossfilter reductions where they are kept, derives the
+    // non-query statistics from the statistics of all rows minus the reductions, and calculates the other statistics
+    // from the column values; returns false if cancelled before all are done
+    private boolean calculateStatistics(Crossfilter crossfilter, List<Column> columns, BooleanSupplier cancelled) {
+        clearCorrelationMatrices();
+        StatisticsSettings settings = getStatisticsSettings();
+        boolean useReductions = settings.calculateQueryStatistics;
+        boolean nonQueryStatistics = settings.calculateNonQueryStatistics;
+        ArrayList<Column> calculatedColumns = new ArrayList<>();
+        for (Column column : columns) {
+            if (!useReductions) {
+                calculatedColumns.add(column);
+                continue;
+            }
+            ColumnSummaryStats querySummaryStats = getReducedSummaryStats(columnQuerySummaryStatsMap, column, false);
+            ColumnSummaryStats nonquerySummaryStats = nonQueryStatistics ?
+                    getReducedSummaryStats(columnNonquerySummaryStatsMap, column, true) : null;
+            if (crossfilter.updateStatistics(column, querySummaryStats, nonquerySummaryStats)) {
+                columnQuerySummaryStatsMap.put(column, querySummaryStats);
+                if (nonquerySummaryStats != null) {
+                    columnNonquerySummaryStatsMap.put(column, nonquerySummaryStats);
                 }
+            } else {
+                calculatedColumns.add(column);
+            }
+        }
+        return calculateColumnStatistics(calculatedColumns, cancelled);
+    }
 
-                if (dataModel.getCalculateNonQueryStatistics()) {
-                    double nonqueriedValues[] = ((DoubleColumn) column).getNonqueriedValues();
-                    if (nonqueryColumnSummaryStats == null) {
-                        nonqueryColumnSummaryStats = new DoubleColumnSummaryStats(column, dataModel.getNumHistogramBins(), this);
-                        columnNonquerySummaryStatsMap.put(column, nonqueryColumnSummaryStats);
-                    }
-                    ((DoubleColumnSummaryStats) nonqueryColumnSummaryStats).setValues(nonqueriedValues);
+    // returns the statistics of a column in a statistics map, or new statistics for a double or categorical column
+    // that are put in the map once the crossfilter reductions updated them (null for other columns)
+    private ColumnSummaryStats getReducedSummaryStats(HashMap<Column, ColumnSummaryStats> summaryStatsMap,
+                                                     Column column, boolean nonquery) {
+        ColumnSummaryStats summaryStats = summaryStatsMap.get(column);
+        if (summaryStats == null) {
+            if (column instanceof DoubleColumn) {
+                summaryStats = new DoubleColumnSummaryStats(column, getStatisticsSettings().numHistogramBins,
+                        this);
+            } else if (column instanceof CategoricalColumn) {
+                summaryStats = new CategoricalColumnSummaryStats(column, this);
+            } else {
+                return null;
+            }
+            summaryStats.setNonquery(nonquery);
+        }
+        return summaryStats;
+    }
+
+    // calculates the statistics of the columns in parallel into statistics that are not in the statistics maps yet
+    // and then sets them in one pass on this thread; returns false if cancelled before all are done
+    private boolean calculateColumnStatistics(List<Column> columns, BooleanSupplier cancelled) {
+        ColumnSummaryStats statistics[][] = new ColumnSummaryStats[columns.size()][];
+        BitSet nonqueriedRows = getNonqueriedRows();
+        int parallelValueThreshold = getStatisticsSettings().parallelStatisticsValueThreshold;
+        long times[] = ColumnStatisticsTask.invoke(columns.size(), getRowCount(), parallelValueThreshold, i -> {
+            if (!cancelled.getAsBoolean()) {
+                statistics[i] = prepareStatistics(columns.get(i), nonqueriedRows);
+            }
+        });
+        if (cancelled.getAsBoolean()) {
+            return false;
+        }
+
+        LinkedHashMap<Column, Double> columnTimes = new LinkedHashMap<>();
+        for (int i = 0; i < statistics.length; i++) {
+            long start = System.nanoTime();
+            setStatistics(columns.get(i), statistics[i]);
+            columnTimes.put(columns.get(i), (times[i] + System.nanoTime() - start) / 1e6);
+        }
+        columnStatisticsTimes = Collections.unmodifiableMap(columnTimes);
+        return true;
+    }
+
+    // returns the milliseconds the query and non-query statistics of each column took the last time statistics
+    // were calculated from the column values (only the columns calculated that time; for diagnostics)
+    public Map<Column, Double> getColumnStatisticsTimes() {
+        return columnStatisticsTimes;
+    }
+
+    private void clearCorrelationMatrices() {
+        queryCorrelationMatrix = null;
+        nonqueryCorrelationMatrix = null;
+    }
+
+    // returns the co-moments of the rows the query or non-query statistics are calculated over (null if they are
+    // not statistics of the current result); the co-moments of the queried rows are updated from the crossfilter
+    // when it is kept and those of the non-queried rows are the co-moments of all rows minus the queried rows
+    CorrelationMatrix getCorrelationMatrix(ColumnSummaryStats summaryStats) {
+        boolean isQueryStats = columnQuerySummaryStatsMap.get(summaryStats.getColumn()) == summaryStats;
+        boolean isNonqueryStats = columnNonquerySummaryStatsMap.get(summaryStats.getColumn()) == summaryStats;
+        if (!isQueryStats && !isNonqueryStats) {
+            return null;
+        }
+
+        if (queryCorrelationMatrix == null) {
+            CorrelationMatrix tableMatrix = dataModel.getCorrelationMatrix();
+            int rowCount = getRowCount();
+            if (tableMatrix.getRowCount() != rowCount) {
+                return null;
+            }
+            int threshold = getStatisticsSettings().parallelQueryRowThreshold;
+            queryCorrelationMatrix = crossfilter != null ?
+                    crossfilter.getCorrelationMatrix(tableMatrix, queriedRows, threshold) :
+                    tableMatrix.sumRows(queriedRows, rowCount, threshold);
+            nonqueryCorrelationMatrix = null;
+        }
+        if (isQueryStats) {
+            return queryCorrelationMatrix;
+        }
+        if (nonqueryCorrelationMatrix == null) {
+            nonqueryCorrelationMatrix = dataModel.getCorrelationMatrix().copy();
+            nonqueryCorrelationMatrix.subtract(queryCorrelationMatrix);
+        }
+        return nonqueryCorrelationMatrix;
+    }
+
+    // calculates the query and non-query statistics for one column
+    public void calculateStatistics(Column column) {
+        setStatistics(column, prepareStatistics(column, getNonqueriedRows()));
+    }
+
+    // returns a new bitset of the rows the query does not select
+    private BitSet getNonqueriedRows() {
+        BitSet nonqueriedRows = (BitSet)queriedRows.clone();
+        nonqueriedRows.flip(0, getRowCount());
+        return nonqueriedRows;
+    }
+
+    // calculates the query and non-query statistics of a column into new statistics that are not in the statistics
+    // maps yet, so several columns can be calculated in parallel (an element is null if the statistics are not
+    // calculated and the result is null if the column has no query statistics); the non-query histograms and
+    // moments are derived from the statistics of all rows minus the query statistics where they can be
+    private ColumnSummaryStats[] prepareStatistics(Column column, BitSet nonqueriedRows) {
+        StatisticsSettings settings = getStatisticsSettings();
+        int numHistogramBins = settings.numHistogramBins;
+        if (column instanceof TemporalColumn) {
+            TemporalColumn temporalColumn = (TemporalColumn)column;
+            TemporalColumnSummaryStats queryColumnSummaryStats = new TemporalColumnSummaryStats(column, numHistogramBins,
+                    this);
+            queryColumnSummaryStats.setValues(temporalColumn.getQueriedValues(this));
+            TemporalColumnSummaryStats nonqueryColumnSummaryStats = new TemporalColumnSummaryStats(column,
+                    numHistogramBins, this);
+            nonqueryColumnSummaryStats.setNonquery(true);
+            nonqueryColumnSummaryStats.setValues(temporalColumn.getNonqueriedValues(this));
+            return new ColumnSummaryStats[] {queryColumnSummaryStats, nonqueryColumnSummaryStats};
+        } else if (column instanceof DoubleColumn) {
+            // correlations relate the statistics to other columns and are calculated when the statistics are set
+            DoubleColumnSummaryStats queryColumnSummaryStats = null;
+            if (settings.calculateQueryStatistics) {
+                queryColumnSummaryStats = new DoubleColumnSummaryStats(column, numHistogramBins, this);
+                if (((DoubleColumn)column).hasMappedStorage()) {
+                    queryColumnSummaryStats.setRowsWithoutCorrelations(queriedRows, numHistogramBins);
                 } else {
-                    columnNonquerySummaryStatsMap.remove(column);
+                    queryColumnSummaryStats.setValuesWithoutCorrelations(((DoubleColumn)column).getQueriedValues(this),
+                            numHistogramBins);
                 }
-            } else if (column instanceof CategoricalColumn) {
-                String queriedValues[] = ((CategoricalColumn)column).getQueriedValues();
-                if (queryColumnSummaryStats == null) {
-                    queryColumnSummaryStats = new CategoricalColumnSummaryStats(column, this);
-                    columnQuerySummaryStatsMap.put(column, queryColumnSummaryStats);
+            }
+            DoubleColumnSummaryStats nonqueryColumnSummaryStats = null;
+            if (settings.calculateNonQueryStatistics) {
+                nonqueryColumnSummaryStats = new DoubleColumnSummaryStats(column, numHistogramBins, this);
+                nonqueryColumnSummaryStats.setNonquery(true);
+                DoubleColumnSummaryStats columnSummaryStats = ((DoubleColumn)column).getStatistics();
+                if (queryColumnSummaryStats == null || columnSummaryStats == null ||
+                        !nonqueryColumnSummaryStats.setNonqueryStatistics(columnSummaryStats, queryColumnSummaryStats,
+                                nonqueriedRows, getRowCount())) {
+                    if (((DoubleColumn)column).hasMappedStorage()) {
+                        nonqueryColumnSummaryStats.setRowsWithoutCorrelations(nonqueriedRows, numHistogramBins);
+                    } else {
+                        nonqueryColumnSummaryStats.setValuesWithoutCorrelations(
+                                ((DoubleColumn)column).getNonqueriedValues(this), numHistogramBins);
+                    }
                 }
-                ((CategoricalColumnSummaryStats)queryColumnSummaryStats).setValues(queriedValues);
+            }
+            return new ColumnSummaryStats[] {queryColumnSummaryStats, nonqueryColumnSummaryStats};
+        } else if (column instanceof CategoricalColumn) {
+            CategoricalColumnSummaryStats queryColumnSummaryStats = new CategoricalColumnSummaryStats(column, this);
+            queryColumnSummaryStats.setValues(((CategoricalColumn)column).getQueriedCategoryIDs(this));
+            CategoricalColumnSummaryStats nonqueryColumnSummaryStats = new CategoricalColumnSummaryStats(column, this);
+            nonqueryColumnSummaryStats.setNonquery(true);
+            CategoricalColumnSummaryStats columnSummaryStats = ((CategoricalColumn)column).getStatistics();
+            if (columnSummaryStats == null || !nonqueryColumnSummaryStats.setNonqueryStatistics(columnSummaryStats,
+                    queryColumnSummaryStats, getRowCount())) {
+                nonqueryColumnSummaryStats.setValues(((CategoricalColumn)column).getNonqueriedCategoryIDs(this));
+            }
+            return new ColumnSummaryStats[] {queryColumnSummaryStats, nonqueryColumnSummaryStats};
+        }
+        return null;
+    }
 
-                String nonqueriedValues[] = ((CategoricalColumn)column).getNonqueriedValues();
-                if (nonqueryColumnSummaryStats == null) {
-                    nonqueryColumnSummaryStats = new CategoricalColumnSummaryStats(column, this);
-                    columnNonquerySummaryStatsMap.put(column, nonqueryColumnSummaryStats);
-                }
-                ((CategoricalColumnSummaryStats)nonqueryColumnSummaryStats).setValues(nonqueriedValues);
+    // sets the query and non-query statistics of a column to statistics returned by prepareStatistics() (existing
+    // statistics objects are updated so listeners on their properties are kept)
+    private void setStatistics(Column column, ColumnSummaryStats statistics[]) {
+        resultVersion++;
+        if (statistics != null) {
+            setStatistics(columnQuerySummaryStatsMap, column, statistics[0]);
+            setStatistics(columnNonquerySummaryStatsMap, column, statistics[1]);
+        }
+    }
+
+    private static void setStatistics(HashMap<Column, ColumnSummaryStats> summaryStatsMap, Column column,
+                                      ColumnSummaryStats statistics) {
+        if (statistics == null) {
+            summaryStatsMap.remove(column);
+            return;
+        }
+        ColumnSummaryStats summaryStats = summaryStatsMap.get(column);
+        if (summaryStats == null) {
+            // new statistics have no listeners, so their correlations are calculated when they are first read (the
+            // statistics of a result computed off the JavaFX application thread do not read the data table columns)
+            summaryStatsMap.put(column, statistics);
+            if (statistics instanceof DoubleColumnSummaryStats) {
+                ((DoubleColumnSummaryStats)statistics).clearCorrelations();
+            }
+            return;
+        }
+        summaryStats.setStatistics(statistics);
+    }
+
+    // rebuilds the correlation coefficient lists of the query statistics for the current enabled columns
+    public void updateCorrelationCoefficientLists() {
+        for (ColumnSummaryStats summaryStats : columnQuerySummaryStatsMap.values()) {
+            if (summaryStats instanceof DoubleColumnSummaryStats && dataModel.getColumns().contains(summaryStats.getColumn())) {
+                ((DoubleColumnSummaryStats)summaryStats).updateCorrelationCoefficientList();
+            }
+        }
+        for (ColumnSummaryStats summaryStats : columnNonquerySummaryStatsMap.values()) {
+            if (summaryStats instanceof DoubleColumnSummaryStats && dataModel.getColumns().contains(summaryStats.getColumn())) {
+                ((DoubleColumnSummaryStats)summaryStats).updateCorrelationCoefficientList();
             }
         }
-        long elapsed = System.currentTimeMillis() - start;
-//        log.info("calculateStatistics() took " + elapsed + "ms");
     }
 
     public final ObservableList<ColumnSelection> getColumnSelections() { return columnSelections.get(); }
@@ -225,6 +917,7 @@ public class Query {
     }
 
     public void clear () {
+        crossfilter = null;
         columnSelections.clear();
         columnQuerySummaryStatsMap.clear();
         columnNonquerySummaryStatsMap.clear();
@@ -281,4 +974,113 @@ public class Query {
 
         return null;
     }
-}
\ No newline at end of file
+
+    // returns the settings of the data table the statistics are calculated with
+    StatisticsSettings getStatisticsSettings() {
+        return statisticsSettings != null ? statisticsSettings : new StatisticsSettings(dataModel);
+    }
+
+    // snapshot of the settings of a data table that query results and their statistics are calculated with
+    static class StatisticsSettings {
+        private final boolean calculateQueryStatistics;
+        private final boolean calculateNonQueryStatistics;
+        private final int numHistogramBins;
+        private final double quantileRankError;
+        private final int parallelQueryRowThreshold;
+        private final int parallelStatisticsValueThreshold;
+
+        StatisticsSettings(DataTable dataTable) {
+            calculateQueryStatistics = dataTable.getCalculateQueryStatistics();
+            calculateNonQueryStatistics = dataTable.getCalculateNonQueryStatistics();
+            numHistogramBins = dataTable.getNumHistogramBins();
+            quantileRankError = dataTable.getQuantileRankError();
+            parallelQueryRowThreshold = dataTable.getParallelQueryRowThreshold();
+            parallelStatisticsValueThreshold = dataTable.getParallelStatisticsValueThreshold();
+        }
+
+        double getQuantileRankError() {
+            return quantileRankError;
+        }
+    }
+
+    // change of the range of a double column selection with the selections compiled when it changed
+    static class RangeChange {
+        private final DoubleColumn column;
+        private final double previousMinValue;
+        private final double previousMaxValue;
+        private final double minValue;
+        private final double maxValue;
+        // predicate of all selections on the column and of the other selections on the column (null if none)
+        private final ColumnPredicate columnPredicate;
+        private final ColumnPredicate otherSelectionsPredicate;
+        // predicates of all selections of the query
+        private final ArrayList<ColumnPredicate> predicates;
+
+        private RangeChange(DoubleColumn column, double previousMinValue, double previousMaxValue, double minValue,
+                            double maxValue, ColumnPredicate columnPredicate, ColumnPredicate otherSelectionsPredicate,
+                            ArrayList<ColumnPredicate> predicates) {
+            this.column = column;
+            this.previousMinValue = previousMinValue;
+            this.previousMaxValue = previousMaxValue;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            this.columnPredicate = columnPredicate;
+            this.otherSelectionsPredicate = otherSelectionsPredicate;
+            this.predicates = predicates;
+        }
+    }
+
+    /**
+     * Read-only set of the data table tuples for the queried (or non-queried) rows of the query
+     * result bitset.  Tuples are iterated in row order.
+     */
+    private class TupleRowSet extends AbstractSet<Tuple> {
+        private boolean queried;
+
+        TupleRowSet(boolean queried) {
+            this.queried = queried;
+        }
+
+        private int nextRow(int fromRow) {
+            int row = queried ? queriedRows.nextSetBit(fromRow) : queriedRows.nextClearBit(fromRow);
+            return row < getRowCount() ? row : -1;
+        }
+
+        @Override
+        public Iterator<Tuple> iterator() {
+            return new Iterator<Tuple>() {
+                private int row = nextRow(0);
+
+                @Override
+                public boolean hasNext() {
+                    return row != -1;
+                }
+
+                @Override
+                public Tuple next() {
+                    if (row == -1) {
+                        throw new NoSuchElementException();
+                    }
+                    Tuple tuple = dataModel.getTuple(row);
+                    row = nextRow(row + 1);
+                    return tuple;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return queried ? queriedRowCount : nonQueriedRowCount;
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            if (!(object instanceof Tuple)) {
+                return false;
+            }
+            int row = ((Tuple)object).getRow();
+            return row >= 0 && row < getRowCount() && queriedRows.get(row) == queried &&
+                    dataModel.getTuple(row) == object;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package gov.ornl.datatable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * A boolean expression over column selections for filters the default combination of a query (OR of
+ * the selections on a column, AND across columns) cannot express, such as negations or alternatives
+ * across columns.  Expressions are built from selection leaves with and(), or(), and not(), and are
+ * compiled into one predicate tree that tests each word of 64 rows through the whole tree before the
+ * next word, so a filter takes a single pass over the column values with no intermediate row sets.
+ * Leaves of an OR on the same column are merged into one column predicate and the operands of an AND
+ * are tested in the order of their estimated selectivity, stopping once no row of a word is left.
+ * An expression is evaluated directly against a data table with evaluate() or combines the selections
+ * of a query with Query.setExpression() or DataTable.setActiveQueryExpression().
+ */
+public abstract class QueryExpression {
+    public static QueryExpression selection(ColumnSelection columnSelection) {
+        return new SelectionExpression(columnSelection);
+    }
+
+    public static QueryExpression and(QueryExpression... operands) {
+        return and(Arrays.asList(operands));
+    }
+
+    public static QueryExpression and(List<QueryExpression> operands) {
+        return new AndExpression(checkOperands(operands));
+    }
+
+    public static QueryExpression or(QueryExpression... operands) {
+        return or(Arrays.asList(operands));
+    }
+
+    public static QueryExpression or(List<QueryExpression> operands) {
+        return new OrExpression(checkOperands(operands));
+    }
+
+    public static QueryExpression not(QueryExpression operand) {
+        return new NotExpression(operand);
+    }
+
+    private static List<QueryExpression> checkOperands(List<QueryExpression> operands) {
+        if (operands.isEmpty() || operands.contains(null)) {
+            throw new IllegalArgumentException("Query expression operands must not be empty or null");
+        }
+        return new ArrayList<>(operands);
+    }
+
+    // returns the column selections of the leaves of the expression
+    public List<ColumnSelection> getColumnSelections() {
+        ArrayList<ColumnSelection> columnSelections = new ArrayList<>();
+        addColumnSelections(columnSelections);
+        return columnSelections;
+    }
+
+    abstract void addColumnSelections(List<ColumnSelection> columnSelections);
+
+    // compiles the expression with the current ranges and categories of its selections
+    ColumnPredicate compile() {
+        return compile(UnaryOperator.identity());
+    }
+
+    // compiles the expression with each selection replaced by the selection the substitution returns for it
+    abstract ColumnPredicate compile(UnaryOperator<ColumnSelection> substitution);
+
+    // returns the rows of the data table that satisfy the expression
+    public BitSet evaluate(DataTable dataTable) {
+        int rowCount = dataTable.getTupleCount();
+        if (rowCount == 0) {
+            return new BitSet();
+        }
+        ArrayList<ColumnPredicate> predicates = new ArrayList<>(Collections.singletonList(compile()));
+        return BitSet.valueOf(Query.evaluateRows(predicates, rowCount, dataTable.getParallelQueryRowThreshold(),
+                Query.NOT_CANCELLED));
+    }
+
+    private static class SelectionExpression extends QueryExpression {
+        private ColumnSelection columnSelection;
+
+        SelectionExpression(ColumnSelection columnSelection) {
+            if (columnSelection == null) {
+                throw new IllegalArgumentException("Query expression selection must not be null");
+            }
+            this.columnSelection = columnSelection;
+        }
+
+        @Override
+        void addColumnSelections(List<ColumnSelection> columnSelections) {
+            columnSelections.add(columnSelection);
+        }
+
+        @Override
+        ColumnPredicate compile(UnaryOperator<ColumnSelection> substitution) {
+            ColumnSelection compiledSelection = substitution.apply(columnSelection);
+            return ColumnPredicate.compile(compiledSelection.getColumn(), Collections.singletonList(compiledSelection));
+        }
+    }
+
+    private static class AndExpression extends QueryExpression {
+        private List<QueryExpression> operands;
+
+        AndExpression(List<QueryExpression> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        void addColumnSelections(List<ColumnSelection> columnSelections) {
+            operands.forEach(operand -> operand.addColumnSelections(columnSelections));
+        }
+
+        @Override
+        ColumnPredicate compile(UnaryOperator<ColumnSelection> substitution) {
+            ArrayList<ColumnPredicate> predicates = new ArrayList<>();
+            for (QueryExpression operand : operands) {
+                predicates.add(operand.compile(substitution));
+            }
+            if (predicates.size() == 1) {
+                return predicates.get(0);
+            }
+            // the operands that reject the most rows are tested first
+            ColumnPredicate.sortBySelectivity(predicates, false);
+            return new AndPredicate(predicates.toArray(new ColumnPredicate[predicates.size()]));
+        }
+    }
+
+    private static class OrExpression extends QueryExpression {
+        private List<QueryExpression> operands;
+
+        OrExpression(List<QueryExpression> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        void addColumnSelections(List<ColumnSelection> columnSelections) {
+            operands.forEach(operand -> operand.addColumnSelections(columnSelections));
+        }
+
+        @Override
+        ColumnPredicate compile(UnaryOperator<ColumnSelection> substitution) {
+            // selections on the same column are compiled together (merged ranges or category sets)
+            LinkedHashMap<Column, List<ColumnSelection>> columnSelectionMap = new LinkedHashMap<>();
+            ArrayList<ColumnPredicate> predicates = new ArrayList<>();
+            for (QueryExpression operand : operands) {
+                if (operand instanceof SelectionExpression) {
+                    ColumnSelection columnSelection = substitution.apply(((SelectionExpression)operand).columnSelection);
+                    columnSelectionMap.computeIfAbsent(columnSelection.getColumn(), column -> new ArrayList<>())
+                            .add(columnSelection);
+                } else {
+                    predicates.add(operand.compile(substitution));
+                }
+            }
+            for (Map.Entry<Column, List<ColumnSelection>> entry : columnSelectionMap.entrySet()) {
+                predicates.add(ColumnPredicate.compile(entry.getKey(), entry.getValue()));
+            }
+            if (predicates.size() == 1) {
+                return predicates.get(0);
+            }
+            // the operands that pass the most rows are tested first
+            ColumnPredicate.sortBySelectivity(predicates, true);
+            return new OrPredicate(predicates.toArray(new ColumnPredicate[predicates.size()]));
+        }
+    }
+
+    private static class NotExpression extends QueryExpression {
+        private QueryExpression operand;
+
+        NotExpression(QueryExpression operand) {
+            if (operand == null) {
+                throw new IllegalArgumentException("Query expression operand must not be null");
+            }
+            this.operand = operand;
+        }
+
+        @Override
+        void addColumnSelections(List<ColumnSelection> columnSelections) {
+            operand.addColumnSelections(columnSelections);
+        }
+
+        @Override
+        ColumnPredicate compile(UnaryOperator<ColumnSelection> substitution) {
+            return new NotPredicate(operand.compile(substitution));
+        }
+    }
+
+    // predicates of the inner nodes of a compiled expression test several columns (their column is null)
+    private static class AndPredicate extends ColumnPredicate {
+        private ColumnPredicate operands[];
+
+        AndPredicate(ColumnPredicate operands[]) {
+            super(null);
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(int row) {
+            for (ColumnPredicate operand : operands) {
+                if (!operand.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        double estimateSelectivity() {
+            double selectivity = 1.;
+            for (ColumnPredicate operand : operands) {
+                selectivity *= operand.estimateSelectivity();
+            }
+            return selectivity;
+        }
+
+        @Override
+        long testWord(int firstRow, int rowCount) {
+            long word = -1L >>> (64 - rowCount);
+            for (int i = 0; i < operands.length && word != 0L; i++) {
+                word &= operands[i].testWord(firstRow, rowCount);
+            }
+            return word;
+        }
+    }
+
+    private static class OrPredicate extends ColumnPredicate {
+        private ColumnPredicate operands[];
+
+        OrPredicate(ColumnPredicate operands[]) {
+            super(null);
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(int row) {
+            for (ColumnPredicate operand : operands) {
+                if (operand.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        double estimateSelectivity() {
+            double rejectedFraction = 1.;
+            for (ColumnPredicate operand : operands) {
+                rejectedFraction *= 1. - operand.estimateSelectivity();
+            }
+            return 1. - rejectedFraction;
+        }
+
+        @Override
+        long testWord(int firstRow, int rowCount) {
+            long rowMask = -1L >>> (64 - rowCount);
+            long word = 0L;
+            for (int i = 0; i < operands.length && word != rowMask; i++) {
+                word |= operands[i].testWord(firstRow, rowCount);
+            }
+            return word;
+        }
+    }
+
+    private static class NotPredicate extends ColumnPredicate {
+        private ColumnPredicate operand;
+
+        NotPredicate(ColumnPredicate operand) {
+            super(null);
+            this.operand = operand;
+        }
+
+        @Override
+        boolean test(int row) {
+            return !operand.test(row);
+        }
+
+        @Override
+        double estimateSelectivity() {
+            return 1. - operand.estimateSelectivity();
+        }
+
+        @Override
+        long testWord(int firstRow, int rowCount) {
+            return ~operand.testWord(firstRow, rowCount) & (-1L >>> (64 - rowCount));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package gov.ornl.datatable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Approximate result of the active query while the range of one of its selections is being dragged.
+ * The query is evaluated with the dragged range on a stratified sample of the rows only, so a preview
+ * takes time proportional to the sample size instead of the table size.  The number of queried tuples
+ * and the query histograms of the double and categorical columns are estimated by scaling the counts
+ * of the sample to the table.  The exact result replaces the preview once the drag ends.
+ */
+public class QueryPreview {
+    private ColumnSelection columnSelection;
+    private int tupleCount;
+    private int sampleRows[];
+    // indices into sampleRows of the sampled rows that pass the query
+    private BitSet queriedSampleIndices;
+    private int queriedSampleCount;
+    private HashMap<Column, Histogram> queryHistograms = new HashMap<>();
+
+    QueryPreview(ColumnSelection columnSelection, List<ColumnPredicate> predicates, List<Column> columns,
+                 int tupleCount, int sampleRows[], int numHistogramBins) {
+        this.columnSelection = columnSelection;
+        this.tupleCount = tupleCount;
+        this.sampleRows = sampleRows;
+
+        queriedSampleIndices = new BitSet(sampleRows.length);
+        for (int i = 0; i < sampleRows.length; i++) {
+            if (Query.isRowInPredicates(predicates, sampleRows[i])) {
+                queriedSampleIndices.set(i);
+            }
+        }
+        queriedSampleCount = queriedSampleIndices.cardinality();
+
+        for (Column column : columns) {
+            if (column instanceof DoubleColumn && ((DoubleColumn)column).getStatistics() != null) {
+                queryHistograms.put(column, createHistogram((DoubleColumn)column, numHistogramBins));
+            } else if (column instanceof CategoricalColumn) {
+                queryHistograms.put(column, createHistogram((CategoricalColumn)column));
+            }
+        }
+    }
+
+    // returns the selection with the dragged range
+    public ColumnSelection getColumnSelection() {
+        return columnSelection;
+    }
+
+    public int getSampleSize() {
+        return sampleRows.length;
+    }
+
+    public int getQueriedSampleCount() {
+        return queriedSampleCount;
+    }
+
+    public double getQueriedFraction() {
+        return sampleRows.length == 0 ? 0. : (double)queriedSampleCount / sampleRows.length;
+    }
+
+    public int getEstimatedQueriedTupleCount() {
+        return (int)Math.round(getQueriedFraction() * tupleCount);
+    }
+
+    // returns true if the row is in the sample the preview was evaluated on
+    public boolean isRowSampled(int row) {
+        return Arrays.binarySearch(sampleRows, row) >= 0;
+    }
+
+    // returns true if the row is sampled and passes the query with the dragged range
+    public boolean isRowQueried(int row) {
+        int index = Arrays.binarySearch(sampleRows, row);
+        return index >= 0 && queriedSampleIndices.get(index);
+    }
+
+    // returns the estimated query histogram of a double column (null if the column has no statistics)
+    public DoubleHistogram getQueryHistogram(DoubleColumn column) {
+        return (DoubleHistogram)queryHistograms.get(column);
+    }
+
+    // returns the estimated query histogram of a categorical column
+    public CategoricalHistogram getQueryHistogram(CategoricalColumn column) {
+        return (CategoricalHistogram)queryHistograms.get(column);
+    }
+
+    // the bins of the overall column histogram with the queried sample counts scaled to the table
+    private DoubleHistogram createHistogram(DoubleColumn column, int numBins) {
+        DoubleColumnSummaryStats columnStats = column.getStatistics();
+        DoubleHistogram bins = new DoubleHistogram(column.getName(), new double[0], numBins,
+                columnStats.getMinValue(), columnStats.getMaxValue());
+        int binCounts[] = new int[numBins];
+        for (int i = queriedSampleIndices.nextSetBit(0); i >= 0; i = queriedSampleIndices.nextSetBit(i + 1)) {
+            int binIndex = bins.getBinIndex(column.getValue(sampleRows[i]));
+            if (binIndex != -1) {
+                binCounts[binIndex]++;
+            }
+        }
+        return new DoubleHistogram(column.getName(), scaleCounts(binCounts), bins.getMinValue(), bins.getMaxValue());
+    }
+
+    private CategoricalHistogram createHistogram(CategoricalColumn column) {
+        int categoryIDs[] = column.getCategoryIDArray();
+        int categoryCounts[] = new int[column.getCategories().size()];
+        for (int i = queriedSampleIndices.nextSetBit(0); i >= 0; i = queriedSampleIndices.nextSetBit(i + 1)) {
+            categoryCounts[categoryIDs[sampleRows[i]]]++;
+        }
+        return new CategoricalHistogram(column.getName(), column.getCategories(), scaleCounts(categoryCounts),
+                getEstimatedQueriedTupleCount());
+    }
+
+    private int[] scaleCounts(int counts[]) {
+        double scale = sampleRows.length == 0 ? 0. : (double)tupleCount / sampleRows.length;
+        int scaledCounts[] = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            scaledCounts[i] = (int)Math.round(counts[i] * scale);
+        }
+        return scaledCounts;
+    }
+}
@@ -0,0 +1,261 @@
+package gov.ornl.datatable;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates the active query of a data table on a background thread while selections are being
+ * changed.  Selection changes snapshot the compiled predicates, the enabled columns, and the
+ * statistics settings of the data table on the JavaFX application thread and return; the correlation
+ * co-moments of all rows are built on the worker if the rows changed since they were last built.
+ * The worker also reads the column values, the sorted row indices of the double columns, and the
+ * statistics of all rows of the columns.  The data table changes none of these in
+ * place while an evaluation may run: the sorted row indices are completed before a request is made,
+ * and rows are only added or removed and statistics only replaced after cancelAndWait().  Changes of
+ * the ranges of double column selections are applied to the previous result with a crossfilter like
+ * Query.updateQueriedTuples() does, while other changes evaluate the query from the selections.
+ * Bursts of changes are coalesced so the worker only evaluates the latest request (with the range
+ * changes of the skipped requests), and a running evaluation is cancelled between row blocks when a
+ * newer request arrives.  Finished results are published on the JavaFX application thread and
+ * dropped if a newer request was made or the query or the state of the data table was changed by
+ * other means since the request was made.
+ */
+class QueryScheduler {
+    private final static Logger log = Logger.getLogger(QueryScheduler.class.getName());
+
+    private DataTable dataTable;
+    private Consumer<Runnable> publisher;
+    private ExecutorService executor;
+
+    // generation of the latest request; evaluations of older generations are cancelled
+    private final AtomicLong generation = new AtomicLong();
+    // true while a request is waiting for the worker (later requests replace it instead of queueing)
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private volatile Request latestRequest;
+    // latest request since the requests were last cancelled, which the range change of the next request follows
+    // (only used on the owning thread)
+    private Request previousRequest = null;
+    // query of the latest request until its result is published (only used on the owning thread)
+    private Query pendingQuery = null;
+
+    // request the worker last evaluated and its result, which the range changes of later requests are applied to
+    // (only used on the worker thread)
+    private Request baseRequest = null;
+    private Query baseResult = null;
+
+    QueryScheduler(DataTable dataTable) {
+        this(dataTable, Platform::runLater);
+    }
+
+    // the publisher runs the result handlers on the thread that owns the data table
+    QueryScheduler(DataTable dataTable, Consumer<Runnable> publisher) {
+        this.dataTable = dataTable;
+        this.publisher = publisher;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CrossVis query evaluation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // requests an evaluation of the active query after the column selection changed (called on the thread
+    // that owns the data table)
+    void schedule(ColumnSelection changedSelection) {
+        Query query = dataTable.getActiveQuery();
+        schedule(changedSelection, query, query.hasColumnSelections() ? query.compilePredicates() : new ArrayList<>(),
+                null);
+    }
+
+    // requests an update of the active query after the range of a double column selection changed from
+    // [previousMinValue, previousMaxValue] (called on the thread that owns the data table)
+    void schedule(DoubleColumnSelectionRange changedSelection, double previousMinValue, double previousMaxValue) {
+        Query query = dataTable.getActiveQuery();
+        ArrayList<ColumnPredicate> predicates = query.compilePredicates();
+        schedule(changedSelection, query, predicates,
+                query.createRangeChange(changedSelection, previousMinValue, previousMaxValue, predicates));
+    }
+
+    private void schedule(ColumnSelection changedSelection, Query query, ArrayList<ColumnPredicate> predicates,
+                          Query.RangeChange rangeChange) {
+        pendingQuery = query;
+        ArrayList<Column> columns = new ArrayList<>(dataTable.getColumns());
+        // the worker reads the sorted row indices, so they must not be built or extended lazily on its thread
+        for (Column column : columns) {
+            if (column instanceof DoubleColumn) {
+                ((DoubleColumn)column).getSortedRows();
+            }
+        }
+        Request request = new Request(generation.incrementAndGet(), query, query.getResultVersion(), predicates,
+                columns, dataTable.getTupleCount(), dataTable.getQueryDataState(),
+                new Query.StatisticsSettings(dataTable), new ArrayList<>(query.getColumnSelections()),
+                dataTable.getCorrelationMatrixSupplier(), changedSelection, rangeChange, previousRequest);
+        previousRequest = request;
+        latestRequest = request;
+
+        if (queued.compareAndSet(false, true)) {
+            executor.execute(this::evaluateLatestRequest);
+        }
+    }
+
+    // returns true if the result of the latest request was not published yet
+    boolean isPending() {
+        return pendingQuery != null;
+    }
+
+    // drops pending and running evaluations; returns the query whose latest result is dropped (null if all
+    // results were published)
+    Query cancel() {
+        generation.incrementAndGet();
+        previousRequest = null;
+        Query query = pendingQuery;
+        pendingQuery = null;
+        return query;
+    }
+
+    // drops pending and running evaluations and waits until the worker stopped reading the columns (a running
+    // evaluation stops at its next cancellation check); returns the query whose latest result is dropped (null if
+    // all results were published)
+    Query cancelAndWait() {
+        Query query = cancel();
+        try {
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            log.log(Level.WARNING, "Waiting for the query evaluation failed", ex);
+        }
+        return query;
+    }
+
+    private void evaluateLatestRequest() {
+        queued.set(false);
+        Request request = latestRequest;
+        if (request.generation != generation.get()) {
+            return;
+        }
+
+        // the range changes are applied completely, so the result is the base of later requests even if the
+        // calculation of its statistics is cancelled
+        BooleanSupplier cancelled = () -> request.generation != generation.get();
+        try {
+            ArrayList<Query.RangeChange> rangeChanges = getRangeChanges(request);
+            Query result = rangeChanges != null ?
+                    baseResult.updateResult(rangeChanges, request.columns, request.statisticsSettings) :
+                    request.query.createResult(request.predicates, request.rowCount, request.statisticsSettings,
+                            cancelled);
+            request.previousRequest = null;
+            baseRequest = result != null ? request : null;
+            baseResult = result;
+
+            if (result != null && (request.predicates.isEmpty() ||
+                    result.calculateResultStatistics(request.columns, request.correlationMatrix.get(), cancelled))) {
+                publisher.accept(() -> publish(request, result));
+            }
+        } catch (RuntimeException ex) {
+            // the base result may be partly updated, so the next request is evaluated from the selections
+            log.log(Level.WARNING, "Evaluating the query in the background failed", ex);
+            request.previousRequest = null;
+            baseRequest = null;
+            baseResult = null;
+            publisher.accept(() -> publishFailure(request));
+        }
+    }
+
+    // returns the range changes of the requests since the base request in order (null if the query must be
+    // evaluated from the selections because there is no base result, another kind of change was requested, or the
+    // query, selections, or data table changed since the base request)
+    private ArrayList<Query.RangeChange> getRangeChanges(Request request) {
+        if (baseRequest == null) {
+            return null;
+        }
+        ArrayList<Query.RangeChange> rangeChanges = new ArrayList<>();
+        for (Request changeRequest = request; changeRequest != baseRequest; changeRequest = changeRequest.previousRequest) {
+            if (changeRequest == null || changeRequest.rangeChange == null || changeRequest.query != baseRequest.query ||
+                    !changeRequest.dataState.equals(baseRequest.dataState) ||
+                    !changeRequest.columnSelections.equals(baseRequest.columnSelections)) {
+                return null;
+            }
+            rangeChanges.add(changeRequest.rangeChange);
+        }
+        Collections.reverse(rangeChanges);
+        return rangeChanges;
+    }
+
+    private void publish(Request request, Query result) {
+        if (request.generation != generation.get() || request.query != dataTable.getActiveQuery()) {
+            return;
+        }
+        if (request.query.getResultVersion() != request.resultVersion ||
+                !request.dataState.equals(dataTable.getQueryDataState())) {
+            // the query or the statistics settings were changed by other means while the result was computed
+            schedule(request.changedSelection);
+            return;
+        }
+        pendingQuery = null;
+        request.query.setResult(result);
+        dataTable.fireColumnSelectionChanged(request.changedSelection);
+    }
+
+    // evaluates the query on the owning thread after the evaluation of a request failed on the worker, so the
+    // result is not left pending
+    private void publishFailure(Request request) {
+        if (request.generation != generation.get() || request.query != dataTable.getActiveQuery()) {
+            return;
+        }
+        pendingQuery = null;
+        previousRequest = null;
+        request.query.setQueriedTuples();
+        dataTable.fireColumnSelectionChanged(request.changedSelection);
+    }
+
+    // snapshot of the state an evaluation is computed from
+    private static class Request {
+        private final long generation;
+        private final Query query;
+        private final int resultVersion;
+        private final ArrayList<ColumnPredicate> predicates;
+        private final ArrayList<Column> columns;
+        private final int rowCount;
+        private final Object dataState;
+        private final Query.StatisticsSettings statisticsSettings;
+        private final ArrayList<ColumnSelection> columnSelections;
+        // correlation co-moments of all rows (built on the worker if the rows changed since they were last built)
+        private final Supplier<CorrelationMatrix> correlationMatrix;
+        private final ColumnSelection changedSelection;
+        // change of the range of a double column selection since the previous request (null for other changes) and
+        // the previous request (cleared once this request is evaluated)
+        private final Query.RangeChange rangeChange;
+        private volatile Request previousRequest;
+
+        Request(long generation, Query query, int resultVersion, ArrayList<ColumnPredicate> predicates,
+                ArrayList<Column> columns, int rowCount, Object dataState, Query.StatisticsSettings statisticsSettings,
+                ArrayList<ColumnSelection> columnSelections, Supplier<CorrelationMatrix> correlationMatrix,
+                ColumnSelection changedSelection, Query.RangeChange rangeChange, Request previousRequest) {
+            this.generation = generation;
+            this.query = query;
+            this.resultVersion = resultVersion;
+            this.predicates = predicates;
+            this.columns = columns;
+            this.rowCount = rowCount;
+            this.dataState = dataState;
+            this.statisticsSettings = statisticsSettings;
+            this.columnSelections = columnSelections;
+            this.correlationMatrix = correlationMatrix;
+            this.changedSelection = changedSelection;
+            this.rangeChange = rangeChange;
+            this.previousRequest = previousRequest;
+        }
+    }
+}
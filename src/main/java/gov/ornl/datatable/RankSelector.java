@@ -0,0 +1,92 @@
+package gov.ornl.datatable;
+
+import java.util.TreeSet;
+
+/**
+ * Exact values by rank of an array of double values without sorting the array.  Each requested rank is
+ * found with quickselect on a copy of the values, which partitions the copy around the value at that
+ * rank.  Later requests only search between the nearest ranks found before, so finding a few quantiles
+ * and searching the ranks between them for the whiskers takes expected linear time instead of the
+ * time of a full sort.  NaN values are not included.
+ */
+class RankSelector {
+    private double values[];
+    // ranks whose values are in their sorted position (values below are not greater and values above not less)
+    private TreeSet<Integer> selectedRanks = new TreeSet<>();
+
+    RankSelector(double values[]) {
+        int count = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                count++;
+            }
+        }
+        this.values = new double[count];
+        count = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                this.values[count++] = value;
+            }
+        }
+    }
+
+    int getCount() {
+        return values.length;
+    }
+
+    // returns the value with the given rank (0 is the minimum)
+    double getValueAtRank(int rank) {
+        if (!selectedRanks.contains(rank)) {
+            Integer lowerRank = selectedRanks.lower(rank);
+            Integer higherRank = selectedRanks.higher(rank);
+            select(rank, lowerRank == null ? 0 : lowerRank + 1, higherRank == null ? values.length - 1 : higherRank - 1);
+            selectedRanks.add(rank);
+        }
+        return values[rank];
+    }
+
+    // moves the value with the given rank to its sorted position within values from index left to right
+    private void select(int rank, int left, int right) {
+        while (left < right) {
+            // median of three pivot
+            int middle = (left + right) >>> 1;
+            if (values[middle] < values[left]) {
+                swap(middle, left);
+            }
+            if (values[right] < values[left]) {
+                swap(right, left);
+            }
+            if (values[right] < values[middle]) {
+                swap(right, middle);
+            }
+            double pivot = values[middle];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (rank <= j) {
+                right = j;
+            } else if (rank >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
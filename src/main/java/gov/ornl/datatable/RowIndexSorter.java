@@ -0,0 +1,225 @@
+package gov.ornl.datatable;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Builds permutations of row indices ordered by the column values of the rows.  Uses a stable
+ * bottom-up merge sort on primitive index arrays so no boxed values are created for large columns.
+ */
+final class RowIndexSorter {
+
+    private RowIndexSorter() {}
+
+    // returns the indices of the first count rows ordered by ascending value (NaN values last)
+    static int[] sort(double[] values, int count) {
+        return sortByDouble(row -> values[row], count);
+    }
+
+    // returns the indices of the first count rows ordered by ascending value (NaN values last)
+    static int[] sortByDouble(IntToDoubleFunction values, int count) {
+        return sortByDouble(values, 0, count);
+    }
+
+    // returns the sorted rows extended with the rows from sortedRows.length to count - 1 in the same order as
+    // sortByDouble(values, count) would produce (only the appended rows are sorted before the two runs are
+    // merged)
+    static int[] extendByDouble(int[] sortedRows, IntToDoubleFunction values, int count) {
+        int appendedRows[] = sortByDouble(values, sortedRows.length, count);
+        int rows[] = new int[count];
+        int left = 0, right = 0, i = 0;
+        while (left < sortedRows.length && right < appendedRows.length) {
+            if (Double.compare(values.applyAsDouble(appendedRows[right]), values.applyAsDouble(sortedRows[left])) < 0) {
+                rows[i++] = appendedRows[right++];
+            } else {
+                rows[i++] = sortedRows[left++];
+            }
+        }
+        System.arraycopy(sortedRows, left, rows, i, sortedRows.length - left);
+        System.arraycopy(appendedRows, right, rows, i + sortedRows.length - left, appendedRows.length - right);
+        return rows;
+    }
+
+    // returns the sorted rows of a column of rowCount rows after only the given rows (ascending) were retained
+    // and renumbered by their position in rows (the retained rows keep their relative order so nothing is sorted)
+    static int[] retain(int[] sortedRows, int[] rows, int rowCount) {
+        int newRows[] = new int[rowCount];
+        Arrays.fill(newRows, -1);
+        for (int i = 0; i < rows.length; i++) {
+            newRows[rows[i]] = i;
+        }
+        int retainedRows[] = new int[rows.length];
+        int i = 0;
+        for (int row : sortedRows) {
+            if (newRows[row] != -1) {
+                retainedRows[i++] = newRows[row];
+            }
+        }
+        return retainedRows;
+    }
+
+    // returns the indices of the rows from first to count - 1 ordered by ascending value (NaN values last)
+    private static int[] sortByDouble(IntToDoubleFunction values, int first, int count) {
+        int size = count - first;
+        int rows[] = identity(first, count);
+        int buffer[] = new int[size];
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int start = 0; start < size; start += 2 * width) {
+                int middle = Math.min(start + width, size);
+                int end = Math.min(start + 2 * width, size);
+                int left = start, right = middle, i = start;
+                while (left < middle && right < end) {
+                    if (Double.compare(values.applyAsDouble(rows[right]), values.applyAsDouble(rows[left])) < 0) {
+                        buffer[i++] = rows[right++];
+                    } else {
+                        buffer[i++] = rows[left++];
+                    }
+                }
+                while (left < middle) {
+                    buffer[i++] = rows[left++];
+                }
+                while (right < end) {
+                    buffer[i++] = rows[right++];
+                }
+            }
+            int swap[] = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+
+        return rows;
+    }
+
+    // returns the indices of the first count rows ordered by ascending value
+    static int[] sort(long[] values, int count) {
+        return sortByLong(row -> values[row], count);
+    }
+
+    // returns the indices of the first count rows ordered by ascending value
+    static int[] sortByLong(IntToLongFunction values, int count) {
+        return sortByLong(values, 0, count);
+    }
+
+    // returns the sorted rows extended with the rows from sortedRows.length to count - 1 in the same order as
+    // sortByLong(values, count) would produce (only the appended rows are sorted before the two runs are
+    // merged)
+    static int[] extendByLong(int[] sortedRows, IntToLongFunction values, int count) {
+        int appendedRows[] = sortByLong(values, sortedRows.length, count);
+        int rows[] = new int[count];
+        int left = 0, right = 0, i = 0;
+        while (left < sortedRows.length && right < appendedRows.length) {
+            if (values.applyAsLong(appendedRows[right]) < values.applyAsLong(sortedRows[left])) {
+                rows[i++] = appendedRows[right++];
+            } else {
+                rows[i++] = sortedRows[left++];
+            }
+        }
+        System.arraycopy(sortedRows, left, rows, i, sortedRows.length - left);
+        System.arraycopy(appendedRows, right, rows, i + sortedRows.length - left, appendedRows.length - right);
+        return rows;
+    }
+
+    // returns the indices of the rows from first to count - 1 ordered by ascending value
+    private static int[] sortByLong(IntToLongFunction values, int first, int count) {
+        int size = count - first;
+        int rows[] = identity(first, count);
+        int buffer[] = new int[size];
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int start = 0; start < size; start += 2 * width) {
+                int middle = Math.min(start + width, size);
+                int end = Math.min(start + 2 * width, size);
+                int left = start, right = middle, i = start;
+                while (left < middle && right < end) {
+                    if (values.applyAsLong(rows[right]) < values.applyAsLong(rows[left])) {
+                        buffer[i++] = rows[right++];
+                    } else {
+                        buffer[i++] = rows[left++];
+                    }
+                }
+                while (left < middle) {
+                    buffer[i++] = rows[left++];
+                }
+                while (right < end) {
+                    buffer[i++] = rows[right++];
+                }
+            }
+            int swap[] = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+
+        return rows;
+    }
+
+    // orders two rows by their values (negative if rowA comes first, positive if rowB comes first)
+    interface RowComparator {
+        int compare(int rowA, int rowB);
+    }
+
+    // returns the indices of the first count rows ordered by the comparator
+    static int[] sort(RowComparator comparator, int count) {
+        return sort(comparator, 0, count);
+    }
+
+    // returns the sorted rows extended with the rows from sortedRows.length to count - 1 in the same order as
+    // sort(comparator, count) would produce (only the appended rows are sorted before the two runs are merged)
+    static int[] extend(int[] sortedRows, RowComparator comparator, int count) {
+        int appendedRows[] = sort(comparator, sortedRows.length, count);
+        int rows[] = new int[count];
+        int left = 0, right = 0, i = 0;
+        while (left < sortedRows.length && right < appendedRows.length) {
+            if (comparator.compare(appendedRows[right], sortedRows[left]) < 0) {
+                rows[i++] = appendedRows[right++];
+            } else {
+                rows[i++] = sortedRows[left++];
+            }
+        }
+        System.arraycopy(sortedRows, left, rows, i, sortedRows.length - left);
+        System.arraycopy(appendedRows, right, rows, i + sortedRows.length - left, appendedRows.length - right);
+        return rows;
+    }
+
+    // returns the indices of the rows from first to count - 1 ordered by the comparator
+    private static int[] sort(RowComparator comparator, int first, int count) {
+        int size = count - first;
+        int rows[] = identity(first, count);
+        int buffer[] = new int[size];
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int start = 0; start < size; start += 2 * width) {
+                int middle = Math.min(start + width, size);
+                int end = Math.min(start + 2 * width, size);
+                int left = start, right = middle, i = start;
+                while (left < middle && right < end) {
+                    if (comparator.compare(rows[right], rows[left]) < 0) {
+                        buffer[i++] = rows[right++];
+                    } else {
+                        buffer[i++] = rows[left++];
+                    }
+                }
+                while (left < middle) {
+                    buffer[i++] = rows[left++];
+                }
+                while (right < end) {
+                    buffer[i++] = rows[right++];
+                }
+            }
+            int swap[] = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+
+        return rows;
+    }
+
+    private static int[] identity(int first, int count) {
+        int rows[] = new int[count - first];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = first + i;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,45 @@
+package gov.ornl.datatable;
+
+import java.util.Random;
+
+/**
+ * Stratified sample of the rows of a data table for approximate query previews.  The rows are divided
+ * into strata of consecutive rows of equal size and one row is drawn at random from each stratum, so the
+ * sample covers every part of the table evenly.  Tables with no more rows than the sample size are
+ * sampled completely.  The sampled rows are in ascending order.
+ */
+class RowSample {
+    private int rowCount;
+    private int rows[];
+
+    RowSample(int rowCount, int sampleSize, Random random) {
+        this.rowCount = rowCount;
+        if (rowCount <= sampleSize) {
+            rows = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                rows[row] = row;
+            }
+        } else {
+            rows = new int[sampleSize];
+            for (int stratum = 0; stratum < sampleSize; stratum++) {
+                int firstRow = (int)((long)stratum * rowCount / sampleSize);
+                int endRow = (int)((long)(stratum + 1) * rowCount / sampleSize);
+                rows[stratum] = firstRow + random.nextInt(endRow - firstRow);
+            }
+        }
+    }
+
+    // number of rows of the table the sample was drawn from
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getSize() {
+        return rows.length;
+    }
+
+    // returns the sampled rows in ascending order (callers must not modify them)
+    int[] getRows() {
+        return rows;
+    }
+}
@@ -4,9 +4,38 @@ import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntToLongFunction;
 
 public class TemporalColumn extends Column {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // primitive storage for the column values as epoch milliseconds (the first valueCount entries are valid)
+    private long values[] = new long[0];
+
+    // nanoseconds past the epoch millisecond of each value (null until a value with sub-millisecond precision is
+    // added, so columns of whole milliseconds only store the epoch milliseconds)
+    private int nanos[];
+
+    // memory mapped storage that replaces the values and nanos arrays for tables larger than the heap (null if
+    // not used)
+    private MappedColumnStorage mappedValues;
+    private MappedColumnStorage mappedNanos;
+
+    // row indices sorted by ascending value (built lazily, extended when rows are appended, and compacted when
+    // rows are removed)
+    private int sortedRows[];
+
+    // positions in the sorted row index of the last lower context row + 1 and the first upper context row
+    // for the current focus extents
+    private int focusLowerEnd = 0;
+    private int focusUpperStart = 0;
+
     private TemporalColumnSummaryStats summaryStats;
     private ObjectProperty<Instant> startScaleValue = new SimpleObjectProperty<>(null);
     private ObjectProperty<Instant> endScaleValue = new SimpleObjectProperty<>(null);
@@ -17,16 +46,313 @@ public class TemporalColumn extends Column {
         super(name);
     }
 
-    public boolean setFocusContext(Tuple tuple, int elementIdx) {
-        if (((Instant)tuple.getElement(elementIdx)).isAfter(getEndFocusValue())) {
-            getUpperContextTuples().add(tuple);
-            return false;
-        } else if (((Instant)tuple.getElement(elementIdx)).isBefore(getStartFocusValue())) {
-            getLowerContextTuples().add(tuple);
-            return false;
+    @Override
+    protected void calculateFocusStates() {
+        super.calculateFocusStates();
+        setFocusBoundaries();
+        setFocusStates(0, focusLowerEnd);
+        setFocusStates(focusUpperStart, focusStates.length);
+        focusRowCount = focusUpperStart - focusLowerEnd;
+    }
+
+    @Override
+    protected void appendFocusStates(int firstNewRow) {
+        super.appendFocusStates(firstNewRow);
+        setFocusBoundaries();
+
+        // rows with values after the end focus value are upper context even if they are before the start
+        for (int row = firstNewRow; row < focusStates.length; row++) {
+            if (compareValue(row, getEndFocusValue()) > 0) {
+                focusStates[row] = UPPER_CONTEXT;
+                focusRowCount--;
+            } else if (compareValue(row, getStartFocusValue()) < 0) {
+                focusStates[row] = LOWER_CONTEXT;
+                focusRowCount--;
+            }
+        }
+    }
+
+    @Override
+    protected void updateFocusStates() {
+        int previousLowerEnd = focusLowerEnd;
+        int previousUpperStart = focusUpperStart;
+        setFocusBoundaries();
+
+        // only the rows between the previous and new boundaries in the sorted row index change state
+        updateFocusStates(Math.min(previousLowerEnd, focusLowerEnd), Math.max(previousLowerEnd, focusLowerEnd));
+        updateFocusStates(Math.min(previousUpperStart, focusUpperStart), Math.max(previousUpperStart, focusUpperStart));
+    }
+
+    // finds the positions in the sorted row index that separate the lower context, focus, and upper context rows
+    private void setFocusBoundaries() {
+        focusUpperStart = getSortedRowsUpperBound(getEndFocusValue());
+        focusLowerEnd = Math.min(getSortedRowsLowerBound(getStartFocusValue()), focusUpperStart);
+    }
+
+    // returns the focus state for a position in the sorted row index
+    private byte getFocusStateAt(int position) {
+        if (position < focusLowerEnd) {
+            return LOWER_CONTEXT;
+        } else if (position >= focusUpperStart) {
+            return UPPER_CONTEXT;
+        }
+        return FOCUS;
+    }
+
+    private void setFocusStates(int start, int end) {
+        for (int i = start; i < end; i++) {
+            focusStates[sortedRows[i]] = getFocusStateAt(i);
+        }
+    }
+
+    private void updateFocusStates(int start, int end) {
+        for (int i = start; i < end; i++) {
+            setFocusState(sortedRows[i], getFocusStateAt(i));
+        }
+    }
+
+    // returns the row indices ordered by ascending value; callers must not modify the array
+    protected int[] getSortedRows() {
+        if (sortedRows == null || sortedRows.length < valueCount) {
+            if (hasSubMillisecondValues()) {
+                // values within the same millisecond are ordered by their nanoseconds
+                RowIndexSorter.RowComparator comparator = (rowA, rowB) -> {
+                    int comparison = Long.compare(getEpochMilli(rowA), getEpochMilli(rowB));
+                    return comparison != 0 ? comparison : Integer.compare(getNanos(rowA), getNanos(rowB));
+                };
+                sortedRows = sortedRows == null ? RowIndexSorter.sort(comparator, valueCount) :
+                        RowIndexSorter.extend(sortedRows, comparator, valueCount);
+            } else {
+                IntToLongFunction valueFunction = mappedValues != null ? mappedValues::getLong : row -> values[row];
+                if (sortedRows == null) {
+                    sortedRows = RowIndexSorter.sortByLong(valueFunction, valueCount);
+                } else {
+                    // rows were appended since the index was built so only the appended rows are sorted and merged
+                    sortedRows = RowIndexSorter.extendByLong(sortedRows, valueFunction, valueCount);
+                }
+            }
+        }
+        return sortedRows;
+    }
+
+    // returns the position in the sorted rows of the first row with a value that is not before instant
+    protected int getSortedRowsLowerBound(Instant instant) {
+        int sortedRows[] = getSortedRows();
+        int low = 0;
+        int high = sortedRows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareValue(sortedRows[middle], instant) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // returns the position in the sorted rows of the first row with a value after instant
+    protected int getSortedRowsUpperBound(Instant instant) {
+        int sortedRows[] = getSortedRows();
+        int low = 0;
+        int high = sortedRows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareValue(sortedRows[middle], instant) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public Instant getValue(int row) {
+        return Instant.ofEpochMilli(getEpochMilli(row)).plusNanos(getNanos(row));
+    }
+
+    // returns the heap epoch millisecond array (it may be longer than the value count) or null if the column uses
+    // memory mapped storage; callers must not modify the array
+    long[] getEpochMilliArray() {
+        return mappedValues != null ? null : values;
+    }
+
+    // returns the value of the row rounded down to the epoch millisecond (getNanos() returns the remainder)
+    public long getEpochMilli(int row) {
+        return mappedValues != null ? mappedValues.getLong(row) : values[row];
+    }
+
+    // returns the nanoseconds past the epoch millisecond of the value of the row (0 to 999999)
+    public int getNanos(int row) {
+        if (mappedNanos != null) {
+            return (int)mappedNanos.getLong(row);
+        }
+        return nanos != null ? nanos[row] : 0;
+    }
+
+    // returns true if a value of the column has sub-millisecond precision
+    boolean hasSubMillisecondValues() {
+        return nanos != null || mappedNanos != null;
+    }
+
+    // compares the value of the row to an instant (negative if the value is before the instant)
+    int compareValue(int row, Instant instant) {
+        int comparison = Long.compare(getEpochMilli(row), instant.toEpochMilli());
+        return comparison != 0 ? comparison : Integer.compare(getNanos(row), instant.getNano() % 1000000);
+    }
+
+    @Override
+    public Object getValueAt(int row) {
+        return getValue(row);
+    }
+
+    public void addValue(Instant instant) {
+        // toEpochMilli() rounds down so the remainder is never negative
+        int valueNanos = instant.getNano() % 1000000;
+        if (valueNanos != 0 && !hasSubMillisecondValues()) {
+            addNanosStorage();
+        }
+        if (mappedValues != null) {
+            ensureCapacity(valueCount + 1);
+            mappedValues.putLong(valueCount, instant.toEpochMilli());
+            if (mappedNanos != null) {
+                mappedNanos.putLong(valueCount, valueNanos);
+            }
+        } else {
+            if (valueCount == values.length) {
+                ensureCapacity(Math.max(INITIAL_CAPACITY, values.length * 2));
+            }
+            values[valueCount] = instant.toEpochMilli();
+            if (nanos != null) {
+                nanos[valueCount] = valueNanos;
+            }
+        }
+        valueCount++;
+    }
+
+    // adds the storage for the nanoseconds of the values (all 0 for the values that were added before)
+    private void addNanosStorage() {
+        if (mappedValues != null) {
+            try {
+                mappedNanos = new MappedColumnStorage(mappedValues.getFile().getParentFile(), getName());
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Unable to create column storage file", ex);
+            }
+            // the new file reads as 0 where nothing was written
+            mappedNanos.ensureCapacity(mappedValues.getCapacity());
+        } else {
+            nanos = new int[values.length];
+        }
+    }
+
+    @Override
+    protected void addValue(Object value) {
+        addValue((Instant)value);
+    }
+
+    // instants have no missing value so the epoch is stored
+    @Override
+    protected void addMissingValue() {
+        addValue(Instant.EPOCH);
+    }
+
+    @Override
+    protected void useMappedStorage(File directory) throws IOException {
+        if (mappedValues == null) {
+            mappedValues = new MappedColumnStorage(directory, getName());
+            mappedValues.ensureCapacity(valueCount);
+            for (int i = 0; i < valueCount; i++) {
+                mappedValues.putLong(i, values[i]);
+            }
+            values = new long[0];
+            if (nanos != null) {
+                mappedNanos = new MappedColumnStorage(directory, getName());
+                mappedNanos.ensureCapacity(valueCount);
+                for (int i = 0; i < valueCount; i++) {
+                    mappedNanos.putLong(i, nanos[i]);
+                }
+                nanos = null;
+            }
         }
-        getFocusTuples().add(tuple);
-        return true;
+    }
+
+    @Override
+    protected void closeMappedStorage() {
+        if (mappedValues != null) {
+            mappedValues.close();
+            mappedValues = null;
+            if (mappedNanos != null) {
+                mappedNanos.close();
+                mappedNanos = null;
+            }
+            valueCount = 0;
+            sortedRows = null;
+        }
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (mappedValues != null) {
+            mappedValues.ensureCapacity(capacity);
+            if (mappedNanos != null) {
+                mappedNanos.ensureCapacity(capacity);
+            }
+        } else if (capacity > values.length) {
+            values = Arrays.copyOf(values, capacity);
+            if (nanos != null) {
+                nanos = Arrays.copyOf(nanos, capacity);
+            }
+        }
+    }
+
+    @Override
+    protected void trimToSize() {
+        if (mappedValues == null && values.length != valueCount) {
+            values = Arrays.copyOf(values, valueCount);
+            if (nanos != null) {
+                nanos = Arrays.copyOf(nanos, valueCount);
+            }
+        }
+    }
+
+    @Override
+    protected boolean retainRows(int[] rows) {
+        if (mappedValues != null) {
+            mappedValues.retain(rows);
+            if (mappedNanos != null) {
+                mappedNanos.retain(rows);
+            }
+        } else {
+            // rows are ascending so each value moves to a position at or before its current one
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = values[rows[i]];
+            }
+            if (nanos != null) {
+                for (int i = 0; i < rows.length; i++) {
+                    nanos[i] = nanos[rows[i]];
+                }
+            }
+        }
+        if (sortedRows != null && sortedRows.length == valueCount) {
+            sortedRows = RowIndexSorter.retain(sortedRows, rows, valueCount);
+        } else {
+            sortedRows = null;
+        }
+        valueCount = rows.length;
+        return false;
+    }
+
+    // returns a copy of the column values (rounded down to the millisecond; use getEpochMilliArray() to read heap
+    // values without copying them)
+    public long[] getEpochMilliValues() {
+        if (mappedValues != null) {
+            long copy[] = new long[valueCount];
+            for (int i = 0; i < valueCount; i++) {
+                copy[i] = mappedValues.getLong(i);
+            }
+            return copy;
+        }
+        return Arrays.copyOf(values, valueCount);
     }
 
     public Instant getStartFocusValue() { return startFocusValue.get(); }
@@ -66,10 +392,24 @@ public class TemporalColumn extends Column {
     public ReadOnlyObjectProperty<Instant> endScaleValueProperty() { return endScaleValue; }
 
     public void calculateStatistics() {
+        setStatistics(prepareStatistics());
+    }
+
+    @Override
+    ColumnSummaryStats prepareStatistics() {
+        TemporalColumnSummaryStats statistics = new TemporalColumnSummaryStats(this, getDataTable().getNumHistogramBins(),
+                null);
+        statistics.setValues(getValues(), getDataTable().getNumHistogramBins());
+        return statistics;
+    }
+
+    @Override
+    void setStatistics(ColumnSummaryStats statistics) {
         if (summaryStats == null) {
-            summaryStats = new TemporalColumnSummaryStats(this, getDataTable().getNumHistogramBins(), null);
+            summaryStats = (TemporalColumnSummaryStats)statistics;
+        } else {
+            summaryStats.setStatistics(statistics);
         }
-        summaryStats.setValues(getValues(), getDataTable().getNumHistogramBins());
 
         if (getStartScaleValue() == null) {
             setStartScaleValue(summaryStats.getStartInstant());
@@ -89,58 +429,63 @@ public class TemporalColumn extends Column {
     }
 
     public Instant[] getFocusValues() {
-        int columnIndex = getDataTable().getColumnIndex(this);
-        if (columnIndex == -1) {
-            columnIndex = getDataTable().getDisabledColumns().indexOf(this);
-        }
-
-        Instant[] values = new Instant[getFocusTuples().size()];
+        Instant[] focusValues = new Instant[getFocusRowCount()];
         int counter = 0;
-        for (Tuple focusTuple : getFocusTuples()) {
-            values[counter++] = (Instant)focusTuple.getElement(columnIndex);
+        for (int row = 0; row < focusStates.length; row++) {
+            if (focusStates[row] == FOCUS) {
+                focusValues[counter++] = getValue(row);
+            }
         }
 
-        return values;
+        return focusValues;
     }
 
     public Instant[] getValues() {
-        Instant[] values = new Instant[getDataTable().getTupleCount()];
-        int columnIndex = getDataTable().getColumnIndex(this);
-        for (int i = 0; i < getDataTable().getTupleCount(); i++) {
-            values[i] = (Instant) getDataTable().getTuple(i).getElement(columnIndex);
+        Instant[] instants = new Instant[valueCount];
+        for (int i = 0; i < valueCount; i++) {
+            instants[i] = getValue(i);
         }
 
-        return values;
+        return instants;
     }
 
     public Instant[] getQueriedValues() {
-        if (getDataTable().getActiveQuery().getQueriedTuples().isEmpty()) {
+        return getQueriedValues(getDataTable().getActiveQuery());
+    }
+
+    public Instant[] getQueriedValues(Query query) {
+        if (query.getQueriedTupleCount() == 0) {
             return null;
         }
 
-        Instant[] values = new Instant[getDataTable().getActiveQuery().getQueriedTuples().size()];
-        int columnIndex = getDataTable().getColumnIndex(this);
+        BitSet queriedRows = query.getQueriedRows();
+        Instant[] queriedValues = new Instant[query.getQueriedTupleCount()];
         int counter = 0;
-        for (Tuple tuple : getDataTable().getActiveQuery().getQueriedTuples()) {
-            values[counter++] = (Instant)tuple.getElement(columnIndex);
+        for (int row = queriedRows.nextSetBit(0); row >= 0; row = queriedRows.nextSetBit(row + 1)) {
+            queriedValues[counter++] = getValue(row);
         }
 
-        return values;
+        return queriedValues;
     }
 
     public Instant[] getNonqueriedValues() {
-        if (getDataTable().getActiveQuery().getNonQueriedTuples().isEmpty()) {
+        return getNonqueriedValues(getDataTable().getActiveQuery());
+    }
+
+    public Instant[] getNonqueriedValues(Query query) {
+        if (query.getNonQueriedTupleCount() == 0) {
             return null;
         }
 
-        Instant[] values = new Instant[getDataTable().getActiveQuery().getNonQueriedTuples().size()];
-        int columnIndex = getDataTable().getColumnIndex(this);
+        BitSet queriedRows = query.getQueriedRows();
+        Instant[] nonqueriedValues = new Instant[query.getNonQueriedTupleCount()];
         int counter = 0;
-        for (Tuple tuple : getDataTable().getActiveQuery().getNonQueriedTuples()) {
-            values[counter++] = (Instant)tuple.getElement(columnIndex);
+        int rowCount = query.getRowCount();
+        for (int row = queriedRows.nextClearBit(0); row < rowCount; row = queriedRows.nextClearBit(row + 1)) {
+            nonqueriedValues[counter++] = getValue(row);
         }
 
-        return values;
+        return nonqueriedValues;
     }
 
     public TemporalColumnSummaryStats getStatistics () {
@@ -76,15 +76,26 @@ public class TemporalColumnSummaryStats extends ColumnSummaryStats {
         calculateHistogram();
     }
 
+    @Override
+    void setStatistics(ColumnSummaryStats statistics) {
+        TemporalColumnSummaryStats stats = (TemporalColumnSummaryStats)statistics;
+        values = stats.values;
+        numHistogramBins = stats.numHistogramBins;
+        setStartInstant(stats.getStartInstant());
+        setEndInstant(stats.getEndInstant());
+        setHistogram(stats.getHistogram());
+    }
+
     private TemporalColumn temporalColumn() {
         return (TemporalColumn)getColumn();
     }
 
     @Override
     public void calculateHistogram() {
+        // query statistics are binned over the range of all values of the column
+        TemporalColumnSummaryStats rangeStats = query == null ? this : temporalColumn().getStatistics();
         setHistogram(new TemporalHistogram(column.getName(), values, numHistogramBins,
-                temporalColumn().getStatistics().getStartInstant(),
-                temporalColumn().getStatistics().getEndInstant()));
+                rangeStats.getStartInstant(), rangeStats.getEndInstant()));
     }
 
     public TemporalHistogram getHistogram() {
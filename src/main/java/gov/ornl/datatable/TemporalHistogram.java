@@ -203,7 +203,15 @@ public class TemporalHistogram extends Histogram {
                 Instant value = values[ivalue];
 
                 Duration valueOffsetDuration = Duration.between(startInstant, value);
-                int binIndex = (int) (valueOffsetDuration.toMillis() / binDuration.toMillis());
+                int binIndex;
+                if (binDuration.toMillis() > 0) {
+                    binIndex = (int) (valueOffsetDuration.toMillis() / binDuration.toMillis());
+                } else if (!binDuration.isZero()) {
+                    // bins shorter than a millisecond (the range is less than numBins milliseconds)
+                    binIndex = (int) (valueOffsetDuration.toNanos() / binDuration.toNanos());
+                } else {
+                    binIndex = valueOffsetDuration.isNegative() ? -1 : numBins;
+                }
 
                 if (binIndex < 0) {
                     // the value is smaller than the minValue
@@ -3,78 +3,62 @@ package gov.ornl.datatable;
 import java.io.Serializable;
 import java.util.ArrayList;
 
+/**
+ * A row of a DataTable.  Tuples in a data table are lightweight views that read their
+ * elements from the column value storage using their row index.  Tuples created with
+ * Tuple(DataTable) hold their own elements until they are added to the data table with
+ * setData() or addTuples().
+ */
 public class Tuple implements Serializable {
 	private DataTable dataTable;
-	private ArrayList<Object> elements = new ArrayList<>();
+	private int row = -1;
+	// element values for a tuple that is not (yet) stored in the data table columns
+	private ArrayList<Object> elements;
 	private boolean queryFlag = true;
 	private int orderFactor = 0;
 
 	public Tuple(DataTable dataTable) {
 		this.dataTable = dataTable;
+		elements = new ArrayList<>();
+	}
+
+	protected Tuple(DataTable dataTable, int row) {
+		this.dataTable = dataTable;
+		this.row = row;
+	}
+
+	public int getRow() {
+		return row;
 	}
 
 	public boolean isElementInFocus(int elementIndex) {
-		return dataTable.getColumn(elementIndex).getFocusTuples().contains(this);
+		return dataTable.getColumn(elementIndex).isRowInFocus(row);
 	}
 
 	public boolean isElementInLowerContext(int elementIndex) {
-		return dataTable.getColumn(elementIndex).getLowerContextTuples().contains(this);
+		return dataTable.getColumn(elementIndex).isRowInLowerContext(row);
 	}
 
 	public boolean isElementInUpperContext(int elementIndex) {
-		return dataTable.getColumn(elementIndex).getUpperContextTuples().contains(this);
+		return dataTable.getColumn(elementIndex).isRowInUpperContext(row);
 	}
 
-//	public Tuple createCopy() {
-//		Tuple copyTuple = new Tuple();
-//		for (Object element : elements) {
-//			copyTuple.addElement(element);
-//		}
-//		return copyTuple;
-//	}
-
     public Tuple (Tuple copyTuple) {
+		this.dataTable = copyTuple.dataTable;
+		elements = new ArrayList<>();
         for (int i = 0; i < copyTuple.getElementCount(); i++) {
             elements.add(copyTuple.getElement(i));
         }
     }
 
     public Object[] getElementsAsArray() {
-		Object elementArray [] = new Object[elements.size()];
-        elements.toArray(elementArray);
+		Object elementArray [] = new Object[getElementCount()];
+		for (int i = 0; i < elementArray.length; i++) {
+			elementArray[i] = getElement(i);
+		}
         return elementArray;
     }
 
-    public void removeAllElements() {
-        elements.clear();
-    }
-
-	public void removeElement(int index) {
-		elements.remove(index);
-	}
-
-	public void moveElement(int currentElementIndex, int newElementIndex) {
-		if (currentElementIndex == newElementIndex) {
-			return;
-		}
-
-		Object tmp = elements.get(currentElementIndex);
-		if (currentElementIndex < newElementIndex) {
-			for (int i = currentElementIndex; i < newElementIndex; i++) {
-				elements.set(i, elements.get(i + 1));
-			}
-		} else {
-			for (int i = currentElementIndex; i > newElementIndex; i--) {
-				elements.set(i, elements.get(i - 1));
-			}
-		}
-		elements.set(newElementIndex, tmp);
-	}
-
-	public void setElement(int idx, Object value) {
-		elements.set(idx, value);
-	}
-
 	public void addElement(Object value) {
 		elements.add(value);
 	}
@@ -86,7 +70,7 @@ public class Tuple implements Serializable {
 	public boolean equals(Tuple tuple) {
 		if (tuple.getElementCount() == this.getElementCount()) {
 			for (int i = 0; i < this.getElementCount(); i++) {
-				if (tuple.getElement(i) != this.getElement(i)) {
+				if (!tuple.getElement(i).equals(this.getElement(i))) {
 					return false;
 				}
 			}
@@ -96,18 +80,28 @@ public class Tuple implements Serializable {
 	}
 
 	public Object getElement(int idx) {
-		return elements.get(idx);
+		if (elements != null) {
+			return elements.get(idx);
+		}
+		return dataTable.getColumn(idx).getValueAt(row);
 	}
 
 	public int getElementCount() {
-		return elements.size();
+		if (elements != null) {
+			return elements.size();
+		}
+		return dataTable.getColumnCount();
 	}
 
 	public void setQueryFlag(boolean enabled) {
 		queryFlag = enabled;
 	}
 
+	// tuples in the data table read their flag from the active query result
 	public boolean getQueryFlag() {
+		if (row >= 0) {
+			return dataTable.getActiveQuery().isRowQueried(row);
+		}
 		return queryFlag;
 	}
 
@@ -302,6 +302,9 @@ public class CategoricalAxis extends UnivariateAxis {
             if (getDataTable().getActiveQuery().hasColumnSelections()) {
                 CategoricalColumnSummaryStats queryColumnSummaryStats = (CategoricalColumnSummaryStats)getDataTable().getActiveQuery().getColumnQuerySummaryStats(getColumn());
                 CategoricalHistogram queryHistogram = queryColumnSummaryStats.getHistogram();
+                if (getDataTable().getQueryPreview() != null) {
+                    queryHistogram = getDataTable().getQueryPreview().getQueryHistogram(categoricalColumn());
+                }
 
                 for (String category : queryHistogram.getCategories()) {
                     int queryCategoryCount = queryHistogram.getCategoryCount(category);
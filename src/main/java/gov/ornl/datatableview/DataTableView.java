@@ -415,7 +415,18 @@ public class DataTableView extends Region implements DataTableListener {
         selectedTuplePolylines.clear();
 
         if ((tuplePolylines != null) && (!tuplePolylines.isEmpty())) {
-            if (dataTable.getActiveQuery().hasColumnSelections()) {
+            QueryPreview queryPreview = dataTable.getQueryPreview();
+            if (queryPreview != null) {
+                // only the sampled tuples are drawn while a selection is dragged
+                for (TuplePolyline pcpTuple : tuplePolylines) {
+                    int row = pcpTuple.getTuple().getRow();
+                    if (queryPreview.isRowQueried(row)) {
+                        selectedTuplePolylines.add(pcpTuple);
+                    } else if (queryPreview.isRowSampled(row)) {
+                        unselectedTuplePolylines.add(pcpTuple);
+                    }
+                }
+            } else if (dataTable.getActiveQuery().hasColumnSelections()) {
                 for (TuplePolyline pcpTuple : tuplePolylines) {
                     if (pcpTuple.getTuple().getQueryFlag()) {
                         selectedTuplePolylines.add(pcpTuple);
@@ -811,6 +822,13 @@ public class DataTableView extends Region implements DataTableListener {
     public void setDataTable(DataTable dataTable) {
         this.dataTable = dataTable;
         dataTable.addDataTableListener(this);
+        dataTable.queryPreviewProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue != null) {
+                handleQueryPreviewChange();
+            } else {
+                handleQueryChange();
+            }
+        });
         clearView();
         initView();
     }
@@ -1056,16 +1074,16 @@ public class DataTableView extends Region implements DataTableListener {
         if (isShowingCorrelations()) {
             for (CorrelationIndicatorRectangle corrRect : correlationRectangleList) {
 //                int axis2Index = getAxisIndex(corrRect.getAxis2());
-                int axis2ColumnIndex = dataTable.getColumnIndex(corrRect.getAxis2().getColumn());
+                Column axis2Column = corrRect.getAxis2().getColumn();
 
                 if (corrRect.getAxis2().getColumn().getName().equals("Pressure")) {
                     log.info("Pressure correlation");
                 }
                 double corr;
                 if (dataTable.getActiveQuery().hasColumnSelections() && dataTable.getCalculateQueryStatistics()) {
-                    corr = ((DoubleColumnSummaryStats)dataTable.getActiveQuery().getColumnQuerySummaryStats(corrRect.getAxis1().getColumn())).getCorrelationCoefficientList().get(axis2ColumnIndex);
+                    corr = ((DoubleColumnSummaryStats)dataTable.getActiveQuery().getColumnQuerySummaryStats(corrRect.getAxis1().getColumn())).getCorrelationCoefficient(axis2Column);
                 } else {
-                    corr = ((DoubleColumnSummaryStats)corrRect.getAxis1().getColumn().getStatistics()).getCorrelationCoefficientList().get(axis2ColumnIndex);
+                    corr = ((DoubleColumnSummaryStats)corrRect.getAxis1().getColumn().getStatistics()).getCorrelationCoefficient(axis2Column);
                 }
 
                 corrRect.setCorrelation(corr);
@@ -1171,6 +1189,17 @@ public class DataTableView extends Region implements DataTableListener {
         }
     }
 
+    // redraws the estimated query histograms and the sampled polylines of a query preview (scatterplots and
+    // correlations keep the exact result until the drag ends)
+    private void handleQueryPreviewChange() {
+        resizeAxes();
+
+        if (isShowingPolylines()) {
+            fillTupleSets();
+            redrawView();
+        }
+    }
+
     private void clearView() {
         removeAllAxisSelectionGraphics();
 
@@ -1317,6 +1346,21 @@ public class DataTableView extends Region implements DataTableListener {
         handleQueryChange();
     }
 
+    @Override
+    public void dataTableActiveQueryChanged(DataTable dataModel, Query previousActiveQuery) {
+        for (Axis axis : axisList) {
+            axis.removeAllAxisSelections();
+        }
+        for (ColumnSelection columnSelection : dataModel.getActiveQuery().getColumnSelections()) {
+            Axis axis = getAxisForColumn(columnSelection.getColumn());
+            if (axis != null) {
+                axis.addAxisSelection(columnSelection);
+            }
+        }
+
+        handleQueryChange();
+    }
+
     @Override
     public void dataTableAllColumnSelectionsForColumnRemoved(DataTable dataModel, Column column) {
         Axis axis = getAxisForColumn(column);
@@ -1355,12 +1399,19 @@ public class DataTableView extends Region implements DataTableListener {
 
     @Override
     public void dataTableTuplesAdded(DataTable dataModel, ArrayList<Tuple> newTuples) {
-        // clear axis selections
-        for (Axis axis : axisList) {
-            axis.removeAllAxisSelections();
+        if (tuplePolylines == null || pcpRegionBounds == null) {
+            initView();
+            return;
         }
 
-        initView();
+        // keep the axis selections and only lay out the polylines for the new tuples
+        for (Tuple tuple : newTuples) {
+            TuplePolyline tuplePolyline = new TuplePolyline(tuple);
+            tuplePolyline.layout(axisList);
+            tuplePolylines.add(tuplePolyline);
+        }
+
+        handleQueryChange();
     }
 
     @Override
@@ -506,6 +506,9 @@ public class DoubleAxis extends UnivariateAxis {
                     if (stats != null) {
                         queryHistogram = stats.getHistogram();
                     }
+                    if (getDataTable().getQueryPreview() != null) {
+                        queryHistogram = getDataTable().getQueryPreview().getQueryHistogram(doubleColumn());
+                    }
                 }
 
                 overallHistogramGroup.getChildren().clear();
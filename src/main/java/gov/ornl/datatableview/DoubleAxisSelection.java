@@ -106,6 +106,8 @@ public class DoubleAxisSelection extends UnivariateAxisSelection {
 //                ((DoubleColumn)univariateAxis().getColumn()).getStatistics().getMinValue()));
 
         layoutGraphics(bottomY, topY);
+        getAxis().getDataTable().previewColumnSelectionRange(doubleColumnSelection(), draggingMinValue.get(),
+                draggingMaxValue.get());
     }
 
     @Override
@@ -157,6 +159,7 @@ public class DoubleAxisSelection extends UnivariateAxisSelection {
             dragging = false;
 
             doubleColumnSelection().setRangeValues(draggingMinValue.get(), draggingMaxValue.get());
+            getAxis().getDataTable().endQueryPreview();
 
             // unbind selection range min/max labels from dragging min/max range values
             minText.textProperty().unbindBidirectional(draggingMinValue);
@@ -193,6 +196,7 @@ public class DoubleAxisSelection extends UnivariateAxisSelection {
 
             // update column selection range min properties
             doubleColumnSelection().setMinValue(draggingMinValue.get());
+            getAxis().getDataTable().endQueryPreview();
 
             // unbind selection range min labels from dragging min range value
             minText.textProperty().unbindBidirectional(draggingMinValue);
@@ -243,6 +247,8 @@ public class DoubleAxisSelection extends UnivariateAxisSelection {
 //                ((DoubleColumn)univariateAxis().getColumn()).getStatistics().getMaxValue(),
 //                ((DoubleColumn)univariateAxis().getColumn()).getStatistics().getMinValue()));
         layoutGraphics(bottomY, getTopY());
+        getAxis().getDataTable().previewColumnSelectionRange(doubleColumnSelection(), draggingMinValue.get(),
+                doubleColumnSelection().getMaxValue());
     }
 
     @Override
@@ -278,6 +284,8 @@ public class DoubleAxisSelection extends UnivariateAxisSelection {
 //                ((DoubleColumn)univariateAxis().getColumn()).getStatistics().getMinValue()));
 
         layoutGraphics(getBottomY(), topY);
+        getAxis().getDataTable().previewColumnSelectionRange(doubleColumnSelection(),
+                doubleColumnSelection().getMinValue(), draggingMaxValue.get());
     }
 
     @Override
@@ -292,6 +300,7 @@ public class DoubleAxisSelection extends UnivariateAxisSelection {
 
             // update column selection range max property
             doubleColumnSelection().setMaxValue(draggingMaxValue.get());
+            getAxis().getDataTable().endQueryPreview();
 
             // unbind selection range max label from dragging max range value
             maxText.textProperty().unbindBidirectional(draggingMaxValue);
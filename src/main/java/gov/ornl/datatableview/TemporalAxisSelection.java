@@ -120,6 +120,8 @@ public class TemporalAxisSelection extends UnivariateAxisSelection {
                 temporalAxis().temporalColumn().getEndFocusValue(), temporalAxis().temporalColumn().getStartFocusValue()));
 
         layoutGraphics(bottomY, topY);
+        getAxis().getDataTable().previewColumnSelectionRange(temporalColumnSelection(), draggingMinValue.get(),
+                draggingMaxValue.get());
     }
 
     @Override
@@ -134,6 +136,7 @@ public class TemporalAxisSelection extends UnivariateAxisSelection {
 
             // update column selection range min/max properties
             temporalColumnSelection().setRangeInstants((Instant)draggingMinValue.get(), (Instant)draggingMaxValue.get());
+            getAxis().getDataTable().endQueryPreview();
 
         } else {
             getAxis().getDataTable().removeColumnSelectionFromActiveQuery(temporalColumnSelection());
@@ -183,6 +186,8 @@ public class TemporalAxisSelection extends UnivariateAxisSelection {
 //                ((TemporalColumn)univariateAxis().getColumn()).getStatistics().getEndInstant(),
 //                ((TemporalColumn)univariateAxis().getColumn()).getStatistics().getStartInstant()));
         layoutGraphics(bottomY, getTopY());
+        getAxis().getDataTable().previewColumnSelectionRange(temporalColumnSelection(), draggingMinValue.get(),
+                temporalColumnSelection().getEndInstant());
     }
 
     @Override
@@ -197,6 +202,7 @@ public class TemporalAxisSelection extends UnivariateAxisSelection {
 
             // update column selection range min properties
             temporalColumnSelection().setStartInstant((Instant)draggingMinValue.get());
+            getAxis().getDataTable().endQueryPreview();
 
             // unbind selection range min labels from dragging min range value
             minText.textProperty().unbindBidirectional(draggingMinValue);
@@ -248,6 +254,8 @@ public class TemporalAxisSelection extends UnivariateAxisSelection {
 //                ((TemporalColumn)univariateAxis().getColumn()).getStatistics().getStartInstant()));
 
         layoutGraphics(getBottomY(), topY);
+        getAxis().getDataTable().previewColumnSelectionRange(temporalColumnSelection(),
+                temporalColumnSelection().getStartInstant(), draggingMaxValue.get());
     }
 
     @Override
@@ -262,6 +270,7 @@ public class TemporalAxisSelection extends UnivariateAxisSelection {
 
             // update column selection range max property
             temporalColumnSelection().setEndInstant((Instant)draggingMaxValue.get());
+            getAxis().getDataTable().endQueryPreview();
 
             // unbind selection range max label from dragging max range value
             maxText.textProperty().unbindBidirectional(draggingMaxValue);
@@ -293,6 +293,11 @@ public class ImageGridDisplay implements DataTableListener {
         setQueriedImageViews();
     }
 
+    @Override
+    public void dataTableActiveQueryChanged(DataTable dataTable, Query previousActiveQuery) {
+        setQueriedImageViews();
+    }
+
     @Override
     public void dataTableAllColumnSelectionsForColumnRemoved(DataTable dataTable, Column column) {
         setQueriedImageViews();
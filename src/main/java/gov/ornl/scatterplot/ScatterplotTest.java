@@ -56,6 +56,12 @@ public class ScatterplotTest extends Application {
                 scatterplot.drawPoints();
             }
 
+            @Override
+            public void dataTableActiveQueryChanged(DataTable dataTable, Query previousActiveQuery) {
+                scatterplot.fillSelectionPointSets();
+                scatterplot.drawPoints();
+            }
+
             @Override
             public void dataTableAllColumnSelectionsForColumnRemoved(DataTable dataTable, Column column) {
                 scatterplot.fillSelectionPointSets();
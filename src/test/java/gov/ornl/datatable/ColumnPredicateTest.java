@@ -0,0 +1,229 @@
+package gov.ornl.datatable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnPredicateTest {
+    // row counts around the 64 row words of the predicates
+    private static final int ROW_COUNTS[] = {0, 1, 63, 64, 65, 127, 128, 129, 1000};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    // returns values from a small range so intervals often start or end at a value (some values are NaN)
+    private static DoubleColumn createDoubleColumn(Random random, int rowCount) {
+        DoubleColumn column = new DoubleColumn("x");
+        for (int row = 0; row < rowCount; row++) {
+            column.addValue(random.nextInt(20) == 0 ? Double.NaN : random.nextInt(100) / 4.);
+        }
+        return column;
+    }
+
+    // returns random closed intervals over the values, some of them empty, overlapping, or adjacent
+    private static double[][] randomIntervals(Random random) {
+        double intervals[][] = new double[random.nextInt(5)][];
+        for (int i = 0; i < intervals.length; i++) {
+            double start = random.nextInt(100) / 4.;
+            double end = random.nextInt(4) == 0 ? start - 1. : start + random.nextInt(40) / 4.;
+            intervals[i] = new double[] {start, end};
+        }
+        if (intervals.length > 1 && random.nextBoolean()) {
+            // adjacent to the first interval
+            intervals[1] = new double[] {intervals[0][1], intervals[0][1] + 2.};
+        }
+        return intervals;
+    }
+
+    private static boolean isInIntervals(double value, double intervals[][]) {
+        for (double interval[] : intervals) {
+            if (value >= interval[0] && value <= interval[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // checks each row against the naive test of the original intervals with test(), testWord(), and evaluate()
+    private static void assertPredicate(ColumnPredicate predicate, int rowCount, BitSet expectedRows) {
+        for (int row = 0; row < rowCount; row++) {
+            assertEquals("row " + row, expectedRows.get(row), predicate.test(row));
+        }
+
+        long words[] = new long[(rowCount + 63) >>> 6];
+        for (int firstRow = 0; firstRow < rowCount; firstRow += 64) {
+            int wordRowCount = Math.min(64, rowCount - firstRow);
+            long word = predicate.testWord(firstRow, wordRowCount);
+            assertEquals("bits after the rows of word " + (firstRow >>> 6), 0L,
+                    wordRowCount == 64 ? 0L : word >>> wordRowCount);
+            words[firstRow >>> 6] = word;
+        }
+        assertEquals(expectedRows, BitSet.valueOf(words));
+
+        // evaluate() only clears the bits of rows that fail and skips empty words
+        Random random = new Random(rowCount);
+        long maskWords[] = new long[words.length];
+        BitSet maskedRows = new BitSet();
+        for (int i = 0; i < maskWords.length; i++) {
+            maskWords[i] = i % 3 == 1 ? 0L : random.nextLong();
+            if (i == maskWords.length - 1 && (rowCount & 63) != 0) {
+                maskWords[i] &= -1L >>> (64 - (rowCount & 63));
+            }
+        }
+        maskedRows.or(BitSet.valueOf(maskWords));
+        maskedRows.and(expectedRows);
+        predicate.evaluate(maskWords, 0, maskWords.length, rowCount);
+        assertEquals(maskedRows, BitSet.valueOf(maskWords));
+    }
+
+    @Test
+    public void testMergeIntervals() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 1000; trial++) {
+            double intervals[][] = randomIntervals(random);
+            double merged[][] = ColumnPredicate.mergeIntervals(intervals);
+            assertEquals(merged[0].length, merged[1].length);
+            for (int i = 0; i < merged[0].length; i++) {
+                assertTrue(merged[0][i] <= merged[1][i]);
+                // merged intervals are sorted and neither overlap nor touch
+                assertTrue(i == 0 || merged[0][i] > merged[1][i - 1]);
+            }
+            double mergedIntervals[][] = new double[merged[0].length][];
+            for (int i = 0; i < mergedIntervals.length; i++) {
+                mergedIntervals[i] = new double[] {merged[0][i], merged[1][i]};
+            }
+            for (int quarter = -8; quarter < 160; quarter++) {
+                double value = quarter / 8.;
+                assertEquals("value " + value + " in " + Arrays.deepToString(intervals),
+                        isInIntervals(value, intervals), isInIntervals(value, mergedIntervals));
+            }
+        }
+    }
+
+    @Test
+    public void testMergeEmptyAndNaNIntervals() {
+        double merged[][] = ColumnPredicate.mergeIntervals(new double[0][]);
+        assertEquals(0, merged[0].length);
+        merged = ColumnPredicate.mergeIntervals(new double[][] {{2., 1.}, {Double.NaN, 3.}, {0., Double.NaN}});
+        assertEquals(0, merged[0].length);
+        merged = ColumnPredicate.mergeIntervals(new double[][] {{1., 2.}, {2., 3.}, {5., 5.}, {0., 1.5}});
+        assertTrue(Arrays.equals(new double[] {0., 5.}, merged[0]));
+        assertTrue(Arrays.equals(new double[] {3., 5.}, merged[1]));
+    }
+
+    @Test
+    public void testMergeInstantIntervals() {
+        Instant base = Instant.ofEpochSecond(1000000);
+        Instant merged[][] = ColumnPredicate.mergeIntervals(new Instant[][] {
+                {base.plusNanos(10), base.plusNanos(20)}, {base.plusNanos(20), base.plusNanos(30)},
+                {base.plusNanos(31), base.plusNanos(40)}, {base.plusNanos(60), base.plusNanos(50)}});
+        assertTrue(Arrays.equals(new Instant[] {base.plusNanos(10), base.plusNanos(31)}, merged[0]));
+        assertTrue(Arrays.equals(new Instant[] {base.plusNanos(30), base.plusNanos(40)}, merged[1]));
+    }
+
+    @Test
+    public void testDoubleRangePredicate() {
+        Random random = new Random(2);
+        for (int rowCount : ROW_COUNTS) {
+            for (int trial = 0; trial < 20; trial++) {
+                DoubleColumn column = createDoubleColumn(random, rowCount);
+                double intervals[][] = randomIntervals(random);
+                BitSet expectedRows = new BitSet();
+                for (int row = 0; row < rowCount; row++) {
+                    expectedRows.set(row, isInIntervals(column.getValue(row), intervals));
+                }
+                assertPredicate(new ColumnPredicate.DoubleRangePredicate(column,
+                        ColumnPredicate.mergeIntervals(intervals)), rowCount, expectedRows);
+            }
+        }
+    }
+
+    @Test
+    public void testMappedDoubleRangePredicate() throws Exception {
+        // rows of memory mapped columns are tested one at a time
+        Random random = new Random(3);
+        DoubleColumn column = createDoubleColumn(random, 200);
+        column.useMappedStorage(temporaryFolder.newFolder());
+        try {
+            for (int trial = 0; trial < 20; trial++) {
+                double intervals[][] = randomIntervals(random);
+                BitSet expectedRows = new BitSet();
+                for (int row = 0; row < 200; row++) {
+                    expectedRows.set(row, isInIntervals(column.getValue(row), intervals));
+                }
+                assertPredicate(new ColumnPredicate.DoubleRangePredicate(column,
+                        ColumnPredicate.mergeIntervals(intervals)), 200, expectedRows);
+            }
+        } finally {
+            column.closeMappedStorage();
+        }
+    }
+
+    @Test
+    public void testTemporalRangePredicate() {
+        Random random = new Random(4);
+        Instant base = Instant.ofEpochSecond(1500000000);
+        for (boolean subMillisecondValues : new boolean[] {false, true}) {
+            for (int rowCount : ROW_COUNTS) {
+                TemporalColumn column = new TemporalColumn("t");
+                Instant values[] = new Instant[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = base.plusMillis(random.nextInt(50));
+                    if (subMillisecondValues && random.nextBoolean()) {
+                        values[row] = values[row].plusNanos(random.nextInt(1000000));
+                    }
+                    column.addValue(values[row]);
+                }
+                for (int trial = 0; trial < 20; trial++) {
+                    Instant intervals[][] = new Instant[1 + random.nextInt(3)][];
+                    for (int i = 0; i < intervals.length; i++) {
+                        Instant start = base.plusMillis(random.nextInt(50)).plusNanos(random.nextInt(3) * 500000);
+                        intervals[i] = new Instant[] {start, start.plusMillis(random.nextInt(10))};
+                    }
+                    BitSet expectedRows = new BitSet();
+                    for (int row = 0; row < rowCount; row++) {
+                        for (Instant interval[] : intervals) {
+                            if (!values[row].isBefore(interval[0]) && !values[row].isAfter(interval[1])) {
+                                expectedRows.set(row);
+                            }
+                        }
+                    }
+                    assertPredicate(new ColumnPredicate.TemporalRangePredicate(column,
+                            ColumnPredicate.mergeIntervals(intervals)), rowCount, expectedRows);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCategoryPredicate() {
+        Random random = new Random(5);
+        for (int rowCount : ROW_COUNTS) {
+            CategoricalColumn column = new CategoricalColumn("c", new ArrayList<>());
+            for (int row = 0; row < rowCount; row++) {
+                column.addValue("category " + random.nextInt(70));
+            }
+            for (int trial = 0; trial < 10; trial++) {
+                BitSet categoryIDMask = new BitSet();
+                for (int categoryID = 0; categoryID < column.getCategories().size(); categoryID++) {
+                    categoryIDMask.set(categoryID, random.nextInt(3) == 0);
+                }
+                BitSet expectedRows = new BitSet();
+                for (int row = 0; row < rowCount; row++) {
+                    expectedRows.set(row, categoryIDMask.get(column.getCategoryIDs()[row]));
+                }
+                assertPredicate(new ColumnPredicate.CategoryPredicate(column, categoryIDMask), rowCount,
+                        expectedRows);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package gov.ornl.datatable;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataTableTest {
+    // returns a data table with double columns x, y, and z, categorical column c, and temporal column t
+    private static DataTable createDataTable(Random random, int rowCount) {
+        ArrayList<Column> columns = new ArrayList<>();
+        for (String name : new String[] {"x", "y", "z"}) {
+            DoubleColumn column = new DoubleColumn(name);
+            for (int row = 0; row < rowCount; row++) {
+                column.addValue(random.nextGaussian());
+            }
+            columns.add(column);
+        }
+        CategoricalColumn categoricalColumn = new CategoricalColumn("c", null);
+        TemporalColumn temporalColumn = new TemporalColumn("t");
+        for (int row = 0; row < rowCount; row++) {
+            categoricalColumn.addValue("category " + random.nextInt(4));
+            temporalColumn.addValue(Instant.ofEpochSecond(random.nextInt(100000)));
+        }
+        columns.add(categoricalColumn);
+        columns.add(temporalColumn);
+
+        DataTable dataTable = new DataTable();
+        dataTable.setData(columns);
+        return dataTable;
+    }
+
+    // returns a tuple with an element for each of the given columns (in their order)
+    private static Tuple createTuple(DataTable dataTable, ArrayList<Column> columns, Random random) {
+        Tuple tuple = new Tuple(dataTable);
+        for (Column column : columns) {
+            if (column instanceof DoubleColumn) {
+                tuple.addElement(random.nextGaussian());
+            } else if (column instanceof CategoricalColumn) {
+                tuple.addElement("category " + random.nextInt(4));
+            } else {
+                tuple.addElement(Instant.ofEpochSecond(random.nextInt(100000)));
+            }
+        }
+        return tuple;
+    }
+
+    @Test
+    public void testAddTuplesWhileColumnsDisabled() {
+        Random random = new Random(1);
+        DataTable dataTable = createDataTable(random, 100);
+        DoubleColumn y = (DoubleColumn)dataTable.getColumn("y");
+        CategoricalColumn c = (CategoricalColumn)dataTable.getColumn("c");
+        dataTable.disableColumn(y);
+        dataTable.disableColumn(c);
+
+        // tuples with elements for the enabled columns followed by the disabled columns
+        ArrayList<Column> allColumns = new ArrayList<>(dataTable.getColumns());
+        allColumns.addAll(dataTable.getDisabledColumns());
+        ArrayList<Tuple> fullTuples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            fullTuples.add(createTuple(dataTable, allColumns, random));
+        }
+        dataTable.addTuples(fullTuples);
+
+        // tuples with elements for the enabled columns only
+        ArrayList<Tuple> enabledTuples = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            enabledTuples.add(createTuple(dataTable, new ArrayList<>(dataTable.getColumns()), random));
+        }
+        dataTable.addTuples(enabledTuples);
+
+        assertEquals(180, dataTable.getTupleCount());
+        for (Column column : allColumns) {
+            assertEquals(column.getName(), dataTable.getTupleCount(), column.getValueCount());
+        }
+
+        dataTable.enableColumn(y);
+        dataTable.enableColumn(c);
+        int yElement = allColumns.indexOf(y);
+        int cElement = allColumns.indexOf(c);
+        for (int i = 0; i < fullTuples.size(); i++) {
+            assertEquals((Double)fullTuples.get(i).getElement(yElement), y.getValue(100 + i), 0.);
+            assertEquals(fullTuples.get(i).getElement(cElement), c.getValue(100 + i));
+        }
+        for (int row = 150; row < 180; row++) {
+            assertTrue(Double.isNaN(y.getValue(row)));
+            assertEquals("", c.getValue(row));
+        }
+
+        // the enabled columns read the appended rows through the tuples of the data table
+        for (int row = 0; row < dataTable.getTupleCount(); row++) {
+            Tuple tuple = dataTable.getTuple(row);
+            assertEquals(y.getValue(row), (Double)tuple.getElement(dataTable.getColumnIndex(y)), 0.);
+            assertEquals(c.getValue(row), tuple.getElement(dataTable.getColumnIndex(c)));
+        }
+        assertEquals(dataTable.getTupleCount(), y.focusStates.length);
+        assertEquals(150, y.getStatistics().getMoments().getCount());
+    }
+
+    @Test
+    public void testValueGettersReturnCopies() {
+        Random random = new Random(3);
+        DataTable dataTable = createDataTable(random, 100);
+        DoubleColumn x = (DoubleColumn)dataTable.getColumn("x");
+        CategoricalColumn c = (CategoricalColumn)dataTable.getColumn("c");
+        double firstValue = x.getValue(0);
+        int firstCategoryID = c.getCategoryID(0);
+
+        double values[] = x.getValues();
+        int categoryIDs[] = c.getCategoryIDs();
+        assertEquals(100, values.length);
+        assertEquals(100, categoryIDs.length);
+        values[0] = firstValue + 1.;
+        categoryIDs[0] = firstCategoryID + 1;
+        assertEquals(firstValue, x.getValue(0), 0.);
+        assertEquals(firstCategoryID, c.getCategoryID(0));
+
+        // arrays returned earlier keep their values when rows are removed
+        double retainedValues[] = x.getValues();
+        dataTable.addColumnSelectionToActiveQuery(new DoubleColumnSelectionRange(x, 0., 10.));
+        dataTable.removeUnselectedTuples();
+        assertTrue(dataTable.getTupleCount() < 100);
+        assertEquals(firstValue, retainedValues[0], 0.);
+        assertEquals(100, retainedValues.length);
+    }
+
+    private static double correlation(DoubleColumn column, DoubleColumn otherColumn) {
+        int count = column.getValueCount();
+        double mean = 0.;
+        double otherMean = 0.;
+        for (int row = 0; row < count; row++) {
+            mean += column.getValue(row) / count;
+            otherMean += otherColumn.getValue(row) / count;
+        }
+        double coMoment = 0.;
+        double moment = 0.;
+        double otherMoment = 0.;
+        for (int row = 0; row < count; row++) {
+            double deviation = column.getValue(row) - mean;
+            double otherDeviation = otherColumn.getValue(row) - otherMean;
+            coMoment += deviation * otherDeviation;
+            moment += deviation * deviation;
+            otherMoment += otherDeviation * otherDeviation;
+        }
+        return coMoment / Math.sqrt(moment * otherMoment);
+    }
+
+    @Test
+    public void testStatisticsAfterAddTuplesWhileColumnDisabled() {
+        // the statistics and correlations of appended rows are merged over the enabled and disabled columns
+        Random random = new Random(2);
+        DataTable dataTable = createDataTable(random, 200);
+        DoubleColumn x = (DoubleColumn)dataTable.getColumn("x");
+        DoubleColumn y = (DoubleColumn)dataTable.getColumn("y");
+        DoubleColumn z = (DoubleColumn)dataTable.getColumn("z");
+        dataTable.disableColumn(y);
+        for (int k = 0; k < 3; k++) {
+            ArrayList<Column> allColumns = new ArrayList<>(dataTable.getColumns());
+            allColumns.addAll(dataTable.getDisabledColumns());
+            ArrayList<Tuple> newTuples = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                newTuples.add(createTuple(dataTable, allColumns, random));
+            }
+            dataTable.addTuples(newTuples);
+        }
+        assertEquals(correlation(x, z), x.getStatistics().getCorrelationCoefficient(z), 1e-9);
+        assertEquals(correlation(x, y), x.getStatistics().getCorrelationCoefficient(y), 1e-9);
+
+        dataTable.enableColumn(y);
+        assertEquals(320, y.getStatistics().getMoments().getCount());
+        double mean = 0.;
+        for (int row = 0; row < y.getValueCount(); row++) {
+            mean += y.getValue(row) / y.getValueCount();
+        }
+        assertEquals(mean, y.getStatistics().getMeanValue(), 1e-9);
+        assertEquals(correlation(y, z), y.getStatistics().getCorrelationCoefficient(z), 1e-9);
+        assertEquals(y.getStatistics().getCorrelationCoefficient(x), x.getStatistics().getCorrelationCoefficient(y),
+                1e-12);
+    }
+}
@@ -0,0 +1,185 @@
+package gov.ornl.datatable;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DoubleMomentsTest {
+    private static final double TOLERANCE = 1e-9;
+
+    // returns normally distributed values with a large offset (which the moments must not lose precision to)
+    private static double[] randomValues(Random random, int count) {
+        double values[] = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = 1000. + 10. * random.nextGaussian() + (random.nextBoolean() ? random.nextDouble() * 50. : 0.);
+        }
+        return values;
+    }
+
+    private static DoubleColumnSummaryStats getStatistics(DoubleMoments moments) {
+        DoubleColumnSummaryStats stats = new DoubleColumnSummaryStats(new DoubleColumn("x"), 10, null);
+        moments.setStatistics(stats);
+        return stats;
+    }
+
+    private static void assertClose(String name, double expected, double actual) {
+        if (Double.isNaN(expected)) {
+            assertTrue(name + " is " + actual + " instead of NaN", Double.isNaN(actual));
+        } else {
+            assertEquals(name, expected, actual, TOLERANCE * Math.max(1., Math.abs(expected)));
+        }
+    }
+
+    // compares the moments with the statistics DescriptiveStatistics calculates from the values
+    private static void assertMoments(double values[], DoubleMoments moments, boolean hasMinMax) {
+        DescriptiveStatistics expected = new DescriptiveStatistics(values);
+        DoubleColumnSummaryStats stats = getStatistics(moments);
+        assertEquals("count", Arrays.stream(values).filter(value -> !Double.isNaN(value)).count(), moments.getCount());
+        assertEquals("NaN count", Arrays.stream(values).filter(Double::isNaN).count(), moments.getNaNCount());
+        assertClose("mean", expected.getMean(), stats.getMeanValue());
+        assertClose("variance", expected.getVariance(), stats.getVarianceValue());
+        assertClose("standard deviation", expected.getStandardDeviation(), stats.getStandardDeviationValue());
+        assertClose("skewness", expected.getSkewness(), stats.getSkewnessValue());
+        assertClose("kurtosis", expected.getKurtosis(), stats.getKurtosisValue());
+        if (hasMinMax && moments.getNaNCount() == 0) {
+            assertClose("minimum", expected.getMin(), moments.getMinValue());
+            assertClose("maximum", expected.getMax(), moments.getMaxValue());
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        Random random = new Random(1);
+        for (int count : new int[] {2, 3, 4, 5, 17, 1000}) {
+            double values[] = randomValues(random, count);
+            assertMoments(values, DoubleMoments.of(values, 0, values.length), true);
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 50; trial++) {
+            double values[] = randomValues(random, 1 + random.nextInt(500));
+            int split = random.nextInt(values.length + 1);
+            DoubleMoments moments = DoubleMoments.of(values, 0, split);
+            moments.merge(DoubleMoments.of(values, split, values.length));
+            assertMoments(values, moments, true);
+        }
+    }
+
+    @Test
+    public void testMergeParts() {
+        Random random = new Random(3);
+        double values[] = randomValues(random, 10000);
+        DoubleMoments moments = new DoubleMoments();
+        for (int from = 0; from < values.length; from += 64) {
+            moments.merge(DoubleMoments.of(values, from, Math.min(from + 64, values.length)));
+        }
+        assertMoments(values, moments, true);
+    }
+
+    @Test
+    public void testSubtract() {
+        Random random = new Random(4);
+        for (int trial = 0; trial < 50; trial++) {
+            double values[] = randomValues(random, 2 + random.nextInt(500));
+            int split = random.nextInt(values.length - 1);
+            DoubleMoments moments = DoubleMoments.of(values, 0, values.length);
+            moments.subtract(DoubleMoments.of(values, 0, split));
+            assertMoments(Arrays.copyOfRange(values, split, values.length), moments, false);
+            assertTrue(Double.isNaN(moments.getMinValue()) || split == 0);
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        Random random = new Random(5);
+        double values[] = randomValues(random, 300);
+        DoubleMoments moments = DoubleMoments.of(values, 0, values.length);
+        for (int i = 0; i < 200; i++) {
+            moments.remove(values[i]);
+        }
+        assertMoments(Arrays.copyOfRange(values, 200, values.length), moments, false);
+    }
+
+    @Test
+    public void testSubtractAll() {
+        Random random = new Random(6);
+        double values[] = randomValues(random, 100);
+        DoubleMoments moments = DoubleMoments.of(values, 0, values.length);
+        moments.subtract(DoubleMoments.of(values, 0, values.length));
+        assertMoments(new double[0], moments, false);
+    }
+
+    @Test
+    public void testEmpty() {
+        DoubleMoments moments = new DoubleMoments();
+        assertMoments(new double[0], moments, true);
+        assertTrue(Double.isNaN(moments.getMean()));
+        assertTrue(Double.isNaN(moments.getMinValue()));
+
+        double values[] = {1., 2., 4.};
+        DoubleMoments merged = new DoubleMoments();
+        merged.merge(DoubleMoments.of(values, 0, values.length));
+        merged.merge(new DoubleMoments());
+        assertMoments(values, merged, true);
+        merged.subtract(new DoubleMoments());
+        assertMoments(values, merged, true);
+    }
+
+    @Test
+    public void testSingleValue() {
+        double values[] = {42.5};
+        DoubleMoments moments = DoubleMoments.of(values, 0, 1);
+        assertMoments(values, moments, true);
+        assertEquals(0., getStatistics(moments).getVarianceValue(), 0.);
+
+        double merged[] = {42.5, 17.};
+        moments.merge(DoubleMoments.of(merged, 1, 2));
+        assertMoments(merged, moments, true);
+        moments.remove(17.);
+        assertMoments(values, moments, false);
+    }
+
+    @Test
+    public void testEqualValues() {
+        // removals must not leave rounding errors that make equal values look spread out
+        double values[] = new double[100];
+        Arrays.fill(values, 3.25);
+        double others[] = randomValues(new Random(7), 100);
+        DoubleMoments moments = DoubleMoments.of(values, 0, values.length);
+        moments.merge(DoubleMoments.of(others, 0, others.length));
+        moments.subtract(DoubleMoments.of(others, 0, others.length));
+        DoubleColumnSummaryStats stats = getStatistics(moments);
+        assertEquals(3.25, stats.getMeanValue(), 1e-9);
+        assertEquals(0., stats.getVarianceValue(), 0.);
+        assertTrue(Double.isNaN(stats.getSkewnessValue()));
+    }
+
+    @Test
+    public void testNaN() {
+        double values[] = {1., Double.NaN, 3., 8., 2.};
+        DoubleMoments moments = DoubleMoments.of(values, 0, values.length);
+        assertEquals(4, moments.getCount());
+        assertEquals(1, moments.getNaNCount());
+        // DescriptiveStatistics returns NaN statistics for values with NaN
+        assertMoments(values, moments, false);
+
+        DoubleMoments merged = DoubleMoments.of(values, 0, 2);
+        merged.merge(DoubleMoments.of(values, 2, values.length));
+        assertEquals(1, merged.getNaNCount());
+        assertMoments(values, merged, false);
+
+        // the moments of the values without NaN are left once the NaN value is removed
+        moments.remove(Double.NaN);
+        assertMoments(new double[] {1., 3., 8., 2.}, moments, true);
+        merged.subtract(DoubleMoments.of(values, 0, 2));
+        assertMoments(new double[] {3., 8., 2.}, merged, false);
+    }
+}
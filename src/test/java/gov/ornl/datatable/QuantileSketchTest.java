@@ -0,0 +1,138 @@
+package gov.ornl.datatable;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuantileSketchTest {
+    private static final double RANK_ERROR[] = {0.05, 0.01, 0.002};
+
+    private static double[] randomValues(Random random, int count, boolean duplicates) {
+        double values[] = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = duplicates ? random.nextInt(1000) : random.nextGaussian();
+        }
+        return values;
+    }
+
+    // returns the index of the first sorted value that is not less than (or greater than if after is true) a value
+    private static int search(double sortedValues[], double value, boolean after) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedValues[middle] < value || (after && sortedValues[middle] == value)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // checks that the value the sketch returns for each percentile rank is a value at a rank of the sorted values
+    // within the rank error of the requested rank
+    private static void assertRankError(double values[], QuantileSketch sketch, double rankError) {
+        double sortedValues[] = values.clone();
+        Arrays.sort(sortedValues);
+        int count = sortedValues.length;
+        assertEquals(count, sketch.getCount());
+        for (int percentile = 0; percentile <= 100; percentile++) {
+            long rank = (long)((count - 1) * (percentile / 100.));
+            double value = sketch.getValueAtRank(rank);
+            int lowestRank = search(sortedValues, value, false);
+            int highestRank = search(sortedValues, value, true) - 1;
+            assertTrue("value " + value + " is not in the values", lowestRank <= highestRank);
+            long error = rank < lowestRank ? lowestRank - rank : rank > highestRank ? rank - highestRank : 0;
+            assertTrue("rank error " + error + " at rank " + rank + " of " + count + " values",
+                    error <= rankError * count);
+        }
+    }
+
+    @Test
+    public void testRankError() {
+        Random random = new Random(1);
+        for (double rankError : RANK_ERROR) {
+            for (int trial = 0; trial < 6; trial++) {
+                double values[] = randomValues(random, 1000 + random.nextInt(100000), trial % 2 == 1);
+                assertRankError(values, QuantileSketch.of(values, 0, values.length, rankError), rankError);
+            }
+        }
+    }
+
+    @Test
+    public void testSortedValues() {
+        // compactions of values that arrive in order must not skew the ranks
+        double values[] = new double[50000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        assertRankError(values, QuantileSketch.of(values, 0, values.length, 0.01), 0.01);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values.length - i;
+        }
+        assertRankError(values, QuantileSketch.of(values, 0, values.length, 0.01), 0.01);
+    }
+
+    @Test
+    public void testMerge() {
+        Random random = new Random(2);
+        for (double rankError : RANK_ERROR) {
+            double values[] = randomValues(random, 50000 + random.nextInt(50000), false);
+            QuantileSketch sketch = new QuantileSketch(rankError);
+            for (int from = 0; from < values.length; from += 1000) {
+                sketch.merge(QuantileSketch.of(values, from, Math.min(from + 1000, values.length), rankError));
+            }
+            assertRankError(values, sketch, rankError);
+        }
+    }
+
+    @Test
+    public void testSmallInputsAreExact() {
+        Random random = new Random(3);
+        for (int count = 1; count <= 100; count++) {
+            double values[] = randomValues(random, count, count % 2 == 0);
+            QuantileSketch sketch = QuantileSketch.of(values, 0, count, 0.01);
+            double sortedValues[] = values.clone();
+            Arrays.sort(sortedValues);
+            for (int rank = 0; rank < count; rank++) {
+                assertEquals(sortedValues[rank], sketch.getValueAtRank(rank), 0.);
+            }
+        }
+    }
+
+    @Test
+    public void testMinimumAndMaximumAreExact() {
+        Random random = new Random(4);
+        double values[] = randomValues(random, 100000, false);
+        QuantileSketch sketch = QuantileSketch.of(values, 0, values.length, 0.05);
+        assertEquals(Arrays.stream(values).min().getAsDouble(), sketch.getValueAtRank(0), 0.);
+        assertEquals(Arrays.stream(values).max().getAsDouble(), sketch.getValueAtRank(values.length - 1), 0.);
+    }
+
+    @Test
+    public void testEmptyAndNaN() {
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        assertEquals(0, sketch.getCount());
+        assertTrue(Double.isNaN(sketch.getValueAtRank(0)));
+
+        double values[] = {3., Double.NaN, 1., Double.NaN, 2.};
+        sketch = QuantileSketch.of(values, 0, values.length, 0.01);
+        assertEquals(3, sketch.getCount());
+        assertEquals(1., sketch.getValueAtRank(0), 0.);
+        assertEquals(2., sketch.getValueAtRank(1), 0.);
+        assertEquals(3., sketch.getValueAtRank(2), 0.);
+
+        sketch.merge(new QuantileSketch(0.01));
+        assertEquals(3, sketch.getCount());
+        QuantileSketch merged = new QuantileSketch(0.01);
+        merged.merge(sketch);
+        assertEquals(3, merged.getCount());
+        assertEquals(1., merged.getValueAtRank(0), 0.);
+        assertEquals(3., merged.getValueAtRank(2), 0.);
+    }
+}
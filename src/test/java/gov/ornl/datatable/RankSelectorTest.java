@@ -0,0 +1,92 @@
+package gov.ornl.datatable;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RankSelectorTest {
+    // checks the values of all ranks requested in a random order against the sorted values without NaN
+    private static void assertRanks(double values[], Random random) {
+        double sortedValues[] = Arrays.stream(values).filter(value -> !Double.isNaN(value)).sorted().toArray();
+        RankSelector rankSelector = new RankSelector(values);
+        assertEquals(sortedValues.length, rankSelector.getCount());
+
+        int ranks[] = new int[sortedValues.length];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = i;
+        }
+        for (int i = ranks.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = swap;
+        }
+        for (int rank : ranks) {
+            assertEquals("rank " + rank, sortedValues[rank], rankSelector.getValueAtRank(rank), 0.);
+        }
+    }
+
+    @Test
+    public void testRandomValues() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 50; trial++) {
+            double values[] = new double[1 + random.nextInt(2000)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = trial % 2 == 0 ? random.nextGaussian() : random.nextInt(10);
+            }
+            assertRanks(values, random);
+        }
+    }
+
+    @Test
+    public void testQuartilesAndWhiskers() {
+        // the ranks the statistics request: quartiles first and then ranks between them
+        Random random = new Random(2);
+        double values[] = new double[10001];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble();
+        }
+        double sortedValues[] = values.clone();
+        Arrays.sort(sortedValues);
+        RankSelector rankSelector = new RankSelector(values);
+        int ranks[] = {2500, 5000, 7500, 0, 10000, 2499, 7501, 100, 9900};
+        for (int rank : ranks) {
+            assertEquals("rank " + rank, sortedValues[rank], rankSelector.getValueAtRank(rank), 0.);
+        }
+    }
+
+    @Test
+    public void testSortedAndEqualValues() {
+        Random random = new Random(3);
+        double values[] = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        assertRanks(values, random);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = -i;
+        }
+        assertRanks(values, random);
+        Arrays.fill(values, 7.);
+        assertRanks(values, random);
+    }
+
+    @Test
+    public void testSmallInputs() {
+        Random random = new Random(4);
+        assertRanks(new double[0], random);
+        assertRanks(new double[] {5.}, random);
+        assertRanks(new double[] {2., 1.}, random);
+        assertRanks(new double[] {1., 1., 0.}, random);
+    }
+
+    @Test
+    public void testNaN() {
+        Random random = new Random(5);
+        assertRanks(new double[] {Double.NaN}, random);
+        assertRanks(new double[] {3., Double.NaN, -1., Double.NaN, 2., 3.}, random);
+    }
+}
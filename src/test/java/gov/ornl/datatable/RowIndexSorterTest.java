@@ -0,0 +1,134 @@
+package gov.ornl.datatable;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class RowIndexSorterTest {
+    // row counts around the powers of two of the merge widths and the 64 row words of the query bitsets
+    private static final int ROW_COUNTS[] = {0, 1, 2, 3, 63, 64, 65, 127, 128, 129, 1000};
+
+    // returns values with duplicates, NaN, and both zeros
+    private static double[] randomValues(Random random, int count) {
+        double values[] = new double[count];
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(20);
+            values[i] = kind == 0 ? Double.NaN : kind == 1 ? -0. : random.nextInt(50) - 25.;
+        }
+        return values;
+    }
+
+    // stable sort of the row indices of boxed values (NaN last, as Double.compare orders them)
+    private static int[] naiveSortDoubles(IntToDoubleFunction values, int count) {
+        return IntStream.range(0, count).boxed()
+                .sorted(Comparator.comparingDouble(values::applyAsDouble))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] naiveSortLongs(IntToLongFunction values, int count) {
+        return IntStream.range(0, count).boxed()
+                .sorted(Comparator.comparingLong(values::applyAsLong))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testSortDoubles() {
+        Random random = new Random(1);
+        for (int count : ROW_COUNTS) {
+            double values[] = randomValues(random, count + 10);
+            // only the first count rows are sorted
+            assertArrayEquals("count " + count, naiveSortDoubles(row -> values[row], count),
+                    RowIndexSorter.sort(values, count));
+        }
+    }
+
+    @Test
+    public void testSortLongs() {
+        Random random = new Random(2);
+        for (int count : ROW_COUNTS) {
+            long values[] = new long[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = random.nextBoolean() ? random.nextInt(10) : random.nextLong();
+            }
+            assertArrayEquals("count " + count, naiveSortLongs(row -> values[row], count),
+                    RowIndexSorter.sort(values, count));
+        }
+    }
+
+    @Test
+    public void testSortWithComparator() {
+        Random random = new Random(3);
+        for (int count : ROW_COUNTS) {
+            long values[] = new long[count];
+            int nanos[] = new int[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = random.nextInt(10);
+                nanos[i] = random.nextInt(3);
+            }
+            RowIndexSorter.RowComparator comparator = (rowA, rowB) -> values[rowA] != values[rowB] ?
+                    Long.compare(values[rowA], values[rowB]) : Integer.compare(nanos[rowA], nanos[rowB]);
+            int expected[] = IntStream.range(0, count).boxed().sorted(comparator::compare)
+                    .mapToInt(Integer::intValue).toArray();
+            assertArrayEquals("count " + count, expected, RowIndexSorter.sort(comparator, count));
+
+            int sortedCount = count / 3;
+            assertArrayEquals("count " + count, expected,
+                    RowIndexSorter.extend(RowIndexSorter.sort(comparator, sortedCount), comparator, count));
+        }
+    }
+
+    @Test
+    public void testExtend() {
+        Random random = new Random(4);
+        for (int count : ROW_COUNTS) {
+            double values[] = randomValues(random, count);
+            long longValues[] = new long[count];
+            for (int i = 0; i < count; i++) {
+                longValues[i] = random.nextInt(10);
+            }
+            for (int sortedCount : new int[] {0, count / 2, Math.max(0, count - 1), count}) {
+                // extending the sorted rows gives the same (stable) order as sorting all rows
+                int sortedRows[] = RowIndexSorter.sort(values, sortedCount);
+                assertArrayEquals("count " + count + " extended from " + sortedCount,
+                        naiveSortDoubles(row -> values[row], count),
+                        RowIndexSorter.extendByDouble(sortedRows, row -> values[row], count));
+                int sortedLongRows[] = RowIndexSorter.sort(longValues, sortedCount);
+                assertArrayEquals("count " + count + " extended from " + sortedCount,
+                        naiveSortLongs(row -> longValues[row], count),
+                        RowIndexSorter.extendByLong(sortedLongRows, row -> longValues[row], count));
+            }
+        }
+    }
+
+    @Test
+    public void testRetain() {
+        Random random = new Random(5);
+        for (int count : ROW_COUNTS) {
+            double values[] = randomValues(random, count);
+            int sortedRows[] = RowIndexSorter.sort(values, count);
+            for (int trial = 0; trial < 5; trial++) {
+                // trial 0 retains no rows and trial 1 retains all rows
+                int retainedRows = trial;
+                int rows[] = IntStream.range(0, count)
+                        .filter(row -> retainedRows != 0 && (retainedRows == 1 || random.nextBoolean())).toArray();
+                double retainedValues[] = Arrays.stream(rows).mapToDouble(row -> values[row]).toArray();
+                assertArrayEquals("count " + count, naiveSortDoubles(row -> retainedValues[row], rows.length),
+                        RowIndexSorter.retain(sortedRows, rows, count));
+            }
+        }
+    }
+
+    @Test
+    public void testNaNLast() {
+        double values[] = {Double.NaN, 3., Double.NaN, -1., 0., -0.};
+        int sortedRows[] = RowIndexSorter.sort(values, values.length);
+        assertArrayEquals(new int[] {3, 5, 4, 1, 0, 2}, sortedRows);
+    }
+}